@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.entity.items.Item;
+import org.mafagafogigante.dungeon.stats.WorldStatistics;
+import org.mafagafogigante.dungeon.util.Matches;
+import org.mafagafogigante.dungeon.util.Utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures entity name matching against all the items of a generated region of the surface.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class EntityMatchingBenchmark {
+
+  private static final long SEED = 20151031L;
+
+  /**
+   * The side of the region whose items are matched, in chunks.
+   */
+  @Param({"2", "4", "8"})
+  private int chunkSide;
+
+  private List<Item> items;
+  private String[] completeTokens;
+  private String[] partialTokens;
+
+  /**
+   * Collects the items of the region and makes tokens out of the name of one of them.
+   */
+  @Setup(Level.Trial)
+  public void collectItems() {
+    int side = chunkSide * LocationChunk.CHUNK_SIDE;
+    World world = new World(new WorldStatistics(), SEED);
+    world.generateRegion(0, 0, side - 1, side - 1);
+    items = new ArrayList<Item>();
+    for (int x = 0; x < side; x++) {
+      for (int y = 0; y < side; y++) {
+        items.addAll(world.getLocation(new Point(x, y, 0)).getItemList());
+      }
+    }
+    world.dispose();
+    if (items.isEmpty()) {
+      throw new IllegalStateException("the region has no items.");
+    }
+    completeTokens = items.get(items.size() / 2).getName().getSingular().split(" ");
+    partialTokens = new String[completeTokens.length];
+    for (int i = 0; i < completeTokens.length; i++) {
+      partialTokens[i] = completeTokens[i].substring(0, Math.min(2, completeTokens[i].length()));
+    }
+  }
+
+  @Benchmark
+  public Matches<Item> findBestMatches() {
+    return Utils.findBestMatches(items, partialTokens);
+  }
+
+  @Benchmark
+  public Matches<Item> findBestCompleteMatches() {
+    return Utils.findBestCompleteMatches(items, completeTokens);
+  }
+
+}
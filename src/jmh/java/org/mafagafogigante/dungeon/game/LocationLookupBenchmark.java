@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.stats.WorldStatistics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures World.getLocation over a region that has already been generated.
+ *
+ * <p>Each operation looks up one location of every chunk of the region. In the warm benchmark all chunks are resident.
+ * In the cold benchmark the chunk budget is much smaller than the region, so the cyclic scan faults every chunk back
+ * in from the region file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LocationLookupBenchmark {
+
+  private static final long SEED = 20151031L;
+  private static final int SMALL_CHUNK_BUDGET = 32;
+
+  /**
+   * The side of the generated region, in chunks. Should be bigger than the square root of the small chunk budget.
+   */
+  @Param({"8", "16", "32"})
+  private int chunkSide;
+
+  private World warmWorld;
+  private World coldWorld;
+  private Point[] points;
+
+  /**
+   * Generates the same region on both Worlds and chooses the point that is looked up on each chunk.
+   */
+  @Setup(Level.Trial)
+  public void makeWorlds() {
+    int side = chunkSide * LocationChunk.CHUNK_SIDE;
+    warmWorld = new World(new WorldStatistics(), SEED);
+    warmWorld.generateRegion(0, 0, side - 1, side - 1);
+    coldWorld = new World(new WorldStatistics(), SEED);
+    coldWorld.setChunkBudget(SMALL_CHUNK_BUDGET);
+    coldWorld.generateRegion(0, 0, side - 1, side - 1);
+    points = new Point[chunkSide * chunkSide];
+    int index = 0;
+    for (int x = 0; x < side; x += LocationChunk.CHUNK_SIDE) {
+      for (int y = 0; y < side; y += LocationChunk.CHUNK_SIDE) {
+        points[index++] = new Point(x + LocationChunk.CHUNK_SIDE / 2, y + LocationChunk.CHUNK_SIDE / 2, 0);
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void disposeWorlds() {
+    warmWorld.dispose();
+    coldWorld.dispose();
+  }
+
+  @Benchmark
+  public void warmLookup(Blackhole blackhole) {
+    for (Point point : points) {
+      blackhole.consume(warmWorld.getLocation(point));
+    }
+  }
+
+  @Benchmark
+  public void coldLookup(Blackhole blackhole) {
+    for (Point point : points) {
+      blackhole.consume(coldWorld.getLocation(point));
+    }
+  }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures SaveJournal.capture, which runs on the thread that modifies the game and so pauses it.
+ *
+ * <p>The complete benchmark captures every chunk of the region, as the first save of a game to a file does. The delta
+ * benchmark captures what a single turn changes, which is the chunk of the Hero. Every chunk is resident, as evicted
+ * chunks are captured by their offsets in the region file without being serialized. Nothing is written to disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SaveCaptureBenchmark {
+
+  private static final long SEED = 20151031L;
+
+  /**
+   * The side of the generated region, in chunks.
+   */
+  @Param({"8", "16", "32"})
+  private int chunkSide;
+
+  private GameState state;
+  // Captures alternate between two files, so that each of them is complete.
+  private File[] snapshots;
+  private int captureCount;
+
+  /**
+   * Generates the region around the Hero.
+   */
+  @Setup(Level.Trial)
+  public void makeGameState() throws IOException {
+    state = new GameState(new SeededRandom(SEED));
+    int half = chunkSide * LocationChunk.CHUNK_SIDE / 2;
+    state.getWorld().generateRegion(-half, -half, half - 1, half - 1);
+    File folder = File.createTempFile("dungeon-", "-captures");
+    if (!folder.delete() || !folder.mkdir()) {
+      throw new IOException("failed to create " + folder.getName() + ".");
+    }
+    folder.deleteOnExit();
+    snapshots = new File[] {new File(folder, "a.dungeon"), new File(folder, "b.dungeon")};
+  }
+
+  @TearDown(Level.Trial)
+  public void disposeGameState() {
+    state.getWorld().dispose();
+  }
+
+  @Benchmark
+  public SaveJournal.Capture completeCapture() throws IOException {
+    return SaveJournal.capture(state, snapshots[captureCount++ % 2]);
+  }
+
+  @Benchmark
+  public SaveJournal.Capture deltaCapture() throws IOException {
+    state.clearDirtyChunks();
+    return SaveJournal.capture(state, snapshots[0]);
+  }
+
+}
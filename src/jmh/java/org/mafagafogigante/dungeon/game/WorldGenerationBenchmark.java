@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.stats.WorldStatistics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to generate a square region of chunks on a new World, either in bulk or one chunk at a
+ * time as the hero would walk into them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class WorldGenerationBenchmark {
+
+  private static final long SEED = 20151031L;
+
+  /**
+   * The side of the generated region, in chunks.
+   */
+  @Param({"4", "8", "16"})
+  private int chunkSide;
+
+  private World world;
+  private int side;
+
+  @Setup(Level.Invocation)
+  public void makeWorld() {
+    world = new World(new WorldStatistics(), SEED);
+    side = chunkSide * LocationChunk.CHUNK_SIDE;
+  }
+
+  @TearDown(Level.Invocation)
+  public void disposeWorld() {
+    world.dispose();
+  }
+
+  @Benchmark
+  public World generateRegion() {
+    world.generateRegion(0, 0, side - 1, side - 1);
+    return world;
+  }
+
+  @Benchmark
+  public World generateChunksOnDemand() {
+    for (int x = 0; x < side; x += LocationChunk.CHUNK_SIDE) {
+      for (int y = 0; y < side; y += LocationChunk.CHUNK_SIDE) {
+        world.getLocation(new Point(x, y, 0));
+      }
+    }
+    return world;
+  }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.map;
+
+import org.mafagafogigante.dungeon.game.Point;
+import org.mafagafogigante.dungeon.game.World;
+import org.mafagafogigante.dungeon.stats.WorldStatistics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rendering of a debug WorldMap centered on a World that already has the region around the center.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class WorldMapBenchmark {
+
+  private static final long SEED = 20151031L;
+  private static final int CHUNK_SIDE = 5;
+
+  /**
+   * The side of the region generated around the center before rendering, in chunks.
+   */
+  @Param({"8", "32", "64"})
+  private int chunkSide;
+
+  private World world;
+  private Point center;
+
+  /**
+   * Generates the region around the center and renders the map once, so that the benchmark does not generate chunks.
+   */
+  @Setup(Level.Trial)
+  public void makeWorld() {
+    int radius = chunkSide * CHUNK_SIDE / 2;
+    world = new World(new WorldStatistics(), SEED);
+    world.generateRegion(-radius, -radius, radius, radius);
+    center = new Point(0, 0, 0);
+    WorldMap.makeDebugWorldMap(world, center);
+  }
+
+  @Benchmark
+  public WorldMap renderDebugWorldMap() {
+    return WorldMap.makeDebugWorldMap(world, center);
+  }
+
+}
@@ -35,9 +35,12 @@ import org.mafagafogigante.dungeon.game.Id;
 import org.mafagafogigante.dungeon.game.Location;
 import org.mafagafogigante.dungeon.game.LocationPreset;
 import org.mafagafogigante.dungeon.game.LocationPresetStore;
+import org.mafagafogigante.dungeon.game.PagingStatistics;
 import org.mafagafogigante.dungeon.game.Point;
 import org.mafagafogigante.dungeon.game.Random;
+import org.mafagafogigante.dungeon.game.World;
 import org.mafagafogigante.dungeon.gui.WritingSpecifications;
+import org.mafagafogigante.dungeon.io.Converter;
 import org.mafagafogigante.dungeon.io.Loader;
 import org.mafagafogigante.dungeon.io.PoemWriter;
 import org.mafagafogigante.dungeon.io.SavesTableWriter;
@@ -66,6 +69,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 final class CommandSets {
 
@@ -486,6 +490,32 @@ final class CommandSets {
         DebugWaitParser.parseDebugWait(arguments);
       }
     });
+    commandSet.addCommand(new Command("world", "Writes information about the world.") {
+      @Override
+      public void execute(@NotNull String[] arguments) {
+        World world = Game.getGameState().getWorld();
+        Table table = new Table("Property", "Value");
+        table.insertRow("Seed", String.valueOf(world.getSeed()));
+        table.insertRow("Locations", String.valueOf(world.getLocationCount()));
+        table.insertRow("Chunks", String.valueOf(world.getChunkCount()));
+        table.insertRow("Location store footprint", Converter.bytesToHuman(world.getLocationStoreFootprint()));
+        table.insertRow("Resident chunks", world.getResidentChunkCount() + " of " + world.getChunkBudget());
+        table.insertRow("Evicted chunks", String.valueOf(world.getEvictedChunkCount()));
+        table.insertRow("Chunks not loaded yet", String.valueOf(world.getSavedChunkCount()));
+        table.insertRow("Region file", Converter.bytesToHuman(world.getRegionFileLength()));
+        PagingStatistics paging = world.getPagingStatistics();
+        String pagingFormat = "%d (average %d μs, maximum %d μs)";
+        long averageEviction = TimeUnit.NANOSECONDS.toMicros(paging.getAverageEvictionNanoseconds());
+        long maximumEviction = TimeUnit.NANOSECONDS.toMicros(paging.getMaximumEvictionNanoseconds());
+        table.insertRow("Evictions", String.format(pagingFormat, paging.getEvictionCount(), averageEviction,
+            maximumEviction));
+        long averageFault = TimeUnit.NANOSECONDS.toMicros(paging.getAverageFaultNanoseconds());
+        long maximumFault = TimeUnit.NANOSECONDS.toMicros(paging.getMaximumFaultNanoseconds());
+        table.insertRow("Faults", String.format(pagingFormat, paging.getFaultCount(), averageFault, maximumFault));
+        table.insertRow("Scheduled refreshes", String.valueOf(world.getScheduledRefreshCount()));
+        Writer.write(table);
+      }
+    });
     return commandSet;
   }
 
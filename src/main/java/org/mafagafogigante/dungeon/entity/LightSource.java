@@ -18,12 +18,17 @@
 package org.mafagafogigante.dungeon.entity;
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A source of Luminosity.
  */
 public class LightSource implements Serializable {
 
+  // How many times any light source was enabled or disabled, so that cached luminosities can be discarded. Atomic, as
+  // light sources are also changed by the combat simulator workers and by the pregeneration thread.
+  private static final AtomicLong CHANGE_COUNT = new AtomicLong();
+
   private final Luminosity luminosity;
   private boolean enabled = true;
 
@@ -35,14 +40,27 @@ public class LightSource implements Serializable {
    * Enables this source until disable is called.
    */
   public void enable() {
-    this.enabled = true;
+    if (!enabled) {
+      this.enabled = true;
+      CHANGE_COUNT.incrementAndGet();
+    }
   }
 
   /**
    * Disables this source until enable is called.
    */
   public void disable() {
-    this.enabled = false;
+    if (enabled) {
+      this.enabled = false;
+      CHANGE_COUNT.incrementAndGet();
+    }
+  }
+
+  /**
+   * Returns how many times light sources were enabled or disabled since the application started.
+   */
+  public static long getChangeCount() {
+    return CHANGE_COUNT.get();
   }
 
   /**
@@ -76,6 +76,13 @@ public class Weight implements Comparable<Weight>, Serializable {
     return newInstance(this.value * percentage.toDouble());
   }
 
+  /**
+   * Returns the amount of kilograms this Weight represents.
+   */
+  public double toDouble() {
+    return value;
+  }
+
   @Override
   public int compareTo(@NotNull Weight weight) {
     return Double.compare(value, weight.value);
@@ -31,7 +31,8 @@ interface AttackAlgorithm {
    *
    * @param attacker the attacker
    * @param defender the defender
+   * @param environment the AttackEnvironment that provides randomness and luminosity and receives the report
    */
-  void renderAttack(@NotNull Creature attacker, @NotNull Creature defender);
+  void renderAttack(@NotNull Creature attacker, @NotNull Creature defender, @NotNull AttackEnvironment environment);
 
 }
@@ -27,23 +27,34 @@ final class AttackAlgorithms {
 
   private static final Map<AttackAlgorithmId, AttackAlgorithm> ATTACK_ALGORITHM_MAP =
       new EnumMap<AttackAlgorithmId, AttackAlgorithm>(AttackAlgorithmId.class);
-  private static boolean uninitialized = true;
+
+  static { // Initialized once, when the class is loaded, so that attacks may be rendered from several threads.
+    initialize();
+  }
 
   private AttackAlgorithms() { // Ensure that this class cannot be instantiated.
     throw new AssertionError();
   }
 
   /**
-   * Renders an attack of the attacker on the defender.
+   * Renders an attack of the attacker on the defender in the world of the game.
    *
    * @param attacker the Creature that is attacking
    * @param defender the Creature that is being attacked
    */
   public static void renderAttack(Creature attacker, Creature defender) {
-    if (uninitialized) {
-      initialize();
-    }
-    ATTACK_ALGORITHM_MAP.get(attacker.getAttackAlgorithmId()).renderAttack(attacker, defender);
+    renderAttack(attacker, defender, WorldAttackEnvironment.INSTANCE);
+  }
+
+  /**
+   * Renders an attack of the attacker on the defender in the specified AttackEnvironment.
+   *
+   * @param attacker the Creature that is attacking
+   * @param defender the Creature that is being attacked
+   * @param environment the AttackEnvironment in which the attack happens
+   */
+  static void renderAttack(Creature attacker, Creature defender, AttackEnvironment environment) {
+    ATTACK_ALGORITHM_MAP.get(attacker.getAttackAlgorithmId()).renderAttack(attacker, defender, environment);
   }
 
   private static void initialize() {
@@ -53,7 +64,6 @@ final class AttackAlgorithms {
     registerAttackAlgorithm(AttackAlgorithmId.ORC, new OrcAttackAlgorithm());
     registerAttackAlgorithm(AttackAlgorithmId.SIMPLE, new SimpleAttackAlgorithm());
     validateMap();
-    uninitialized = false;
   }
 
   /**
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.entity.creatures;
+
+import org.mafagafogigante.dungeon.entity.Luminosity;
+import org.mafagafogigante.dungeon.entity.items.Item;
+import org.mafagafogigante.dungeon.game.RandomSource;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Everything an AttackAlgorithm needs besides the two creatures: a source of randomness, the luminosity under which
+ * creatures fight and somewhere to report what happened.
+ *
+ * <p>The game uses WorldAttackEnvironment. Other implementations allow attacks to be rendered outside of a game.
+ */
+interface AttackEnvironment {
+
+  /**
+   * Returns the RandomSource from which the outcome of attacks is drawn.
+   */
+  RandomSource getRandomSource();
+
+  /**
+   * Returns the luminosity under which the specified creature is fighting.
+   */
+  Luminosity getLuminosity(@NotNull Creature creature);
+
+  /**
+   * Reports that the attacker inflicted damage to the defender.
+   *
+   * @param attacker the Creature that performed the attack
+   * @param hitDamage the damage inflicted by the attacker
+   * @param defender the target of the attack
+   * @param criticalHit a boolean indicating if the attack was a critical hit or not
+   */
+  void writeInflictedDamage(Creature attacker, int hitDamage, Creature defender, boolean criticalHit);
+
+  /**
+   * Reports that the attacker missed.
+   */
+  void writeMiss(Creature attacker);
+
+  /**
+   * Reports that a weapon broke.
+   *
+   * @param weapon the weapon that broke, should be broken
+   */
+  void writeWeaponBreak(Item weapon);
+
+  /**
+   * Reports that the attacker did something other than attacking, such as "stands still".
+   */
+  void writeAction(Creature attacker, String action);
+
+}
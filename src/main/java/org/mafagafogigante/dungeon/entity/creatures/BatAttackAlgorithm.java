@@ -36,14 +36,14 @@ class BatAttackAlgorithm extends SimpleAttackAlgorithm {
   private static final double BAT_MIN_CRITICAL_CHANCE = 0.0;
 
   @Override
-  Percentage getHitRate(@NotNull Creature creature) {
-    Percentage luminosity = creature.getLocation().getLuminosity().toPercentage();
+  Percentage getHitRate(@NotNull Creature creature, @NotNull AttackEnvironment environment) {
+    Percentage luminosity = environment.getLuminosity(creature).toPercentage();
     return new Percentage(DungeonMath.weightedAverage(BAT_MAX_HIT_RATE, BAT_MIN_HIT_RATE, luminosity));
   }
 
   @Override
-  Percentage getCriticalChance(@NotNull Creature creature) {
-    Percentage luminosity = creature.getLocation().getLuminosity().toPercentage();
+  Percentage getCriticalChance(@NotNull Creature creature, @NotNull AttackEnvironment environment) {
+    Percentage luminosity = environment.getLuminosity(creature).toPercentage();
     return new Percentage(DungeonMath.weightedAverage(BAT_MAX_CRITICAL_CHANCE, BAT_MIN_CRITICAL_CHANCE, luminosity));
   }
 
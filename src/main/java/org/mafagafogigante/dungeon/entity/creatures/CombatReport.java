@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.entity.creatures;
+
+import java.util.Locale;
+
+/**
+ * The aggregated outcome of many simulated fights between the same two combatants under the same luminosity.
+ *
+ * <p>Not thread-safe: each worker of CombatSimulator fills its own CombatReport and the reports are merged afterwards.
+ */
+final class CombatReport {
+
+  private final long[] turnsToKill;
+  private long firstWins;
+  private long secondWins;
+  private long draws;
+  private long firstWeaponBreaks;
+  private long secondWeaponBreaks;
+
+  /**
+   * Makes an empty CombatReport for fights that last at most the specified number of turns.
+   */
+  CombatReport(int maximumTurns) {
+    turnsToKill = new long[maximumTurns + 1];
+  }
+
+  /**
+   * Records a fight that ended with the death of one of the combatants.
+   *
+   * @param firstWon whether or not the first combatant survived
+   * @param turns how many turns the fight took, positive and not bigger than the maximum
+   */
+  void recordKill(boolean firstWon, int turns) {
+    if (firstWon) {
+      firstWins++;
+    } else {
+      secondWins++;
+    }
+    turnsToKill[turns]++;
+  }
+
+  /**
+   * Records a fight that reached the maximum number of turns with both combatants alive.
+   */
+  void recordDraw() {
+    draws++;
+  }
+
+  /**
+   * Records which weapons broke during a fight.
+   */
+  void recordWeaponBreaks(boolean firstWeaponBroke, boolean secondWeaponBroke) {
+    if (firstWeaponBroke) {
+      firstWeaponBreaks++;
+    }
+    if (secondWeaponBroke) {
+      secondWeaponBreaks++;
+    }
+  }
+
+  /**
+   * Adds all the fights of another CombatReport to this one.
+   */
+  void merge(CombatReport report) {
+    if (report.turnsToKill.length != turnsToKill.length) {
+      throw new IllegalArgumentException("report has a different maximum number of turns.");
+    }
+    for (int i = 0; i < turnsToKill.length; i++) {
+      turnsToKill[i] += report.turnsToKill[i];
+    }
+    firstWins += report.firstWins;
+    secondWins += report.secondWins;
+    draws += report.draws;
+    firstWeaponBreaks += report.firstWeaponBreaks;
+    secondWeaponBreaks += report.secondWeaponBreaks;
+  }
+
+  long getFights() {
+    return firstWins + secondWins + draws;
+  }
+
+  long getFirstWins() {
+    return firstWins;
+  }
+
+  long getSecondWins() {
+    return secondWins;
+  }
+
+  long getDraws() {
+    return draws;
+  }
+
+  long getFirstWeaponBreaks() {
+    return firstWeaponBreaks;
+  }
+
+  long getSecondWeaponBreaks() {
+    return secondWeaponBreaks;
+  }
+
+  /**
+   * Returns the average number of turns of the fights that ended with a kill, or zero if there were none.
+   */
+  double getMeanTurnsToKill() {
+    long kills = 0;
+    long sum = 0;
+    for (int turns = 0; turns < turnsToKill.length; turns++) {
+      kills += turnsToKill[turns];
+      sum += turns * turnsToKill[turns];
+    }
+    return kills == 0 ? 0 : sum / (double) kills;
+  }
+
+  /**
+   * Returns the smallest number of turns within which the specified fraction of the kills happened, or zero if there
+   * were no kills.
+   *
+   * @param fraction a double in the range (0, 1]
+   */
+  int getTurnsToKillPercentile(double fraction) {
+    long kills = firstWins + secondWins;
+    long target = (long) Math.ceil(fraction * kills);
+    long accumulated = 0;
+    for (int turns = 0; turns < turnsToKill.length; turns++) {
+      accumulated += turnsToKill[turns];
+      if (accumulated > 0 && accumulated >= target) {
+        return turns;
+      }
+    }
+    return 0;
+  }
+
+  private double rate(long count) {
+    long fights = getFights();
+    return fights == 0 ? 0 : 100.0 * count / fights;
+  }
+
+  /**
+   * Formats this report as a single line, using the provided names for the combatants.
+   */
+  String format(String first, String second) {
+    String format = "%s wins %.2f%%, %s wins %.2f%%, draws %.2f%%; turns to kill: mean %.2f, median %d, 90th %d, " +
+        "99th %d; weapon breaks: %s %.2f%%, %s %.2f%%";
+    return String.format(Locale.US, format, first, rate(firstWins), second, rate(secondWins), rate(draws),
+        getMeanTurnsToKill(), getTurnsToKillPercentile(0.5), getTurnsToKillPercentile(0.9),
+        getTurnsToKillPercentile(0.99), first, rate(firstWeaponBreaks), second, rate(secondWeaponBreaks));
+  }
+
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.entity.creatures;
+
+import org.mafagafogigante.dungeon.date.Date;
+import org.mafagafogigante.dungeon.entity.Luminosity;
+import org.mafagafogigante.dungeon.entity.items.CreatureInventory.SimulationResult;
+import org.mafagafogigante.dungeon.entity.items.Item;
+import org.mafagafogigante.dungeon.entity.items.ItemFactory;
+import org.mafagafogigante.dungeon.game.Id;
+import org.mafagafogigante.dungeon.game.PartOfDay;
+import org.mafagafogigante.dungeon.game.RandomSource;
+import org.mafagafogigante.dungeon.game.SeededRandom;
+import org.mafagafogigante.dungeon.logging.DungeonLogger;
+import org.mafagafogigante.dungeon.util.Percentage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+/**
+ * Plays many fights between two creature presets using the attack algorithms of the game, without a game, so that the
+ * presets can be balanced.
+ *
+ * <p>Usage: {@code CombatSimulator CREATURE[:WEAPON] CREATURE[:WEAPON] [FIGHTS] [SEED]}, where the creatures and the
+ * weapons are preset IDs and FIGHTS is the number of fights per part of the day. For instance, {@code mvn exec:java
+ * -Dexec.mainClass=org.mafagafogigante.dungeon.entity.creatures.CombatSimulator -Dexec.args="HERO:AXE ORC 1000000"}.
+ *
+ * <p>The first creature always attacks first, as the Hero does in the game. Fights happen in an open field with
+ * nothing but the two creatures, so the luminosity is the one of the part of the day plus the one of the creatures.
+ * The fights are spread across all available processors, each worker with its own stream split from a SeededRandom.
+ */
+public final class CombatSimulator {
+
+  private static final int DEFAULT_FIGHTS = 1000000;
+  // Fights in which no creature dies after this many turns, such as the ones between critters, are draws.
+  private static final int MAXIMUM_TURNS = 1000;
+  private static final Date DATE = new Date(2055, 6, 2, 6, 10, 0);
+
+  private final Combatant first;
+  private final Combatant second;
+
+  CombatSimulator(@NotNull Combatant first, @NotNull Combatant second) {
+    this.first = first;
+    this.second = second;
+  }
+
+  /**
+   * Runs the simulator from the command line.
+   */
+  public static void main(String[] args) throws InterruptedException, ExecutionException {
+    if (args.length < 2 || args.length > 4) {
+      System.err.println("Usage: CombatSimulator CREATURE[:WEAPON] CREATURE[:WEAPON] [FIGHTS] [SEED]");
+      System.exit(1);
+    }
+    DungeonLogger.setLevel(Level.WARNING);
+    Combatant first = Combatant.fromString(args[0]);
+    Combatant second = Combatant.fromString(args[1]);
+    int fights = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_FIGHTS;
+    long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+    int threads = Runtime.getRuntime().availableProcessors();
+    CombatSimulator simulator = new CombatSimulator(first, second);
+    System.out.println(String.format("%s versus %s, %d fights per part of the day, %d threads, seed %d.", first, second,
+        fights, threads, seed));
+    for (PartOfDay partOfDay : PartOfDay.values()) {
+      CombatReport report = simulator.simulate(partOfDay, fights, threads, seed);
+      System.out.println(partOfDay + ": " + report.format(first.toString(), second.toString()));
+    }
+  }
+
+  /**
+   * Plays the specified number of fights during a part of the day. The result only depends on the arguments.
+   *
+   * @param partOfDay the PartOfDay that determines the luminosity of the sky
+   * @param fights the number of fights, nonnegative
+   * @param threads the number of workers, positive
+   * @param seed the seed from which the seeds of the workers are derived
+   * @return a CombatReport with all the fights
+   */
+  CombatReport simulate(PartOfDay partOfDay, int fights, int threads, long seed)
+      throws InterruptedException, ExecutionException {
+    if (fights < 0) {
+      throw new IllegalArgumentException("fights should be nonnegative.");
+    }
+    if (threads <= 0) {
+      throw new IllegalArgumentException("threads should be positive.");
+    }
+    RandomSource seeds = new SeededRandom(seed);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<CombatReport>> futures = new ArrayList<Future<CombatReport>>(threads);
+      for (int i = 0; i < threads; i++) {
+        // Distribute the remainder among the first workers.
+        int share = fights / threads + (i < fights % threads ? 1 : 0);
+        futures.add(executor.submit(new Worker(partOfDay, share, seeds.split())));
+      }
+      CombatReport report = new CombatReport(MAXIMUM_TURNS);
+      for (Future<CombatReport> future : futures) {
+        report.merge(future.get());
+      }
+      return report;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * A creature preset and, optionally, the weapon it fights with instead of the one of its preset.
+   */
+  static final class Combatant {
+
+    private final Id creatureId;
+    private final Id weaponId;
+
+    /**
+     * Makes a new Combatant, checking that the presets exist.
+     *
+     * @param creatureId the ID of a creature preset, not null
+     * @param weaponId the ID of an item preset or null to use the weapon of the creature preset
+     */
+    Combatant(@NotNull Id creatureId, Id weaponId) {
+      this.creatureId = creatureId;
+      this.weaponId = weaponId;
+      if (CreatureFactory.makeCreature(creatureId, DATE) == null) {
+        throw new IllegalArgumentException(creatureId + " does not correspond to a CreaturePreset.");
+      }
+      if (weaponId != null) {
+        ItemFactory.makeItem(weaponId, DATE); // Throws if there is no such preset.
+      }
+    }
+
+    /**
+     * Parses a Combatant from a string such as "ORC" or "HERO:AXE".
+     */
+    static Combatant fromString(String string) {
+      String[] parts = string.split(":");
+      if (parts.length > 2) {
+        throw new IllegalArgumentException("invalid combatant: " + string + ".");
+      }
+      return new Combatant(new Id(parts[0]), parts.length == 2 ? new Id(parts[1]) : null);
+    }
+
+    Creature makeCreature() {
+      Creature creature = CreatureFactory.makeCreature(creatureId, DATE);
+      if (weaponId != null) {
+        Item weapon = ItemFactory.makeItem(weaponId, DATE);
+        SimulationResult result = creature.getInventory().simulateItemAddition(weapon);
+        if (result != SimulationResult.SUCCESSFUL) {
+          throw new IllegalStateException("could not give " + weaponId + " to " + creatureId + ": " + result + ".");
+        }
+        creature.getInventory().addItem(weapon);
+        creature.setWeapon(weapon);
+      }
+      return creature;
+    }
+
+    @Override
+    public String toString() {
+      return weaponId == null ? creatureId.toString() : creatureId + " with " + weaponId;
+    }
+
+  }
+
+  /**
+   * Plays a share of the fights with its own random stream.
+   */
+  private final class Worker implements Callable<CombatReport>, AttackEnvironment {
+
+    private final PartOfDay partOfDay;
+    private final int fights;
+    private final RandomSource random;
+    private Creature firstCreature;
+    private Creature secondCreature;
+
+    Worker(PartOfDay partOfDay, int fights, RandomSource random) {
+      this.partOfDay = partOfDay;
+      this.fights = fights;
+      this.random = random;
+    }
+
+    @Override
+    public CombatReport call() {
+      CombatReport report = new CombatReport(MAXIMUM_TURNS);
+      for (int i = 0; i < fights; i++) {
+        fight(report);
+      }
+      return report;
+    }
+
+    /**
+     * Plays a single fight, in the same order as Engine.battle.
+     */
+    private void fight(CombatReport report) {
+      firstCreature = first.makeCreature();
+      secondCreature = second.makeCreature();
+      Item firstWeapon = firstCreature.getWeapon();
+      Item secondWeapon = secondCreature.getWeapon();
+      int turns = 0;
+      while (bothAlive() && turns < MAXIMUM_TURNS) {
+        AttackAlgorithms.renderAttack(firstCreature, secondCreature, this);
+        turns++;
+        if (bothAlive()) {
+          AttackAlgorithms.renderAttack(secondCreature, firstCreature, this);
+          turns++;
+        }
+      }
+      if (bothAlive()) {
+        report.recordDraw();
+      } else {
+        report.recordKill(firstCreature.getHealth().isAlive(), turns);
+      }
+      boolean firstWeaponBroke = firstWeapon != null && firstWeapon.isBroken();
+      boolean secondWeaponBroke = secondWeapon != null && secondWeapon.isBroken();
+      report.recordWeaponBreaks(firstWeaponBroke, secondWeaponBroke);
+    }
+
+    private boolean bothAlive() {
+      return firstCreature.getHealth().isAlive() && secondCreature.getHealth().isAlive();
+    }
+
+    @Override
+    public RandomSource getRandomSource() {
+      return random;
+    }
+
+    @Override
+    public Luminosity getLuminosity(@NotNull Creature creature) {
+      double fromCreatures = firstCreature.getLuminosity().toPercentage().toDouble();
+      fromCreatures += secondCreature.getLuminosity().toPercentage().toDouble();
+      double fromTheSky = partOfDay.getLuminosity().toPercentage().toDouble();
+      return new Luminosity(new Percentage(Math.min(Math.min(fromCreatures, 1.0) + fromTheSky, 1.0)));
+    }
+
+    @Override
+    public void writeInflictedDamage(Creature attacker, int hitDamage, Creature defender, boolean criticalHit) {
+    }
+
+    @Override
+    public void writeMiss(Creature attacker) {
+    }
+
+    @Override
+    public void writeWeaponBreak(Item weapon) {
+    }
+
+    @Override
+    public void writeAction(Creature attacker, String action) {
+    }
+
+  }
+
+}
@@ -116,6 +116,7 @@ public class Creature extends Entity {
     if (inventory.hasItem(weapon)) {
       if (weapon.hasTag(Item.Tag.WEAPON)) {
         this.weapon = weapon;
+        invalidateLocationLuminosity();
       } else {
         DungeonLogger.warning(String.format("Tried to equip %s (no WEAPON tag) on %s.", weapon.getName(), getName()));
       }
@@ -129,6 +130,16 @@ public class Creature extends Entity {
    */
   public void unsetWeapon() {
     this.weapon = null;
+    invalidateLocationLuminosity();
+  }
+
+  /**
+   * The luminosity of a creature depends on its weapon, so its location must discard the luminosity it cached.
+   */
+  private void invalidateLocationLuminosity() {
+    if (location != null) {
+      location.invalidateLuminosity();
+    }
   }
 
   public Location getLocation() {
@@ -66,7 +66,7 @@ public final class CreatureFactory {
     for (JsonValue value : object.get("creatures").asArray()) {
       JsonObject presetObject = value.asObject();
       CreaturePreset preset = new CreaturePreset();
-      preset.setId(new Id(presetObject.get("id").asString()));
+      preset.setId(new Id(presetObject.get("id").asString()).intern());
       preset.setType(presetObject.get("type").asString());
       preset.setName(NameFactory.fromJsonObject(presetObject.get("name").asObject()));
       if (presetObject.get("tags") != null) {
@@ -136,7 +136,7 @@ public final class CreatureFactory {
     } else {
       List<Id> list = new ArrayList<Id>();
       for (JsonValue value : object.get("inventory").asArray()) {
-        list.add(new Id(value.asString()));
+        list.add(new Id(value.asString()).intern());
       }
       return list;
     }
@@ -149,7 +149,8 @@ public final class CreatureFactory {
       List<Drop> list = new ArrayList<Drop>();
       for (JsonValue value : object.get("drops").asArray()) {
         JsonArray dropArray = value.asArray();
-        list.add(new Drop(new Id(dropArray.get(0).asString()), new Percentage(dropArray.get(1).asDouble())));
+        Id id = new Id(dropArray.get(0).asString()).intern();
+        list.add(new Drop(id, new Percentage(dropArray.get(1).asDouble())));
       }
       return list;
     }
@@ -172,7 +173,7 @@ public final class CreatureFactory {
   private static void setWeaponIfPreset(CreaturePreset preset, JsonObject presetObject) {
     String weapon = getStringFromJsonObject(presetObject, "weapon");
     if (weapon != null) {
-      preset.setWeaponId(new Id(weapon));
+      preset.setWeaponId(new Id(weapon).intern());
     }
   }
 
@@ -201,6 +202,49 @@ public final class CreatureFactory {
     }
   }
 
+  /**
+   * Attempts to create a creature from the CreaturePreset specified by an ID without adding it to the statistics, so
+   * that no game is needed. Returns null if no preset was found.
+   *
+   * @param date the Date when the Items the creature has were created
+   */
+  static Creature makeCreature(Id id, Date date) {
+    CreaturePreset preset = creaturePresetMap.get(id);
+    if (preset != null) {
+      Creature creature = new Creature(preset);
+      giveItems(creature, date);
+      return creature;
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Attempts to create the specified amount of creatures from the CreaturePreset specified by an ID. Returns null if no
+   * preset was found.
+   *
+   * <p>Equivalent to calling makeCreature repeatedly, but the preset is only looked up once and the statistics are
+   * updated once for all the creatures.
+   */
+  public static List<Creature> makeCreatures(Id id, int amount) {
+    CreaturePreset preset = creaturePresetMap.get(id);
+    if (preset == null) {
+      return null;
+    }
+    List<Creature> creatures = new ArrayList<Creature>(amount);
+    Date date = Game.getGameState().getWorld().getWorldDate();
+    for (int i = 0; i < amount; i++) {
+      Creature creature = new Creature(preset);
+      giveItems(creature, date);
+      creatures.add(creature);
+    }
+    if (amount > 0) {
+      String name = creatures.get(0).getName().getSingular();
+      Game.getGameState().getStatistics().getWorldStatistics().addSpawns(name, amount);
+    }
+    return creatures;
+  }
+
   /**
    * Creates the Hero.
    *
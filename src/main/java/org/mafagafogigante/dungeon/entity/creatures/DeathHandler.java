@@ -35,6 +35,9 @@ final class DeathHandler {
       throw new IllegalStateException("creature is alive.");
     }
     Location defeatedLocation = creature.getLocation();
+    if (defeatedLocation == null) { // Creatures fighting outside of the world, such as in CombatSimulator.
+      return;
+    }
     defeatedLocation.removeCreature(creature);
     if (creature.hasTag(Creature.Tag.CORPSE)) {
       Item item = ItemFactory.makeCorpse(creature, defeatedLocation.getWorld().getWorldDate());
@@ -18,7 +18,7 @@
 package org.mafagafogigante.dungeon.entity.creatures;
 
 import org.mafagafogigante.dungeon.game.Id;
-import org.mafagafogigante.dungeon.game.Random;
+import org.mafagafogigante.dungeon.game.RandomSource;
 import org.mafagafogigante.dungeon.util.Percentage;
 
 import java.io.Serializable;
@@ -40,8 +40,8 @@ class Drop implements Serializable {
     return itemId;
   }
 
-  public boolean rollForDrop() {
-    return Random.roll(probability);
+  public boolean rollForDrop(RandomSource random) {
+    return random.roll(probability);
   }
 
   @Override
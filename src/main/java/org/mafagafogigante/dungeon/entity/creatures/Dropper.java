@@ -19,6 +19,8 @@ package org.mafagafogigante.dungeon.entity.creatures;
 
 import org.mafagafogigante.dungeon.entity.items.Item;
 import org.mafagafogigante.dungeon.entity.items.ItemFactory;
+import org.mafagafogigante.dungeon.game.Random;
+import org.mafagafogigante.dungeon.game.RandomSource;
 import org.mafagafogigante.dungeon.logging.DungeonLogger;
 
 import org.jetbrains.annotations.NotNull;
@@ -69,8 +71,9 @@ class Dropper implements Serializable {
   }
 
   private void dropVariableDrops() {
+    RandomSource random = Random.getSource();
     for (Drop drop : dropList) {
-      if (drop.rollForDrop()) {
+      if (drop.rollForDrop(random)) {
         Item item = ItemFactory.makeItem(drop.getItemId(), creature.getLocation().getWorld().getWorldDate());
         if (item != null) {
           creature.getLocation().addItem(item);
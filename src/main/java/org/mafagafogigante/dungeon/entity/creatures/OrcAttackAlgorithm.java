@@ -33,7 +33,7 @@ class OrcAttackAlgorithm extends SimpleAttackAlgorithm {
   private static final double MAX_CRITICAL_CHANCE = 0.5;
 
   @Override
-  Percentage getCriticalChance(@NotNull Creature creature) {
+  Percentage getCriticalChance(@NotNull Creature creature, @NotNull AttackEnvironment environment) {
     Percentage healthiness = creature.getHealth().toPercentage();
     return new Percentage(DungeonMath.weightedAverage(MAX_CRITICAL_CHANCE, MIN_CRITICAL_CHANCE, healthiness));
   }
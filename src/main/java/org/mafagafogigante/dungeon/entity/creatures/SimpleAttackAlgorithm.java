@@ -18,7 +18,6 @@
 package org.mafagafogigante.dungeon.entity.creatures;
 
 import org.mafagafogigante.dungeon.entity.items.Item;
-import org.mafagafogigante.dungeon.game.Random;
 import org.mafagafogigante.dungeon.stats.CauseOfDeath;
 import org.mafagafogigante.dungeon.stats.TypeOfCauseOfDeath;
 import org.mafagafogigante.dungeon.util.Percentage;
@@ -45,7 +44,7 @@ class SimpleAttackAlgorithm implements AttackAlgorithm {
    * Retrieves the hit rate of a creature. The implementation provided by SimpleAttackAlgorithm uses a default hit rate
    * if the creature is not equipping an unbroken weapon. Otherwise the hit rate of the weapon is used.
    */
-  Percentage getHitRate(@NotNull Creature creature) {
+  Percentage getHitRate(@NotNull Creature creature, @NotNull AttackEnvironment environment) {
     if (isEquippingUnbrokenWeapon(creature)) {
       return creature.getWeapon().getWeaponComponent().getHitRate();
     } else {
@@ -57,24 +56,26 @@ class SimpleAttackAlgorithm implements AttackAlgorithm {
    * Retrieves the critical chance of a creature. The implementation provided by SimpleAttackAlgorithm just uses a 10%
    * default critical chance.
    */
-  Percentage getCriticalChance(@NotNull Creature creature) {
+  Percentage getCriticalChance(@NotNull Creature creature, @NotNull AttackEnvironment environment) {
     return DEFAULT_CRITICAL_CHANCE;
   }
 
-  public void renderAttack(@NotNull Creature attacker, @NotNull Creature defender) {
-    if (Random.roll(getHitRate(attacker))) {
+  @Override
+  public void renderAttack(@NotNull Creature attacker, @NotNull Creature defender,
+      @NotNull AttackEnvironment environment) {
+    if (environment.getRandomSource().roll(getHitRate(attacker, environment))) {
       int damage = attacker.getAttack();
       boolean attackerIsEquippingUnbrokenWeapon = isEquippingUnbrokenWeapon(attacker);
       if (attackerIsEquippingUnbrokenWeapon) {
         damage += attacker.getWeapon().getWeaponComponent().getDamage();
       }
-      boolean isCriticalHit = Random.roll(getCriticalChance(attacker));
+      boolean isCriticalHit = environment.getRandomSource().roll(getCriticalChance(attacker, environment));
       if (isCriticalHit) {
         damage *= 2;
       }
       // Decrement the health of the defender.
       defender.getHealth().decrementBy(damage);
-      AttackAlgorithmWriter.writeInflictedDamage(attacker, damage, defender, isCriticalHit);
+      environment.writeInflictedDamage(attacker, damage, defender, isCriticalHit);
       // Respect the contract: If the defender is dead, set its cause of death.
       if (defender.getHealth().isDead()) {
         if (attackerIsEquippingUnbrokenWeapon) {
@@ -88,11 +89,11 @@ class SimpleAttackAlgorithm implements AttackAlgorithm {
         Item weapon = attacker.getWeapon();
         weapon.decrementIntegrityByHit();
         if (weapon.isBroken()) {
-          AttackAlgorithmWriter.writeWeaponBreak(weapon);
+          environment.writeWeaponBreak(weapon);
         }
       }
     } else {
-      AttackAlgorithmWriter.writeMiss(attacker);
+      environment.writeMiss(attacker);
     }
   }
 
@@ -17,31 +17,41 @@
 
 package org.mafagafogigante.dungeon.entity.creatures;
 
+import org.mafagafogigante.dungeon.entity.Luminosity;
 import org.mafagafogigante.dungeon.entity.items.Item;
 import org.mafagafogigante.dungeon.game.DungeonString;
 import org.mafagafogigante.dungeon.game.Game;
+import org.mafagafogigante.dungeon.game.Random;
+import org.mafagafogigante.dungeon.game.RandomSource;
 import org.mafagafogigante.dungeon.io.Writer;
 
+import org.jetbrains.annotations.NotNull;
+
 import java.awt.Color;
 
 /**
- * This class is uninstantiable and provides utility IO methods for AttackAlgorithm implementations.
+ * The AttackEnvironment of the game: it uses the RandomSource of the current thread, the luminosity of the location of
+ * the creatures and writes what happens to the screen.
  */
-final class AttackAlgorithmWriter {
+final class WorldAttackEnvironment implements AttackEnvironment {
+
+  static final WorldAttackEnvironment INSTANCE = new WorldAttackEnvironment();
+
+  private WorldAttackEnvironment() {
+  }
 
-  private AttackAlgorithmWriter() { // Ensure that this class cannot be instantiated.
-    throw new AssertionError();
+  @Override
+  public RandomSource getRandomSource() {
+    return Random.getSource();
   }
 
-  /**
-   * Writes a message about the inflicted damage based on the parameters.
-   *
-   * @param attacker the Creature that performed the attack
-   * @param hitDamage the damage inflicted by the attacker
-   * @param defender the target of the attack
-   * @param criticalHit a boolean indicating if the attack was a critical hit or not
-   */
-  static void writeInflictedDamage(Creature attacker, int hitDamage, Creature defender, boolean criticalHit) {
+  @Override
+  public Luminosity getLuminosity(@NotNull Creature creature) {
+    return creature.getLocation().getLuminosity();
+  }
+
+  @Override
+  public void writeInflictedDamage(Creature attacker, int hitDamage, Creature defender, boolean criticalHit) {
     DungeonString string = new DungeonString();
     string.setColor(attacker.getId().equals(Game.getGameState().getHero().getId()) ? Color.GREEN : Color.RED);
     string.append(attacker.getName().getSingular());
@@ -59,25 +69,22 @@ final class AttackAlgorithmWriter {
     Writer.writeAndWait(string);
   }
 
-  /**
-   * Writes a miss message.
-   *
-   * @param attacker the attacker creature
-   */
-  static void writeMiss(Creature attacker) {
+  @Override
+  public void writeMiss(Creature attacker) {
     Writer.writeAndWait(new DungeonString(attacker.getName() + " missed.\n", Color.YELLOW));
   }
 
-  /**
-   * Writes a weapon breakage message.
-   *
-   * @param weapon the weapon that broke, should be broken
-   */
-  static void writeWeaponBreak(Item weapon) {
+  @Override
+  public void writeWeaponBreak(Item weapon) {
     if (!weapon.isBroken()) {
       throw new IllegalArgumentException("weapon is not broken.");
     }
     Writer.write(new DungeonString(weapon.getName() + " broke!\n", Color.RED));
   }
 
+  @Override
+  public void writeAction(Creature attacker, String action) {
+    Writer.writeAndWait(new DungeonString(attacker.getName() + " " + action + ".\n", Color.YELLOW));
+  }
+
 }
@@ -22,21 +22,49 @@ import org.mafagafogigante.dungeon.entity.items.Item.Tag;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 
 /**
  * The abstract BaseInventory class all inventories inherit from.
  */
 public abstract class BaseInventory implements Serializable {
 
-  final List<Item> items;
+  private final List<Item> items;
+  // The items that decompose, the one that decomposes first at the head.
+  private final PriorityQueue<Item> decomposingItems;
 
   BaseInventory() {
     items = new ArrayList<Item>();
+    decomposingItems = new PriorityQueue<Item>(1, new DecompositionTimeComparator());
   }
 
-  private static boolean isDecomposed(Item item) {
-    return (item.hasTag(Tag.DECOMPOSES) && item.getAge() >= item.getDecompositionPeriod());
+  /**
+   * Adds an Item to the lists of this inventory. Subclasses are responsible for checking whether it may be added.
+   */
+  void addToItems(Item item) {
+    items.add(item);
+    if (item.hasTag(Tag.DECOMPOSES)) {
+      decomposingItems.add(item);
+    }
+  }
+
+  /**
+   * Removes an Item from the lists of this inventory.
+   */
+  void removeFromItems(Item item) {
+    items.remove(item);
+    if (item.hasTag(Tag.DECOMPOSES)) {
+      decomposingItems.remove(item);
+    }
+  }
+
+  /**
+   * Called when the weight of an item of this inventory changes by the specified amount of kilograms. Inventories that
+   * keep a running weight total override this.
+   */
+  void notifyWeightChange(double delta) {
   }
 
   /**
@@ -72,14 +100,30 @@ public abstract class BaseInventory implements Serializable {
   protected abstract void removeItem(Item item);
 
   /**
-   * Iterates through the inventory, removing items that shouldn't exist anymore.
+   * Removes the items that have decomposed by the specified time. Only looks at the items that decompose first, so if
+   * no item has decomposed this takes constant time.
+   *
+   * @param currentTime the current world time, in milliseconds
+   */
+  public void refreshItems(long currentTime) {
+    while (!decomposingItems.isEmpty() && decomposingItems.peek().getDecompositionTime() <= currentTime) {
+      // The head of the queue is the first element the removal looks at.
+      removeItem(decomposingItems.peek());
+    }
+  }
+
+  /**
+   * Orders items by the time at which they decompose.
    */
-  public void refreshItems() {
-    for (Item item : new ArrayList<Item>(items)) {
-      if (isDecomposed(item)) {
-        removeItem(item);
-      }
+  private static class DecompositionTimeComparator implements Comparator<Item>, Serializable {
+
+    @Override
+    public int compare(Item first, Item second) {
+      long firstTime = first.getDecompositionTime();
+      long secondTime = second.getDecompositionTime();
+      return firstTime < secondTime ? -1 : (firstTime == secondTime ? 0 : 1);
     }
+
   }
 
 }
@@ -29,6 +29,9 @@ public class CreatureInventory extends BaseInventory implements LimitedInventory
   private final Creature owner;
   private final int itemLimit;
   private final Weight weightLimit;
+  // The sum of the weights of the items, in kilograms. Updated as items are added, removed or have their integrity
+  // changed so that weight checks do not iterate over the items.
+  private double weight;
 
   /**
    * Constructs a new CreatureInventory.
@@ -53,11 +56,12 @@ public class CreatureInventory extends BaseInventory implements LimitedInventory
    * Retrieves the sum of the weights of the individual items on this inventory.
    */
   public Weight getWeight() {
-    Weight sum = Weight.ZERO;
-    for (Item item : getItems()) {
-      sum = sum.add(item.getWeight());
-    }
-    return sum;
+    return Weight.newInstance(Math.max(0, weight)); // Rounding could make an empty inventory slightly negative.
+  }
+
+  @Override
+  void notifyWeightChange(double delta) {
+    weight += delta;
   }
 
   /**
@@ -67,7 +71,8 @@ public class CreatureInventory extends BaseInventory implements LimitedInventory
    */
   public void addItem(Item item) {
     if (simulateItemAddition(item) == SimulationResult.SUCCESSFUL) {
-      items.add(item);
+      addToItems(item);
+      weight += item.getWeightValue();
       item.setInventory(this);
       String format = "Added %s to the inventory of %s.";
       DungeonLogger.fine(String.format(format, item.getQualifiedName(), owner));
@@ -101,7 +106,7 @@ public class CreatureInventory extends BaseInventory implements LimitedInventory
   }
 
   private boolean willExceedWeightLimitAfterAdding(Item item) {
-    return getWeight().add(item.getWeight()).compareTo(getWeightLimit()) > 0;
+    return weight + item.getWeightValue() > weightLimit.toDouble();
   }
 
   /**
@@ -113,7 +118,12 @@ public class CreatureInventory extends BaseInventory implements LimitedInventory
     if (owner.getWeapon() == item) {
       owner.unsetWeapon();
     }
-    items.remove(item);
+    removeFromItems(item);
+    if (getItemCount() == 0) {
+      weight = 0; // Discard any accumulated rounding error.
+    } else {
+      weight -= item.getWeightValue();
+    }
     item.setInventory(null);
     String format = "Removed %s from the inventory of %s.";
     DungeonLogger.fine(String.format(format, item.getQualifiedName(), owner));
@@ -18,6 +18,7 @@
 package org.mafagafogigante.dungeon.entity.items;
 
 import org.mafagafogigante.dungeon.date.Date;
+import org.mafagafogigante.dungeon.date.DungeonTimeUnit;
 import org.mafagafogigante.dungeon.date.Duration;
 import org.mafagafogigante.dungeon.entity.Entity;
 import org.mafagafogigante.dungeon.entity.LightSource;
@@ -83,6 +84,18 @@ public final class Item extends Entity {
     }
   }
 
+  /**
+   * Returns the same amount as getWeight, in kilograms, without allocating any objects.
+   */
+  double getWeightValue() {
+    double weight = super.getWeight().toDouble();
+    if (hasTag(Tag.WEIGHT_PROPORTIONAL_TO_INTEGRITY)) {
+      return weight * (integrity.getCurrent() / (double) integrity.getMaximum());
+    } else {
+      return weight;
+    }
+  }
+
   /**
    * Returns how many seconds have passed since this Item was created.
    *
@@ -169,6 +182,14 @@ public final class Item extends Entity {
     return decompositionPeriod;
   }
 
+  /**
+   * Returns the time, in milliseconds, at which this Item is old enough to decompose. Only meaningful if this Item has
+   * the DECOMPOSES tag.
+   */
+  public long getDecompositionTime() {
+    return dateOfCreation.getTime() + decompositionPeriod * DungeonTimeUnit.SECOND.milliseconds;
+  }
+
   @Override
   public Luminosity getLuminosity() {
     return lightSource.getLuminosity();
@@ -57,7 +57,7 @@ public abstract class ItemFactory {
     for (JsonValue value : objects.get("items").asArray()) {
       JsonObject itemObject = value.asObject();
       ItemPreset preset = new ItemPreset();
-      preset.setId(new Id(itemObject.get("id").asString()));
+      preset.setId(new Id(itemObject.get("id").asString()).intern());
       preset.setType(itemObject.get("type").asString());
       preset.setName(NameFactory.fromJsonObject(itemObject.get("name").asObject()));
       for (Item.Tag tag : tagSetFromArray(Item.Tag.class, itemObject.get("tags").asArray())) {
@@ -169,7 +169,7 @@ public abstract class ItemFactory {
    * Given a Creature ID, this method returns the corresponding corpse's ID.
    */
   public static Id makeCorpseIdFromCreatureId(Id id) {
-    return new Id(id + "_CORPSE");
+    return new Id(id + "_CORPSE").intern();
   }
 
   public static class InvalidTagException extends IllegalArgumentException {
@@ -75,7 +75,9 @@ public class ItemIntegrity implements Serializable {
    * @param amount a nonnegative integer
    */
   public void incrementBy(int amount) { // Convenience that avoids getIntegrity().getIntegrity() in the code.
+    double weightBefore = item.getWeightValue();
     integrity.incrementBy(amount);
+    notifyWeightChange(weightBefore);
   }
 
   /**
@@ -85,12 +87,24 @@ public class ItemIntegrity implements Serializable {
    * @param amount a nonnegative integer
    */
   public void decrementBy(int amount) { // Must exist. After delegating the decrement, this method checks for breakage.
+    double weightBefore = item.getWeightValue();
     integrity.decrementBy(amount);
+    notifyWeightChange(weightBefore);
     if (isBroken()) {
       BreakageHandler.handleBreakage(item);
     }
   }
 
+  /**
+   * Lets the inventory of the item know how much its weight changed, as the weight of some items depends on their
+   * integrity.
+   */
+  private void notifyWeightChange(double weightBefore) {
+    if (item.hasTag(Item.Tag.WEIGHT_PROPORTIONAL_TO_INTEGRITY) && item.getInventory() != null) {
+      item.getInventory().notifyWeightChange(item.getWeightValue() - weightBefore);
+    }
+  }
+
   @Override
   public String toString() {
     return "ItemIntegrity{" +
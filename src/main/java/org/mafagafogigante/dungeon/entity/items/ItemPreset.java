@@ -165,7 +165,7 @@ public final class ItemPreset implements Preset {
   }
 
   public void setSpellId(String spellIdString) {
-    this.spellId = new Id(spellIdString);
+    this.spellId = new Id(spellIdString).intern();
   }
 
   public String getText() {
@@ -23,12 +23,12 @@ package org.mafagafogigante.dungeon.entity.items;
 public class LocationInventory extends BaseInventory {
 
   public void addItem(Item item) {
-    items.add(item);
+    addToItems(item);
     item.setInventory(this);
   }
 
   public void removeItem(Item item) {
-    items.remove(item);
+    removeFromItems(item);
     item.setInventory(null);
   }
 
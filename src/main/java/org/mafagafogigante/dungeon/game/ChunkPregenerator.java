@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.logging.DungeonLogger;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Generates surface chunks on a background thread so that they are ready before the Hero walks into them.
+ *
+ * <p>The worker thread only stages GeneratedChunks. Every method of this class must be invoked from the thread that
+ * owns the World, which is also the only thread that adds the staged chunks to the World, once they are needed.
+ */
+final class ChunkPregenerator {
+
+  /**
+   * How many chunks around the chunk of the Hero are generated in advance. Can be set through the
+   * dungeon.pregeneration.radius system property. Zero disables pregeneration.
+   */
+  static final int DEFAULT_RADIUS = Math.max(0, Integer.getInteger("dungeon.pregeneration.radius", 2));
+
+  private final WorldGenerator generator;
+  private final ExecutorService executor;
+  private final Map<Long, Request> requests = new HashMap<Long, Request>();
+
+  ChunkPregenerator(WorldGenerator generator) {
+    this.generator = generator;
+    this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "Chunk Pregenerator");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Schedules the generation of a chunk, unless it has already been scheduled.
+   */
+  void request(final int chunkX, final int chunkY) {
+    long key = LocationChunk.makeKey(chunkX, chunkY, 0);
+    if (!requests.containsKey(key)) {
+      Future<GeneratedChunk> future = executor.submit(new Callable<GeneratedChunk>() {
+        @Override
+        public GeneratedChunk call() {
+          return generator.generateChunk(chunkX, chunkY);
+        }
+      });
+      requests.put(key, new Request(chunkX, chunkY, future));
+    }
+  }
+
+  /**
+   * Removes the request for the specified chunk and returns the generated chunk.
+   *
+   * <p>If the chunk was not requested or its generation did not start yet, returns null so that the caller generates
+   * it instead of waiting behind other requests. If the chunk is being generated, waits for it.
+   */
+  GeneratedChunk take(int chunkX, int chunkY) {
+    Request request = requests.remove(LocationChunk.makeKey(chunkX, chunkY, 0));
+    if (request == null || request.future.cancel(false)) {
+      return null;
+    }
+    return getResult(request);
+  }
+
+  /**
+   * Discards the requests for chunks that are farther than radius chunks from the specified chunk, cancelling the ones
+   * that have not been generated yet. Requests that are being generated are kept until they finish.
+   */
+  void discardFartherThan(int centerX, int centerY, int radius) {
+    Iterator<Request> iterator = requests.values().iterator();
+    while (iterator.hasNext()) {
+      Request request = iterator.next();
+      if (Math.max(Math.abs(request.chunkX - centerX), Math.abs(request.chunkY - centerY)) > radius) {
+        if (request.future.isDone() || request.future.cancel(false)) {
+          iterator.remove();
+        }
+      }
+    }
+  }
+
+  private static GeneratedChunk getResult(Request request) {
+    try {
+      return request.future.get();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException exception) {
+      DungeonLogger.logSevere(exception);
+      return null;
+    }
+  }
+
+  /**
+   * Stops the worker thread. Chunks that were not taken are discarded.
+   */
+  void shutdown() {
+    executor.shutdownNow();
+    requests.clear();
+  }
+
+  private static class Request {
+
+    private final int chunkX;
+    private final int chunkY;
+    private final Future<GeneratedChunk> future;
+
+    Request(int chunkX, int chunkY, Future<GeneratedChunk> future) {
+      this.chunkX = chunkX;
+      this.chunkY = chunkY;
+      this.future = future;
+    }
+
+  }
+
+}
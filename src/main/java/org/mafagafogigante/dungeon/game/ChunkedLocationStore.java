@@ -0,0 +1,580 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.entity.creatures.Hero;
+import org.mafagafogigante.dungeon.logging.DungeonLogger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Stores the Locations of a World in LocationChunks that are found through an open addressing hash table keyed by
+ * packed long chunk coordinates.
+ *
+ * <p>Retrieving and checking for Locations do not allocate any objects. Adding a Location only allocates when its chunk
+ * did not exist yet or when the table needs to grow.
+ *
+ * <p>At most a budget of chunks is kept in memory. When the budget is exceeded, the least recently used chunks are
+ * evicted to a RegionFile and they are transparently faulted back in when they are needed again. The chunks around
+ * the pinned chunk, which is the chunk of the Hero, are never evicted.
+ *
+ * <p>The chunks themselves are not part of the serialized form of the store, as they are saved separately by the
+ * SaveJournal. The store keeps track of which chunks changed since the game was last saved, so that only those need to
+ * be written to the journal. The chunks of a loaded game stay in their ChunkSource, which is the save file, until they
+ * are first needed.
+ */
+final class ChunkedLocationStore implements Serializable {
+
+  /**
+   * How many chunks are kept in memory by default. Can be set through the dungeon.chunks.budget system property.
+   */
+  static final int DEFAULT_CHUNK_BUDGET = Integer.getInteger("dungeon.chunks.budget", 4096);
+  // Enough for the pinned chunks of all levels and for the chunks that a single expansion may create.
+  private static final int MINIMUM_CHUNK_BUDGET = 32;
+  private static final int INITIAL_CAPACITY = 64; // Must be a power of two.
+
+  // Rough sizes used to estimate the memory footprint of the store, assuming a 64-bit JVM.
+  private static final int OBJECT_HEADER_SIZE = 16;
+  private static final int ARRAY_HEADER_SIZE = 16;
+  private static final int REFERENCE_SIZE = 8;
+  private static final int LONG_SIZE = 8;
+  private static final int INT_SIZE = 4;
+
+  private final RegionFile regionFile;
+  private transient long[] keys = new long[INITIAL_CAPACITY];
+  // A slot is free if and only if its chunk is null.
+  private transient LocationChunk[] chunks = new LocationChunk[INITIAL_CAPACITY];
+  private transient int residentChunkCount;
+  private int locationCount;
+  private int chunkBudget = Math.max(MINIMUM_CHUNK_BUDGET, DEFAULT_CHUNK_BUDGET);
+  private boolean pinned;
+  private int pinnedChunkX;
+  private int pinnedChunkY;
+
+  // The recency list of the resident chunks.
+  private transient LocationChunk newest;
+  private transient LocationChunk oldest;
+  private transient PagingStatistics pagingStatistics = new PagingStatistics();
+  // The keys of the chunks that changed since the game was last saved and that were evicted afterwards.
+  private transient Set<Long> dirtyEvictedKeys = new HashSet<Long>();
+  // The chunks of the save file this store was loaded from that were not needed yet, or null.
+  private transient ChunkSource savedChunks;
+
+  ChunkedLocationStore(@NotNull World world) {
+    regionFile = new RegionFile(world);
+  }
+
+  /**
+   * Spreads the bits of a packed key so that neighboring chunks do not cluster in the table.
+   */
+  private static int hash(long key) {
+    long hash = key;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return (int) hash;
+  }
+
+  /**
+   * Returns the index of the slot that holds the chunk with the specified key or the index of the free slot where it
+   * should be inserted.
+   */
+  private int findSlot(long key) {
+    int mask = chunks.length - 1;
+    int index = hash(key) & mask;
+    while (chunks[index] != null && keys[index] != key) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  /**
+   * Returns the chunk with the specified key, faulting it in if it was evicted, or null if there is no such chunk.
+   */
+  private LocationChunk getChunk(long key) {
+    LocationChunk chunk = chunks[findSlot(key)];
+    if (chunk == null) {
+      if (regionFile.contains(key)) {
+        chunk = faultIn(key);
+      } else if (savedChunks != null && savedChunks.contains(key)) {
+        chunk = faultInSaved(key);
+      }
+    } else {
+      touch(chunk);
+    }
+    return chunk;
+  }
+
+  private LocationChunk faultIn(long key) {
+    final long start = System.nanoTime();
+    LocationChunk chunk = regionFile.read(key);
+    chunk.setDirty(dirtyEvictedKeys.remove(key));
+    insert(chunk);
+    getPagingStatistics().recordFault(System.nanoTime() - start);
+    evictIfOverBudget(chunk);
+    return chunk;
+  }
+
+  /**
+   * Reads a chunk from the save file for the first time. It is not dirty, as it is still the same as in the save file.
+   */
+  private LocationChunk faultInSaved(long key) {
+    final long start = System.nanoTime();
+    LocationChunk chunk;
+    try {
+      chunk = regionFile.deserialize(key, savedChunks.read(key));
+    } catch (IOException exception) {
+      throw new IllegalStateException("failed to read chunk " + key + " from the save file.", exception);
+    }
+    insert(chunk);
+    getPagingStatistics().recordFault(System.nanoTime() - start);
+    evictIfOverBudget(chunk);
+    return chunk;
+  }
+
+  /**
+   * Checks if there is a chunk with the specified coordinates, in memory, in the region file or in the save file.
+   */
+  boolean containsChunk(int chunkX, int chunkY, int z) {
+    long key = LocationChunk.makeKey(chunkX, chunkY, z);
+    return chunks[findSlot(key)] != null || regionFile.contains(key) || isSaved(key);
+  }
+
+  private boolean isSaved(long key) {
+    return savedChunks != null && savedChunks.contains(key);
+  }
+
+  /**
+   * Returns the Location at the specified Point or null if there is no Location there.
+   */
+  Location get(@NotNull Point point) {
+    LocationChunk chunk = getChunk(LocationChunk.makeKeyForPoint(point.getX(), point.getY(), point.getZ()));
+    return chunk == null ? null : chunk.get(point.getX(), point.getY());
+  }
+
+  /**
+   * Checks if there is a Location at the specified Point.
+   */
+  boolean contains(@NotNull Point point) {
+    return get(point) != null;
+  }
+
+  /**
+   * Adds a Location to the store. There must not be a Location at the same Point already.
+   */
+  void put(@NotNull Location location) {
+    Point point = location.getPoint();
+    LocationChunk chunk = getChunk(LocationChunk.makeKeyForPoint(point.getX(), point.getY(), point.getZ()));
+    boolean created = chunk == null;
+    if (created) {
+      int chunkX = LocationChunk.toChunkCoordinate(point.getX());
+      int chunkY = LocationChunk.toChunkCoordinate(point.getY());
+      chunk = new LocationChunk(chunkX, chunkY, point.getZ());
+      insert(chunk);
+    }
+    chunk.put(location);
+    // Chunks that already existed get Locations too, such as the rooms of dungeons that cross chunk borders.
+    chunk.setDirty(true);
+    locationCount++;
+    if (created) {
+      evictIfOverBudget(chunk);
+    }
+  }
+
+  /**
+   * Adds a chunk to the table and makes it the newest chunk.
+   */
+  private void insert(LocationChunk chunk) {
+    int index = findSlot(chunk.getKey());
+    keys[index] = chunk.getKey();
+    chunks[index] = chunk;
+    residentChunkCount++;
+    linkAsNewest(chunk);
+    // Keep the load factor at or below one half so that probe sequences stay short.
+    if (2 * residentChunkCount > chunks.length) {
+      grow();
+    }
+  }
+
+  /**
+   * Doubles the capacity of the table, rehashing every chunk.
+   */
+  private void grow() {
+    long[] oldKeys = keys;
+    LocationChunk[] oldChunks = chunks;
+    keys = new long[oldKeys.length * 2];
+    chunks = new LocationChunk[oldChunks.length * 2];
+    for (int i = 0; i < oldChunks.length; i++) {
+      if (oldChunks[i] != null) {
+        int index = findSlot(oldKeys[i]);
+        keys[index] = oldKeys[i];
+        chunks[index] = oldChunks[i];
+      }
+    }
+  }
+
+  /**
+   * Removes the chunk in the specified slot, shifting back the chunks of the same probe sequence that follow it.
+   */
+  private void removeSlot(int index) {
+    int mask = chunks.length - 1;
+    int hole = index;
+    int current = (hole + 1) & mask;
+    while (chunks[current] != null) {
+      int ideal = hash(keys[current]) & mask;
+      // Moves the chunk to the hole if the hole lies between its ideal slot and its current slot.
+      if (((current - ideal) & mask) >= ((current - hole) & mask)) {
+        keys[hole] = keys[current];
+        chunks[hole] = chunks[current];
+        hole = current;
+      }
+      current = (current + 1) & mask;
+    }
+    chunks[hole] = null;
+    residentChunkCount--;
+  }
+
+  private void linkAsNewest(LocationChunk chunk) {
+    chunk.setOlder(newest);
+    chunk.setNewer(null);
+    if (newest != null) {
+      newest.setNewer(chunk);
+    }
+    newest = chunk;
+    if (oldest == null) {
+      oldest = chunk;
+    }
+  }
+
+  private void unlink(LocationChunk chunk) {
+    if (chunk.getNewer() != null) {
+      chunk.getNewer().setOlder(chunk.getOlder());
+    } else {
+      newest = chunk.getOlder();
+    }
+    if (chunk.getOlder() != null) {
+      chunk.getOlder().setNewer(chunk.getNewer());
+    } else {
+      oldest = chunk.getNewer();
+    }
+    chunk.setNewer(null);
+    chunk.setOlder(null);
+  }
+
+  private void touch(LocationChunk chunk) {
+    if (chunk != newest) {
+      unlink(chunk);
+      linkAsNewest(chunk);
+    }
+  }
+
+  private boolean isPinned(LocationChunk chunk) {
+    return pinned && Math.abs(chunk.getChunkX() - pinnedChunkX) <= 1 && Math.abs(chunk.getChunkY() - pinnedChunkY) <= 1;
+  }
+
+  /**
+   * Evicts the least recently used chunks that are not pinned until the budget is respected.
+   *
+   * @param keep a chunk that must not be evicted, as it is about to be used
+   */
+  private void evictIfOverBudget(LocationChunk keep) {
+    LocationChunk candidate = oldest;
+    while (residentChunkCount > chunkBudget && candidate != null) {
+      LocationChunk next = candidate.getNewer();
+      if (candidate != keep && !isPinned(candidate)) {
+        evict(candidate);
+      }
+      candidate = next;
+    }
+  }
+
+  private void evict(LocationChunk chunk) {
+    final long start = System.nanoTime();
+    regionFile.write(chunk);
+    if (chunk.isDirty()) {
+      dirtyEvictedKeys.add(chunk.getKey());
+    }
+    unlink(chunk);
+    removeSlot(findSlot(chunk.getKey()));
+    getPagingStatistics().recordEviction(System.nanoTime() - start);
+  }
+
+  /**
+   * Marks the chunk that contains the specified Point as changed since the game was last saved. Does nothing if the
+   * chunk is not in memory, as a chunk can only change while it is in memory.
+   */
+  void markDirty(@NotNull Point point) {
+    LocationChunk chunk = chunks[findSlot(LocationChunk.makeKeyForPoint(point.getX(), point.getY(), point.getZ()))];
+    if (chunk != null) {
+      chunk.setDirty(true);
+    }
+  }
+
+  /**
+   * Passes every chunk that changed since the game was last saved to the specified visitor, or every chunk if all is
+   * true. Resident chunks are passed in their serialized form, while evicted chunks are passed by where they are in the
+   * region file. The chunks that are still in the save file never changed, so they are only passed if all is true.
+   */
+  void visitChunks(@NotNull ChunkVisitor visitor, boolean all) throws IOException {
+    for (LocationChunk chunk : chunks) {
+      if (chunk != null && (all || chunk.isDirty())) {
+        visitor.visit(chunk.getKey(), regionFile.serialize(chunk));
+      }
+    }
+    if (all) {
+      for (long key : regionFile.getKeys()) {
+        visitor.visitEvicted(key, regionFile.getOffset(key), regionFile.getLength(key));
+      }
+      if (savedChunks != null) {
+        savedChunks.visit(visitor);
+      }
+    } else {
+      for (long key : dirtyEvictedKeys) {
+        visitor.visitEvicted(key, regionFile.getOffset(key), regionFile.getLength(key));
+      }
+    }
+  }
+
+  /**
+   * Opens a read-only handle to the region file, or returns null if nothing was evicted yet.
+   */
+  RandomAccessFile openRegionFileForReading() throws IOException {
+    return regionFile.openForReading();
+  }
+
+  /**
+   * Forgets which chunks changed, as they were just saved.
+   */
+  void clearDirtyChunks() {
+    for (LocationChunk chunk : chunks) {
+      if (chunk != null) {
+        chunk.setDirty(false);
+      }
+    }
+    dirtyEvictedKeys.clear();
+  }
+
+  /**
+   * Sets the source of the chunks of the save file this store was loaded from. Each chunk is read from it and removed
+   * from it the first time it is needed. The store closes the source when it no longer needs it.
+   */
+  void setSavedChunks(@NotNull ChunkSource source) {
+    if (residentChunkCount != 0 || regionFile.getChunkCount() != 0) {
+      throw new IllegalStateException("tried to set the saved chunks of a store that already has chunks.");
+    }
+    savedChunks = source;
+  }
+
+  /**
+   * Returns whether or not chunks that were not needed yet are still read from the specified save file.
+   */
+  boolean readsSavedChunksFrom(@NotNull File snapshot) {
+    return savedChunks != null && savedChunks.isBackedBy(snapshot);
+  }
+
+  /**
+   * Copies the chunks that are still in the save file to the region file and closes the save file, so that the save
+   * file can be replaced. The chunks are not deserialized.
+   */
+  void detachSavedChunks() throws IOException {
+    if (savedChunks != null) {
+      for (long key : savedChunks.getKeys()) {
+        regionFile.append(key, savedChunks.read(key));
+      }
+      closeSavedChunks();
+    }
+  }
+
+  private void closeSavedChunks() {
+    if (savedChunks != null) {
+      try {
+        savedChunks.close();
+      } catch (IOException exception) {
+        DungeonLogger.logSevere(exception);
+      }
+      savedChunks = null;
+    }
+  }
+
+  /**
+   * Reads the chunks of every level that are at most one chunk away from the specified chunk, so that they are in
+   * memory before they are needed.
+   */
+  void loadChunksAround(int chunkX, int chunkY, int z) {
+    for (int x = chunkX - 1; x <= chunkX + 1; x++) {
+      for (int y = chunkY - 1; y <= chunkY + 1; y++) {
+        getChunk(LocationChunk.makeKey(x, y, z));
+      }
+    }
+  }
+
+  /**
+   * Sets the Hero that replaces the markers in the chunks that are faulted in.
+   */
+  void setHero(Hero hero) {
+    regionFile.setHero(hero);
+  }
+
+  /**
+   * Pins the chunks of every level that are at most one chunk away from the specified chunk, so that they are not
+   * evicted. Only one chunk is pinned at a time.
+   */
+  void pin(int chunkX, int chunkY) {
+    pinned = true;
+    pinnedChunkX = chunkX;
+    pinnedChunkY = chunkY;
+  }
+
+  /**
+   * Sets how many chunks should be kept in memory, evicting chunks if needed.
+   */
+  void setChunkBudget(int chunkBudget) {
+    this.chunkBudget = Math.max(MINIMUM_CHUNK_BUDGET, chunkBudget);
+    evictIfOverBudget(null);
+  }
+
+  int getChunkBudget() {
+    return chunkBudget;
+  }
+
+  int getLocationCount() {
+    return locationCount;
+  }
+
+  /**
+   * Returns how many chunks exist, in memory, in the region file and in the save file.
+   */
+  int getChunkCount() {
+    return residentChunkCount + regionFile.getChunkCount() + getSavedChunkCount();
+  }
+
+  /**
+   * Returns how many chunks are still in the save file, as they were not needed since the game was loaded.
+   */
+  int getSavedChunkCount() {
+    return savedChunks == null ? 0 : savedChunks.getChunkCount();
+  }
+
+  int getResidentChunkCount() {
+    return residentChunkCount;
+  }
+
+  int getEvictedChunkCount() {
+    return regionFile.getChunkCount();
+  }
+
+  long getRegionFileLength() {
+    return regionFile.getFileLength();
+  }
+
+  PagingStatistics getPagingStatistics() {
+    if (pagingStatistics == null) {
+      pagingStatistics = new PagingStatistics();
+    }
+    return pagingStatistics;
+  }
+
+  /**
+   * Deletes the region file and closes the save file. The chunks that are not in memory are lost.
+   */
+  void deleteRegionFile() {
+    regionFile.delete();
+    closeSavedChunks();
+  }
+
+  /**
+   * Returns an estimate of how many bytes of memory are used by the store itself, including its resident chunks but not
+   * the Locations they hold.
+   */
+  long getMemoryFootprint() {
+    long footprint = OBJECT_HEADER_SIZE + 6 * REFERENCE_SIZE + 5 * INT_SIZE;
+    footprint += ARRAY_HEADER_SIZE + (long) keys.length * LONG_SIZE;
+    footprint += ARRAY_HEADER_SIZE + (long) chunks.length * REFERENCE_SIZE;
+    long chunkSize = OBJECT_HEADER_SIZE + 4 * INT_SIZE + 3 * REFERENCE_SIZE;
+    chunkSize += ARRAY_HEADER_SIZE + LocationChunk.getSlotCount() * REFERENCE_SIZE;
+    return footprint + residentChunkCount * chunkSize;
+  }
+
+  /**
+   * Starts without any chunks in memory, as the chunks are adopted from the save file after the store is read.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    keys = new long[INITIAL_CAPACITY];
+    chunks = new LocationChunk[INITIAL_CAPACITY];
+    dirtyEvictedKeys = new HashSet<Long>();
+  }
+
+  @Override
+  public String toString() {
+    String format = "ChunkedLocationStore{residentChunkCount=%d, evictedChunkCount=%d, locationCount=%d}";
+    return String.format(format, residentChunkCount, regionFile.getChunkCount(), locationCount);
+  }
+
+  /**
+   * Receives the chunks that are written to a save file.
+   */
+  interface ChunkVisitor {
+
+    void visit(long key, byte[] bytes) throws IOException;
+
+    void visitEvicted(long key, long offset, int length) throws IOException;
+
+    /**
+     * Receives a chunk that is still in a save file, by where its compressed record is.
+     */
+    void visitSaved(long key, File file, long offset, int length, int uncompressedLength) throws IOException;
+
+  }
+
+  /**
+   * The chunks of a save file that were not read yet.
+   */
+  interface ChunkSource {
+
+    boolean contains(long key);
+
+    /**
+     * Reads the serialized form of a chunk and removes it from the source.
+     */
+    byte[] read(long key) throws IOException;
+
+    long[] getKeys();
+
+    int getChunkCount();
+
+    boolean isBackedBy(File snapshot);
+
+    /**
+     * Passes every chunk of the source to the visitor without reading it.
+     */
+    void visit(ChunkVisitor visitor) throws IOException;
+
+    void close() throws IOException;
+
+  }
+
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.commands.IssuedCommand;
+import org.mafagafogigante.dungeon.logging.DungeonLogger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An append-only binary file with where a game started and every command accepted by it, from which the game can be
+ * replayed by the CommandReplayer.
+ *
+ * <p>The header holds the seed of the RandomSource of the GameState, the seed of its World and the settings that change
+ * how commands are executed. A game that was loaded also has the save it was loaded from, the lineage of the save and
+ * how many commands the game had accepted when it was saved. Its RandomSource is part of the save, so it is replayed
+ * from the save. Whenever the game is saved again, the file and the lineage of the save are recorded, so that a replay
+ * can start from the newest save of the session and only replay the commands that followed it.
+ *
+ * <p>Each command is written with the world date and the health of the Hero right after it was executed, so that a
+ * replay can tell where it diverged from the original session. The file is flushed after every record, so that a
+ * session can be recovered up to its last command if the game crashes.
+ *
+ * <p>Journals are written to the journals folder, unless the dungeon.journal system property is set to false.
+ */
+public final class CommandJournal {
+
+  /**
+   * The extension of command journals.
+   */
+  public static final String EXTENSION = ".commands";
+  private static final File JOURNALS_FOLDER = new File("journals/");
+  private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("dungeon.journal"));
+  private static final int MAGIC = 0x44434d44; // "DCMD"
+  private static final int VERSION = 2;
+  private static final int COMMAND = 1;
+  private static final int SAVE = 2;
+
+  private final File file;
+  private final Settings settings;
+  private final long randomSeed;
+  private final long worldSeed;
+  // The save the game was loaded from, or null for a new game.
+  private final File save;
+  private final int savedCommandCount;
+  // The lineages the save had during the session, starting with the one it was loaded from.
+  private final Set<Long> saveLineages = new HashSet<Long>();
+  private DataOutputStream out;
+
+  private CommandJournal(File file, Settings settings, long randomSeed, long worldSeed, File save,
+      int savedCommandCount, DataOutputStream out) {
+    this.file = file;
+    this.settings = settings;
+    this.randomSeed = randomSeed;
+    this.worldSeed = worldSeed;
+    this.save = save;
+    this.savedCommandCount = savedCommandCount;
+    this.out = out;
+  }
+
+  /**
+   * Starts a journal for a new game in the journals folder. Returns null if journals are disabled or if the journal
+   * could not be created, as the game does not depend on it.
+   *
+   * @param randomSeed the seed of the RandomSource the GameState was constructed with
+   * @param worldSeed the seed of the World of the GameState
+   */
+  public static CommandJournal start(long randomSeed, long worldSeed) {
+    File file = makeFile();
+    if (file == null) {
+      return null;
+    }
+    try {
+      return create(file, randomSeed, worldSeed);
+    } catch (IOException exception) {
+      DungeonLogger.logSevere(exception);
+      return null;
+    }
+  }
+
+  /**
+   * Starts a journal for a game that was just loaded in the journals folder. Returns null if journals are disabled or
+   * if the journal could not be created, as the game does not depend on it.
+   */
+  public static CommandJournal start(@NotNull GameState loaded) {
+    File file = makeFile();
+    if (file == null) {
+      return null;
+    }
+    try {
+      return create(file, loaded);
+    } catch (IOException exception) {
+      DungeonLogger.logSevere(exception);
+      return null;
+    }
+  }
+
+  /**
+   * Returns a new file in the journals folder, or null if journals are disabled or if the folder cannot be created.
+   */
+  private static File makeFile() {
+    if (!ENABLED) {
+      return null;
+    }
+    if (!JOURNALS_FOLDER.exists() && !JOURNALS_FOLDER.mkdir()) {
+      DungeonLogger.warning("Failed to create the journals folder.");
+      return null;
+    }
+    String name = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date());
+    return new File(JOURNALS_FOLDER, name + EXTENSION);
+  }
+
+  /**
+   * Creates a journal of a new game in the specified file, replacing it if it exists.
+   */
+  static CommandJournal create(@NotNull File file, long randomSeed, long worldSeed) throws IOException {
+    return create(file, randomSeed, worldSeed, null, 0, 0);
+  }
+
+  /**
+   * Creates a journal of a game that was just loaded in the specified file, replacing it if it exists.
+   */
+  static CommandJournal create(@NotNull File file, @NotNull GameState loaded) throws IOException {
+    File save = loaded.getSaveFile();
+    if (save == null) {
+      throw new IllegalArgumentException("the GameState was not loaded from a save.");
+    }
+    int commandCount = loaded.getStatistics().getCommandCount();
+    return create(file, 0, loaded.getWorld().getSeed(), save, loaded.getSaveLineage(), commandCount);
+  }
+
+  private static CommandJournal create(File file, long randomSeed, long worldSeed, File save, long saveLineage,
+      int savedCommandCount) throws IOException {
+    Settings settings = Settings.current();
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    settings.write(out);
+    out.writeLong(randomSeed);
+    out.writeLong(worldSeed);
+    out.writeUTF(save == null ? "" : save.getAbsolutePath());
+    out.writeLong(saveLineage);
+    out.writeInt(savedCommandCount);
+    out.flush();
+    CommandJournal journal = new CommandJournal(file, settings, randomSeed, worldSeed, save, savedCommandCount, out);
+    journal.saveLineages.add(saveLineage);
+    return journal;
+  }
+
+  /**
+   * Reads a journal. If the last record was not completely written, it is ignored.
+   */
+  static CommandJournal read(@NotNull File file, @NotNull List<Entry> entries) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException(file.getName() + " is not a command journal of this version.");
+      }
+      Settings settings = Settings.read(in);
+      long randomSeed = in.readLong();
+      long worldSeed = in.readLong();
+      String savePath = in.readUTF();
+      File save = savePath.isEmpty() ? null : new File(savePath);
+      long saveLineage = in.readLong();
+      int savedCommandCount = in.readInt();
+      CommandJournal journal = new CommandJournal(file, settings, randomSeed, worldSeed, save, savedCommandCount, null);
+      journal.saveLineages.add(saveLineage);
+      try {
+        for (int type = in.read(); type != -1; type = in.read()) {
+          if (type == COMMAND) {
+            entries.add(new Entry(in.readUTF(), in.readLong(), in.readInt()));
+          } else if (type == SAVE) {
+            String path = in.readUTF();
+            long lineage = in.readLong();
+            if (path.equals(savePath)) {
+              journal.saveLineages.add(lineage);
+            }
+          } else {
+            throw new IOException(file.getName() + " has an invalid record.");
+          }
+        }
+      } catch (EOFException end) {
+        // A record that was not completely written.
+      }
+      return journal;
+    } finally {
+      in.close();
+    }
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  Settings getSettings() {
+    return settings;
+  }
+
+  public long getRandomSeed() {
+    return randomSeed;
+  }
+
+  public long getWorldSeed() {
+    return worldSeed;
+  }
+
+  /**
+   * Returns the save the game was loaded from, or null if it is a new game.
+   */
+  File getSave() {
+    return save;
+  }
+
+  /**
+   * Returns how many commands the game had accepted when it was saved to the save it was loaded from.
+   */
+  int getSavedCommandCount() {
+    return savedCommandCount;
+  }
+
+  /**
+   * Returns whether or not the save the game was loaded from had the specified lineage at some point of the session.
+   */
+  boolean isLineageOfSave(long lineage) {
+    return saveLineages.contains(lineage);
+  }
+
+  /**
+   * Appends a command that was executed by the specified GameState. Does nothing after the journal is closed. If the
+   * command cannot be written, the journal is closed, as a replay of it would diverge.
+   */
+  void append(@NotNull IssuedCommand command, @NotNull GameState state) {
+    if (out == null) {
+      return;
+    }
+    try {
+      out.writeByte(COMMAND);
+      out.writeUTF(command.getStringRepresentation());
+      out.writeLong(state.getWorld().getWorldDate().getTime());
+      out.writeInt(state.getHero().getHealth().getCurrent());
+      out.flush();
+    } catch (IOException exception) {
+      DungeonLogger.logSevere(exception);
+      close();
+    }
+  }
+
+  /**
+   * Records that the specified GameState was just captured to its save file. Does nothing after the journal is closed.
+   */
+  public void appendSave(@NotNull GameState state) {
+    if (out == null) {
+      return;
+    }
+    try {
+      out.writeByte(SAVE);
+      out.writeUTF(state.getSaveFile().getAbsolutePath());
+      out.writeLong(state.getSaveLineage());
+      out.flush();
+    } catch (IOException exception) {
+      DungeonLogger.logSevere(exception);
+      close();
+    }
+  }
+
+  /**
+   * Closes the journal. Commands appended afterwards are ignored.
+   */
+  public void close() {
+    if (out != null) {
+      try {
+        out.close();
+      } catch (IOException exception) {
+        DungeonLogger.logSevere(exception);
+      }
+      out = null;
+    }
+  }
+
+  /**
+   * The system properties that change how a game executes commands, which a replay must run with.
+   */
+  static final class Settings {
+
+    private final boolean fastBattles;
+    private final boolean simulatingTheWholeWorld;
+    private final int chunkBudget;
+
+    private Settings(boolean fastBattles, boolean simulatingTheWholeWorld, int chunkBudget) {
+      this.fastBattles = fastBattles;
+      this.simulatingTheWholeWorld = simulatingTheWholeWorld;
+      this.chunkBudget = chunkBudget;
+    }
+
+    static Settings current() {
+      boolean fastBattles = Engine.isFightingFastBattles();
+      boolean simulatingTheWholeWorld = Engine.isSimulatingTheWholeWorld();
+      return new Settings(fastBattles, simulatingTheWholeWorld, ChunkedLocationStore.DEFAULT_CHUNK_BUDGET);
+    }
+
+    private static Settings read(DataInputStream in) throws IOException {
+      return new Settings(in.readBoolean(), in.readBoolean(), in.readInt());
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      out.writeBoolean(fastBattles);
+      out.writeBoolean(simulatingTheWholeWorld);
+      out.writeInt(chunkBudget);
+    }
+
+    /**
+     * Sets the system properties of these settings. Only has an effect before the classes that read them are loaded.
+     */
+    void install() {
+      System.setProperty("dungeon.battle.fast", String.valueOf(fastBattles));
+      System.setProperty("dungeon.simulation.world", String.valueOf(simulatingTheWholeWorld));
+      System.setProperty("dungeon.chunks.budget", String.valueOf(chunkBudget));
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (this == object) {
+        return true;
+      }
+      if (object == null || getClass() != object.getClass()) {
+        return false;
+      }
+      Settings that = (Settings) object;
+      return fastBattles == that.fastBattles && simulatingTheWholeWorld == that.simulatingTheWholeWorld &&
+          chunkBudget == that.chunkBudget;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = fastBattles ? 1 : 0;
+      result = 31 * result + (simulatingTheWholeWorld ? 1 : 0);
+      result = 31 * result + chunkBudget;
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("dungeon.battle.fast=%b, dungeon.simulation.world=%b, dungeon.chunks.budget=%d", fastBattles,
+          simulatingTheWholeWorld, chunkBudget);
+    }
+
+  }
+
+  /**
+   * A command of a journal and what the game looked like right after it.
+   */
+  static final class Entry {
+
+    private final String command;
+    private final long worldTime;
+    private final int heroHealth;
+
+    Entry(String command, long worldTime, int heroHealth) {
+      this.command = command;
+      this.worldTime = worldTime;
+      this.heroHealth = heroHealth;
+    }
+
+    String getCommand() {
+      return command;
+    }
+
+    /**
+     * Returns whether or not the specified GameState looks like the game of the journal did after this command.
+     */
+    boolean matches(@NotNull GameState state) {
+      long time = state.getWorld().getWorldDate().getTime();
+      return time == worldTime && state.getHero().getHealth().getCurrent() == heroHealth;
+    }
+
+  }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.commands.IssuedCommand;
+import org.mafagafogigante.dungeon.logging.DungeonLogger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Rebuilds a game from a CommandJournal without a window, as fast as possible, and reports how long each command took.
+ *
+ * <p>Usage: {@code CommandReplayer JOURNAL [SAVE]}, where JOURNAL is a file in the journals folder. If SAVE is
+ * provided, the rebuilt game is saved to that file, so that a session that crashed can be recovered up to its last
+ * command.
+ *
+ * <p>A new game is rebuilt from its seeds. A game that was loaded is rebuilt from its save, which must still have one
+ * of the lineages it had during the session, and only the commands that followed the save are replayed. The replay
+ * runs with the settings the session was recorded with.
+ *
+ * <p>Commands that manage saves or sessions are not replayed, as they do not change the game.
+ */
+public final class CommandReplayer {
+
+  private static final Set<String> SKIPPED_COMMANDS =
+      new HashSet<String>(Arrays.asList("save", "load", "new", "exit"));
+  private static final int SLOWEST_COMMANDS = 10;
+
+  private final List<CommandJournal.Entry> entries;
+  private final long[] durations;
+  // How many entries the game had already executed when the replay started, as they were part of its save.
+  private int firstReplayed;
+  private int replayedCount;
+  private int firstDivergence = -1;
+
+  CommandReplayer(@NotNull List<CommandJournal.Entry> entries) {
+    this.entries = entries;
+    this.durations = new long[entries.size()];
+  }
+
+  /**
+   * Runs the replayer from the command line.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1 || args.length > 2) {
+      System.err.println("Usage: CommandReplayer JOURNAL [SAVE]");
+      System.exit(1);
+    }
+    DungeonLogger.setLevel(Level.WARNING);
+    List<CommandJournal.Entry> entries = new ArrayList<CommandJournal.Entry>();
+    CommandJournal journal = CommandJournal.read(new File(args[0]), entries);
+    // Nothing that reads these settings has been loaded yet.
+    journal.getSettings().install();
+    CommandReplayer replayer = new CommandReplayer(entries);
+    GameState state = replayer.replay(journal);
+    System.out.println(replayer.formatReport());
+    if (args.length == 2) {
+      File save = new File(args[1]);
+      SaveJournal.save(state, save);
+      System.out.println("Saved the rebuilt game to " + save.getPath() + ".");
+    }
+    Game.unsetGameState();
+  }
+
+  /**
+   * Rebuilds the game of a journal and makes it the GameState of the Game.
+   *
+   * @return the rebuilt GameState
+   */
+  GameState replay(@NotNull CommandJournal journal) throws IOException {
+    if (!journal.getSettings().equals(CommandJournal.Settings.current())) {
+      throw new IllegalStateException("the journal was recorded with " + journal.getSettings() + ".");
+    }
+    GameState state;
+    if (journal.getSave() == null) {
+      state = new GameState(new SeededRandom(journal.getRandomSeed()));
+      firstReplayed = 0;
+    } else {
+      state = SaveJournal.load(journal.getSave());
+      if (!journal.isLineageOfSave(state.getSaveLineage())) {
+        state.getWorld().dispose();
+        throw new IllegalStateException(journal.getSave().getName() + " was replaced by another game.");
+      }
+      firstReplayed = state.getStatistics().getCommandCount() - journal.getSavedCommandCount();
+      if (firstReplayed < 0 || firstReplayed > entries.size()) {
+        state.getWorld().dispose();
+        throw new IllegalStateException(journal.getSave().getName() + " was not saved during the session.");
+      }
+    }
+    if (state.getWorld().getSeed() != journal.getWorldSeed()) {
+      state.getWorld().dispose();
+      throw new IllegalStateException("the journal was made by a different version of the world generator.");
+    }
+    Game.setGameState(state);
+    for (int i = firstReplayed; i < entries.size(); i++) {
+      CommandJournal.Entry entry = entries.get(i);
+      if (state.getHero().getHealth().isDead()) {
+        break;
+      }
+      IssuedCommand command = new IssuedCommand(entry.getCommand());
+      if (!SKIPPED_COMMANDS.contains(command.getTokens()[0].toLowerCase())) {
+        final long start = System.nanoTime();
+        if (Game.processInput(command) && state.getHero().getHealth().isAlive()) {
+          Engine.endTurn();
+        }
+        durations[i] = System.nanoTime() - start;
+      }
+      if (firstDivergence == -1 && !entry.matches(state)) {
+        firstDivergence = i;
+      }
+      replayedCount++;
+    }
+    return state;
+  }
+
+  /**
+   * Returns the index of the first command after which the game differed from the original session, or -1.
+   */
+  int getFirstDivergence() {
+    return firstDivergence;
+  }
+
+  /**
+   * Returns how many commands of the journal were already part of the save the replay started from.
+   */
+  int getFirstReplayed() {
+    return firstReplayed;
+  }
+
+  int getReplayedCount() {
+    return replayedCount;
+  }
+
+  String formatReport() {
+    StringBuilder builder = new StringBuilder();
+    long total = 0;
+    List<Integer> indices = new ArrayList<Integer>();
+    for (int i = firstReplayed; i < firstReplayed + replayedCount; i++) {
+      total += durations[i];
+      indices.add(i);
+    }
+    if (firstReplayed > 0) {
+      builder.append(String.format("Started from a save with the first %d commands.%n", firstReplayed));
+    }
+    int replayable = entries.size() - firstReplayed;
+    builder.append(String.format("Replayed %d of %d commands in %s.%n", replayedCount, replayable, format(total)));
+    if (firstDivergence == -1) {
+      builder.append(String.format("The game matched the original session after every command.%n"));
+    } else {
+      String command = entries.get(firstDivergence).getCommand();
+      builder.append(String.format("The game diverged after command %d (%s).%n", firstDivergence + 1, command));
+    }
+    if (replayedCount > 0) {
+      long[] sorted = Arrays.copyOfRange(durations, firstReplayed, firstReplayed + replayedCount);
+      Arrays.sort(sorted);
+      builder.append(String.format("Mean %s, median %s, 90th percentile %s, 99th percentile %s, maximum %s.%n",
+          format(total / replayedCount), format(percentile(sorted, 50)), format(percentile(sorted, 90)),
+          format(percentile(sorted, 99)), format(sorted[sorted.length - 1])));
+      Collections.sort(indices, new Comparator<Integer>() {
+        @Override
+        public int compare(Integer left, Integer right) {
+          return Long.valueOf(durations[right]).compareTo(durations[left]);
+        }
+      });
+      builder.append("Slowest commands:");
+      for (int i = 0; i < Math.min(SLOWEST_COMMANDS, indices.size()); i++) {
+        int index = indices.get(i);
+        String command = entries.get(index).getCommand();
+        builder.append(String.format("%n%12s  #%d %s", format(durations[index]), index + 1, command));
+      }
+    }
+    return builder.toString();
+  }
+
+  private static long percentile(long[] sorted, int percentile) {
+    return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+  }
+
+  private static String format(long nanoseconds) {
+    return String.format("%.3f ms", nanoseconds / (double) TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.entity.creatures.Creature;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The creatures of a Location, in the order in which they were added and grouped by their Id.
+ *
+ * <p>Adding, removing and counting the creatures with a given Id take constant time. The list of all the creatures is
+ * only rebuilt when it is requested after a change.
+ */
+final class CreatureCollection implements Serializable {
+
+  // Creatures do not override equals, so these sets are identity based.
+  private final Set<Creature> creatures = new LinkedHashSet<Creature>();
+  private final Map<Id, Set<Creature>> creaturesById = new HashMap<Id, Set<Creature>>();
+  private transient List<Creature> list;
+
+  /**
+   * Adds a creature to the collection. Does nothing if the creature is already in it.
+   */
+  void add(Creature creature) {
+    if (creatures.add(creature)) {
+      Set<Creature> group = creaturesById.get(creature.getId());
+      if (group == null) {
+        group = new LinkedHashSet<Creature>();
+        creaturesById.put(creature.getId(), group);
+      }
+      group.add(creature);
+      list = null;
+    }
+  }
+
+  /**
+   * Removes a creature from the collection. Returns whether or not the creature was in it.
+   */
+  boolean remove(Creature creature) {
+    if (!creatures.remove(creature)) {
+      return false;
+    }
+    Set<Creature> group = creaturesById.get(creature.getId());
+    group.remove(creature);
+    if (group.isEmpty()) {
+      creaturesById.remove(creature.getId());
+    }
+    list = null;
+    return true;
+  }
+
+  int size() {
+    return creatures.size();
+  }
+
+  /**
+   * Returns how many creatures with the specified Id are in this collection.
+   */
+  int count(Id id) {
+    Set<Creature> group = creaturesById.get(id);
+    return group == null ? 0 : group.size();
+  }
+
+  /**
+   * Returns an unmodifiable list of the creatures, in the order in which they were added. The list is a snapshot, so it
+   * is safe to iterate over it while creatures are added or removed.
+   */
+  List<Creature> toList() {
+    if (list == null) {
+      list = Collections.unmodifiableList(new ArrayList<Creature>(creatures));
+    }
+    return list;
+  }
+
+}
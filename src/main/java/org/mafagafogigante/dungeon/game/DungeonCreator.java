@@ -39,30 +39,32 @@ class DungeonCreator implements Serializable {
    * <p>Currently a 5x1 So that we can make dungeons like this: R=R=R (where R is a room and = is a corridor).
    */
   private static final MinimumBoundingRectangle minimumBoundingRectangle = new MinimumBoundingRectangle(5, 1);
-  private final DungeonDistributor distributor;
-
-  public DungeonCreator(DungeonDistributor distributor) {
-    this.distributor = distributor;
-  }
 
   public static MinimumBoundingRectangle getMinimumBoundingRectangle() {
     return minimumBoundingRectangle;
   }
 
-  private static LocationPreset getRandomLocationPreset(Type type) {
+  private static LocationPreset getRandomLocationPreset(Type type, RandomSource random) {
     LocationPresetStore locationPresetStore = LocationPresetStore.getLocationPresetStore();
     List<LocationPreset> entrancePresets = locationPresetStore.getLocationPresetsByType(type);
-    return Random.select(entrancePresets);
+    return random.select(entrancePresets);
+  }
+
+  private static Location makeLocation(Type type, World world, Point point, RandomSource random) {
+    return new Location(getRandomLocationPreset(type, random), world, point, random);
   }
 
   /**
-   * Creates a dungeon placing the entrance at the specified point. The world should not have a location at the
+   * Creates a dungeon placing the entrance at the specified point. The chunk should not have a location at the
    * specified point.
+   *
+   * @param chunk the GeneratedChunk that receives the Locations of the dungeon and the entrance
+   * @param random the RandomSource of the chunk that contains the entrance
    */
-  public void createDungeon(@NotNull World world, @NotNull Point entrance) {
-    Point mainRoomPoint = createEntrance(world, entrance);
-    Location mainRoomLocation = createMainRoom(world, mainRoomPoint);
-    finishDungeon(world, mainRoomPoint, mainRoomLocation);
+  public void createDungeon(World world, GeneratedChunk chunk, @NotNull Point entrance, RandomSource random) {
+    Point mainRoomPoint = createEntrance(world, chunk, entrance, random);
+    Location mainRoomLocation = createMainRoom(world, chunk, mainRoomPoint, random);
+    finishDungeon(world, chunk, mainRoomPoint, mainRoomLocation, random);
   }
 
   /**
@@ -70,30 +72,28 @@ class DungeonCreator implements Serializable {
    *
    * <p>Returns the point where the main dungeon room should be.
    */
-  private Point createEntrance(@NotNull World world, @NotNull Point entrance) {
+  private Point createEntrance(World world, GeneratedChunk chunk, @NotNull Point entrance, RandomSource random) {
     // The entrance.
-    if (world.alreadyHasLocationAt(entrance)) {
-      throw new IllegalStateException("world has location at the specified entrance.");
+    if (chunk.hasLocationAt(entrance)) {
+      throw new IllegalStateException("chunk has location at the specified entrance.");
     }
-    Location dungeonEntrance = new Location(getRandomLocationPreset(Type.DUNGEON_ENTRANCE), world, entrance);
-    world.addLocation(dungeonEntrance, entrance);
-    distributor.registerDungeonEntrance(entrance);
+    chunk.addLocation(makeLocation(Type.DUNGEON_ENTRANCE, world, entrance, random));
+    chunk.addEntrance(entrance);
     // The stairway.
     Point stairwayPoint = new Point(entrance, Direction.DOWN);
     // Note that all DUNGEON_STAIRWAY presets are blocked towards North, East, South, and West.
-    Location stairwayLocation = new Location(getRandomLocationPreset(Type.DUNGEON_STAIRWAY), world, stairwayPoint);
-    world.addLocation(stairwayLocation, stairwayPoint);
+    chunk.addLocation(makeLocation(Type.DUNGEON_STAIRWAY, world, stairwayPoint, random));
     return new Point(stairwayPoint, Direction.DOWN);
   }
 
   @NotNull
-  private Location createMainRoom(@NotNull World world, Point mainRoomPoint) {
+  private Location createMainRoom(World world, GeneratedChunk chunk, Point mainRoomPoint, RandomSource random) {
     // Note that all DUNGEON_ROOM presets are open on all directions. It is up to the code to properly block them.
-    Location dungeonRoom = new Location(getRandomLocationPreset(Type.DUNGEON_ROOM), world, mainRoomPoint);
+    Location dungeonRoom = makeLocation(Type.DUNGEON_ROOM, world, mainRoomPoint, random);
     dungeonRoom.getBlockedEntrances().block(Direction.NORTH);
     dungeonRoom.getBlockedEntrances().block(Direction.DOWN);
     dungeonRoom.getBlockedEntrances().block(Direction.SOUTH);
-    world.addLocation(dungeonRoom, mainRoomPoint); // The main room. All dungeons have one.
+    chunk.addLocation(dungeonRoom); // The main room. All dungeons have one.
     return dungeonRoom;
   }
 
@@ -103,41 +103,43 @@ class DungeonCreator implements Serializable {
    * <p>If this method does not make a corridor to east or west, it blocks that entrance in the main room to prevent
    * glitches.
    */
-  private void finishDungeon(@NotNull World world, Point mainRoomPoint, Location mainRoomLocation) {
+  private void finishDungeon(World world, GeneratedChunk chunk, Point mainRoomPoint, Location mainRoomLocation,
+      RandomSource random) {
     // UPDATING THIS LOGIC MAY REQUIRE YOU TO UPDATE THE minimumBoundingRectangle variable.
-    if (Random.roll(HORIZONTAL_EXPANSION_PROBABILITY)) {
-      expandTowards(world, mainRoomPoint, Direction.EAST);
+    if (random.roll(HORIZONTAL_EXPANSION_PROBABILITY)) {
+      expandTowards(world, chunk, mainRoomPoint, Direction.EAST, random);
     } else {
       mainRoomLocation.getBlockedEntrances().block(Direction.EAST);
     }
-    if (Random.roll(HORIZONTAL_EXPANSION_PROBABILITY)) {
-      expandTowards(world, mainRoomPoint, Direction.WEST);
+    if (random.roll(HORIZONTAL_EXPANSION_PROBABILITY)) {
+      expandTowards(world, chunk, mainRoomPoint, Direction.WEST, random);
     } else {
       mainRoomLocation.getBlockedEntrances().block(Direction.WEST);
     }
   }
 
-  private void expandTowards(@NotNull World world, @NotNull Point origin, Direction direction) {
+  private void expandTowards(World world, GeneratedChunk chunk, Point origin, Direction direction,
+      RandomSource random) {
     Point corridorPoint = new Point(origin, direction);
-    if (world.alreadyHasLocationAt(corridorPoint)) {
+    if (chunk.hasLocationAt(corridorPoint)) {
       DungeonLogger.warning("Found an existing location when attempting to expand a Dungeon at " + corridorPoint + ".");
     }
     // Note that all DUNGEON_CORRIDOR presets have blocked UP and DOWN. It is up to the code to properly block the rest.
-    Location corridorLocation = new Location(getRandomLocationPreset(Type.DUNGEON_CORRIDOR), world, corridorPoint);
+    Location corridorLocation = makeLocation(Type.DUNGEON_CORRIDOR, world, corridorPoint, random);
     corridorLocation.getBlockedEntrances().block(Direction.NORTH);
     corridorLocation.getBlockedEntrances().block(Direction.SOUTH);
-    world.addLocation(corridorLocation, corridorPoint);
+    chunk.addLocation(corridorLocation);
     Point roomPoint = new Point(corridorPoint, direction);
-    if (world.alreadyHasLocationAt(roomPoint)) {
+    if (chunk.hasLocationAt(roomPoint)) {
       DungeonLogger.warning("Found an existing location when attempting to expand a Dungeon at " + roomPoint + ".");
     }
-    Location roomLocation = new Location(getRandomLocationPreset(Type.DUNGEON_ROOM), world, roomPoint);
+    Location roomLocation = makeLocation(Type.DUNGEON_ROOM, world, roomPoint, random);
     roomLocation.getBlockedEntrances().block(Direction.UP);
     roomLocation.getBlockedEntrances().block(Direction.NORTH);
     roomLocation.getBlockedEntrances().block(Direction.DOWN);
     roomLocation.getBlockedEntrances().block(Direction.SOUTH);
     roomLocation.getBlockedEntrances().block(direction);
-    world.addLocation(roomLocation, roomPoint);
+    chunk.addLocation(roomLocation);
   }
 
 }
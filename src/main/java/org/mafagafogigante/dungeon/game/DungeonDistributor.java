@@ -21,9 +21,7 @@ import org.mafagafogigante.dungeon.util.Percentage;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 /**
  * A class that is responsible for distributing dungeons.
@@ -33,9 +31,20 @@ class DungeonDistributor implements Serializable {
   private static final Percentage dungeonProbability = Percentage.fromString("2%");
   private static final MinimumBoundingRectangle biggestDungeonPossible = DungeonCreator.getMinimumBoundingRectangle();
 
-  private final Set<Point> entrances = new HashSet<Point>();
+  private final long seed;
+  private final RiverGenerator riverGenerator;
+  private final EntranceIndex entrances;
 
-  public DungeonDistributor() {
+  /**
+   * Makes a new DungeonDistributor. Whether or not a point gets a dungeon entrance only depends on the seed and on the
+   * rivers of the provided RiverGenerator, so the distribution does not depend on the order in which points are tested.
+   */
+  public DungeonDistributor(long seed, RiverGenerator riverGenerator) {
+    this.seed = seed;
+    this.riverGenerator = riverGenerator;
+    int zoneWidth = 2 * biggestDungeonPossible.getWidth() + 1;
+    int zoneHeight = 2 * biggestDungeonPossible.getHeight() + 1;
+    this.entrances = new EntranceIndex(zoneWidth, zoneHeight);
   }
 
   /**
@@ -75,27 +84,73 @@ class DungeonDistributor implements Serializable {
 
   /**
    * Randomly decides whether or not a point should have a dungeon entrance if it is isolated enough.
+   *
+   * <p>The rivers must have already been expanded to cover the no entrances zone of the point.
    */
   public boolean rollForDungeon(Point point) {
-    return isIsolatedEnough(point) && Random.roll(dungeonProbability);
+    return isCandidate(point.getX(), point.getY()) && isIsolatedEnough(point);
+  }
+
+  /**
+   * Returns the roll of a point. Points whose roll is below the dungeon probability are candidates for an entrance and
+   * among candidates that are too close to each other the one with the smallest roll takes precedence.
+   */
+  private double getRoll(int x, int y) {
+    return SeededRandom.hashToDouble(seed, x, y);
+  }
+
+  private boolean isCandidate(int x, int y) {
+    return getRoll(x, y) < dungeonProbability.toDouble() && riverGenerator.isLand(x);
+  }
+
+  /**
+   * Evaluates whether or not the candidate at (firstX, firstY) takes precedence over the candidate at (secondX,
+   * secondY).
+   */
+  private boolean takesPrecedence(int firstX, int firstY, int secondX, int secondY) {
+    int comparison = Double.compare(getRoll(firstX, firstY), getRoll(secondX, secondY));
+    if (comparison == 0) {
+      comparison = firstX != secondX ? firstX - secondX : firstY - secondY;
+    }
+    return comparison < 0;
   }
 
-  public void registerDungeonEntrance(Point point) {
-    if (entrances.contains(point)) {
+  /**
+   * Registers a dungeon entrance. May be invoked while another thread is rolling for dungeons.
+   */
+  public synchronized void registerDungeonEntrance(Point point) {
+    if (!entrances.add(point)) {
       throw new IllegalStateException("point " + point.toString() + " is already registered");
-    } else {
-      entrances.add(point);
     }
   }
 
+  private synchronized boolean hasEntranceWithin(int minimumX, int minimumY, int maximumX, int maximumY, int z) {
+    return entrances.containsAny(minimumX, minimumY, maximumX, maximumY, z);
+  }
+
   /**
-   * Tests if there is no dungeon entrances in the 5x5 square centered at the provided point. Therefore, currently it is
-   * only safe to make dungeons that are at most 3x3 and centered at the entrance.
+   * Tests if there is no dungeon entrance and no candidate that takes precedence over the provided point in the no
+   * entrances zone of the point.
+   *
+   * <p>The zone is the rectangle described by makeNoEntrancesZonePointList. It is checked for entrances with a single
+   * query to the index and then scanned for candidates without allocating Points.
    */
   private boolean isIsolatedEnough(Point point) {
-    for (Point pointToCheck : makeNoEntrancesZonePointList(point, biggestDungeonPossible)) {
-      if (entrances.contains(pointToCheck)) {
-        return false;
+    final int x = point.getX();
+    final int y = point.getY();
+    final int width = biggestDungeonPossible.getWidth();
+    final int height = biggestDungeonPossible.getHeight();
+    if (hasEntranceWithin(x - width, y - height, x + width, y + height, point.getZ())) {
+      return false;
+    }
+    for (int checkedX = x - width; checkedX <= x + width; checkedX++) {
+      for (int checkedY = y - height; checkedY <= y + height; checkedY++) {
+        if (checkedX == x && checkedY == y) {
+          continue;
+        }
+        if (isCandidate(checkedX, checkedY) && takesPrecedence(checkedX, checkedY, x, y)) {
+          return false;
+        }
       }
     }
     return true;
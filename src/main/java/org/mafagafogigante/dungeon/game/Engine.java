@@ -23,6 +23,7 @@ import org.mafagafogigante.dungeon.io.Writer;
 import org.mafagafogigante.dungeon.util.Utils;
 
 import java.awt.Color;
+import java.util.List;
 
 /**
  * Engine class that contains most static methods that need to be called to alter the loaded GameState.
@@ -30,11 +31,33 @@ import java.awt.Color;
 public final class Engine {
 
   private static final int BATTLE_TURN_DURATION = 30;
+  // Whether or not spawners and decomposing items away from the Hero are refreshed when they are due.
+  private static final boolean SIMULATING_THE_WHOLE_WORLD = Boolean.getBoolean("dungeon.simulation.world");
+  // Whether or not battles are resolved at once, without pauses between the turns.
+  private static final boolean FAST_BATTLES = Boolean.getBoolean("dungeon.battle.fast");
 
   private Engine() { // Ensure that this class cannot be instantiated.
     throw new AssertionError();
   }
 
+  /**
+   * Returns whether or not the whole world is simulated. If it is, each Location is refreshed whenever one of its
+   * spawners is due to spawn or one of its items is due to decompose. Otherwise, only the Location of the Hero is
+   * refreshed and all other Locations catch up when the Hero gets to them.
+   */
+  static boolean isSimulatingTheWholeWorld() {
+    return SIMULATING_THE_WHOLE_WORLD;
+  }
+
+  /**
+   * Returns whether or not battles are fast. Fast battles are resolved without waiting after each attack, and their
+   * output is written at once after the battle ends. The date is still rolled forward and the game refreshed after
+   * every turn, so that fast battles are resolved exactly like the other ones.
+   */
+  static boolean isFightingFastBattles() {
+    return FAST_BATTLES;
+  }
+
   /**
    * Refreshes the game. This method should be called whenever the state of the game is changed and the engine should be
    * updated. If time passed, use {@link Engine#rollDateAndRefresh(int)}.
@@ -83,10 +106,27 @@ public final class Engine {
    * Silently refreshes the game. Does not produce any visible textual output.
    */
   private static void silentRefresh() {
+    if (isSimulatingTheWholeWorld()) {
+      refreshScheduledLocations();
+    }
     refreshSpawners();
     refreshItems();
   }
 
+  /**
+   * Refreshes the Locations whose scheduled refreshes are due. The World keeps the refreshes in a timing wheel, so this
+   * costs as much as the number of due refreshes, regardless of how many Locations there are.
+   */
+  private static void refreshScheduledLocations() {
+    World world = Game.getGameState().getWorld();
+    List<Point> due = world.takeDueRefreshes();
+    for (Point point : due) {
+      Location location = world.getLocation(point);
+      location.refreshSpawners();
+      location.refreshItems();
+    }
+  }
+
   /**
    * Ends the turn, refreshing the game state and checking if any achievements were unlocked.
    */
@@ -123,10 +163,40 @@ public final class Engine {
    * @param foe the defender
    */
   public static void battle(Hero hero, Creature foe) {
+    battle(hero, foe, isFightingFastBattles());
+  }
+
+  /**
+   * Simulates a battle between the hero and a creature.
+   *
+   * @param hero the attacker
+   * @param foe the defender
+   * @param fast whether the output is written at once after the battle instead of after each attack
+   */
+  static void battle(Hero hero, Creature foe, boolean fast) {
     if (hero == foe) {
       Writer.write(new DungeonString("You cannot attempt suicide."));
       return;
     }
+    if (fast) {
+      Writer.startBuffering();
+      try {
+        fight(hero, foe);
+        concludeBattle(hero, foe);
+      } finally {
+        Writer.flushBuffer();
+      }
+    } else {
+      fight(hero, foe);
+      concludeBattle(hero, foe);
+    }
+  }
+
+  /**
+   * Makes the hero and the foe hit each other until one of them dies, rolling the date forward and refreshing the game
+   * after each turn, as the luminosity the attacks depend on may change during the fight.
+   */
+  private static void fight(Hero hero, Creature foe) {
     while (hero.getHealth().isAlive() && foe.getHealth().isAlive()) {
       hero.hit(foe);
       Engine.rollDateAndRefresh(BATTLE_TURN_DURATION);
@@ -137,6 +207,12 @@ public final class Engine {
         Engine.rollDateAndRefresh(BATTLE_TURN_DURATION);
       }
     }
+  }
+
+  /**
+   * Writes the outcome of a finished battle and, if the hero survived, records the battle in the statistics.
+   */
+  private static void concludeBattle(Hero hero, Creature foe) {
     Creature survivor = hero.getHealth().isAlive() ? hero : foe;
     Creature defeated = (survivor == hero) ? foe : hero;
     // Imagine if a third factor (such as hunger) could kill one of the creatures.
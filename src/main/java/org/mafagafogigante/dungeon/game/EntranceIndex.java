@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.util.LongHashMap;
+
+import java.io.Serializable;
+
+/**
+ * A spatial index of dungeon entrances that groups them into square buckets.
+ *
+ * <p>The side of the buckets is at least as big as the rectangles that are queried, so checking a rectangle probes at
+ * most four buckets, regardless of how many entrances there are. Neither adding entrances to existing buckets nor
+ * querying the index allocates objects.
+ */
+final class EntranceIndex implements Serializable {
+
+  private static final int BUCKET_COORDINATE_BITS = 21;
+  private static final long BUCKET_COORDINATE_MASK = (1L << BUCKET_COORDINATE_BITS) - 1;
+  private static final long Z_MASK = (1L << (64 - 2 * BUCKET_COORDINATE_BITS)) - 1;
+  private static final int INITIAL_BUCKET_CAPACITY = 2;
+
+  private final int bucketSide;
+  private final LongHashMap<Bucket> buckets = new LongHashMap<Bucket>();
+  private int size;
+
+  /**
+   * Makes an index whose buckets fit the rectangles that will be queried.
+   *
+   * @param maximumQueryWidth the biggest width of a rectangle that will be queried, positive
+   * @param maximumQueryHeight the biggest height of a rectangle that will be queried, positive
+   */
+  EntranceIndex(int maximumQueryWidth, int maximumQueryHeight) {
+    if (maximumQueryWidth <= 0 || maximumQueryHeight <= 0) {
+      throw new IllegalArgumentException("the query dimensions must be positive.");
+    }
+    this.bucketSide = Math.max(maximumQueryWidth, maximumQueryHeight);
+  }
+
+  private static long makeKey(int bucketX, int bucketY, int z) {
+    long key = (bucketX & BUCKET_COORDINATE_MASK) << (64 - BUCKET_COORDINATE_BITS);
+    key |= (bucketY & BUCKET_COORDINATE_MASK) << (64 - 2 * BUCKET_COORDINATE_BITS);
+    return key | (z & Z_MASK);
+  }
+
+  /**
+   * Returns the coordinate of the bucket that contains the specified coordinate, rounding towards negative infinity.
+   */
+  private int toBucketCoordinate(int coordinate) {
+    return coordinate < 0 ? ((coordinate + 1) / bucketSide) - 1 : coordinate / bucketSide;
+  }
+
+  /**
+   * Adds an entrance to the index. Returns false if the index already had an entrance at the point.
+   */
+  boolean add(Point point) {
+    if (contains(point)) {
+      return false;
+    }
+    long key = makeKey(toBucketCoordinate(point.getX()), toBucketCoordinate(point.getY()), point.getZ());
+    Bucket bucket = buckets.get(key);
+    if (bucket == null) {
+      bucket = new Bucket();
+      buckets.put(key, bucket);
+    }
+    bucket.add(point.getX(), point.getY());
+    size++;
+    return true;
+  }
+
+  boolean contains(Point point) {
+    return containsAny(point.getX(), point.getY(), point.getX(), point.getY(), point.getZ());
+  }
+
+  /**
+   * Checks if there is an entrance in the rectangle with the specified corners, inclusive, on level z.
+   */
+  boolean containsAny(int minimumX, int minimumY, int maximumX, int maximumY, int z) {
+    int maximumBucketX = toBucketCoordinate(maximumX);
+    int maximumBucketY = toBucketCoordinate(maximumY);
+    for (int bucketX = toBucketCoordinate(minimumX); bucketX <= maximumBucketX; bucketX++) {
+      for (int bucketY = toBucketCoordinate(minimumY); bucketY <= maximumBucketY; bucketY++) {
+        Bucket bucket = buckets.get(makeKey(bucketX, bucketY, z));
+        if (bucket != null && bucket.containsAny(minimumX, minimumY, maximumX, maximumY)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  int size() {
+    return size;
+  }
+
+  int getBucketSide() {
+    return bucketSide;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("EntranceIndex{bucketSide=%d, size=%d}", bucketSide, size);
+  }
+
+  /**
+   * The coordinates of the entrances of a bucket, in parallel arrays.
+   */
+  private static class Bucket implements Serializable {
+
+    private int[] xs = new int[INITIAL_BUCKET_CAPACITY];
+    private int[] ys = new int[INITIAL_BUCKET_CAPACITY];
+    private int count;
+
+    void add(int x, int y) {
+      if (count == xs.length) {
+        int[] newXs = new int[2 * xs.length];
+        int[] newYs = new int[2 * ys.length];
+        System.arraycopy(xs, 0, newXs, 0, count);
+        System.arraycopy(ys, 0, newYs, 0, count);
+        xs = newXs;
+        ys = newYs;
+      }
+      xs[count] = x;
+      ys[count] = y;
+      count++;
+    }
+
+    boolean containsAny(int minimumX, int minimumY, int maximumX, int maximumY) {
+      for (int i = 0; i < count; i++) {
+        if (xs[i] >= minimumX && xs[i] <= maximumX && ys[i] >= minimumY && ys[i] <= maximumY) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+  }
+
+}
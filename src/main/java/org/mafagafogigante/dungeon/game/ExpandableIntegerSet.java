@@ -17,29 +17,45 @@
 
 package org.mafagafogigante.dungeon.game;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.NavigableSet;
-import java.util.TreeSet;
+import java.util.Arrays;
 
 /**
  * A sorted set of integers that can be expanded from both ends.
+ *
+ * <p>The n-th integer generated towards each end only depends on the seed of the set, so the integers of the set do not
+ * depend on the order in which it is expanded.
+ *
+ * <p>The integers are kept sorted in a primitive array with free space at both ends, so expanding the set never moves
+ * the existing integers unless the array is full, and neither checking for an integer nor expanding the set towards an
+ * integer it already covers allocates any objects.
  */
 class ExpandableIntegerSet implements Serializable {
 
+  private static final int INITIAL_CAPACITY = 8;
+
   private final int minimumDifference;
   private final int differenceBetweenMinAndMax;
+  private final long seed;
+  private int upwardsCount;
+  private int downwardsCount;
 
-  private final NavigableSet<Integer> set = new TreeSet<Integer>();
+  // The integers of the set are in the range [start, start + size) of the array.
+  private transient int[] integers;
+  private transient int start;
+  private transient int size;
 
   /**
    * Make a new ExpandableIntegerSet.
    *
    * @param minimumDifference the minimum difference between integers, positive
    * @param maximumDifference the maximum difference between integers, bigger than {@code minimumDifference}
+   * @param seed the seed from which all integers of the set are derived
    */
-  public ExpandableIntegerSet(int minimumDifference, int maximumDifference) {
+  public ExpandableIntegerSet(int minimumDifference, int maximumDifference, long seed) {
     if (minimumDifference > 0 && maximumDifference > minimumDifference) {
       this.minimumDifference = minimumDifference;
       this.differenceBetweenMinAndMax = maximumDifference - minimumDifference;
@@ -47,6 +63,7 @@ class ExpandableIntegerSet implements Serializable {
       String message = "illegal values for minimumDifference or maximumDifference";
       throw new IllegalArgumentException(message);
     }
+    this.seed = seed;
     initialize();
   }
 
@@ -54,48 +71,123 @@ class ExpandableIntegerSet implements Serializable {
    * Generate the first integer of the set. This method should not be invoked twice.
    */
   private void initialize() {
-    if (!set.isEmpty()) {
+    if (integers != null) {
       throw new IllegalStateException("set already has an element.");
     } else {
-      set.add(Random.nextInteger(minimumDifference));
+      integers = new int[INITIAL_CAPACITY];
+      start = INITIAL_CAPACITY / 2;
+      integers[start] = SeededRandom.hashToInteger(seed, 0, minimumDifference);
+      size = 1;
     }
   }
 
   /**
-   * Expand the set of integers towards an integer a until there is an integer bigger than or equal to value.
+   * Makes the difference between two consecutive integers of the set from the index of the new integer.
    *
-   * @return a list with all new integers.
+   * <p>Even indices are used when expanding upwards and odd indices are used when expanding downwards.
+   */
+  private int makeDifference(long index) {
+    return minimumDifference + SeededRandom.hashToInteger(seed, index, differenceBetweenMinAndMax);
+  }
+
+  /**
+   * Makes room for at least one integer at each end of the array, keeping the integers in the middle of it.
    */
-  List<Integer> expand(int value) {
-    if (set.isEmpty()) {
-      throw new IllegalStateException("the set is empty.");
+  private void ensureRoomAtBothEnds() {
+    if (start == 0 || start + size == integers.length) {
+      int[] newIntegers = new int[Math.max(INITIAL_CAPACITY, 2 * size)];
+      int newStart = (newIntegers.length - size) / 2;
+      System.arraycopy(integers, start, newIntegers, newStart, size);
+      integers = newIntegers;
+      start = newStart;
     }
-    ArrayList<Integer> integerList = new ArrayList<Integer>();
-    int integer = set.last();
+  }
+
+  /**
+   * Expand the set of integers towards an integer a until there is an integer bigger than value and an integer smaller
+   * than value.
+   *
+   * <p>The new integers are the first and the last integers of the set.
+   *
+   * @return how many integers were added
+   */
+  int expand(int value) {
+    int added = 0;
+    int integer = last();
     while (value >= integer) {
-      integer += minimumDifference + Random.nextInteger(differenceBetweenMinAndMax);
-      integerList.add(integer);
-      set.add(integer);
+      upwardsCount++;
+      integer += makeDifference(2L * upwardsCount);
+      ensureRoomAtBothEnds();
+      integers[start + size] = integer;
+      size++;
+      added++;
     }
-    integer = set.first();
+    integer = first();
     while (value <= integer) {
-      integer -= minimumDifference + Random.nextInteger(differenceBetweenMinAndMax);
-      integerList.add(integer);
-      set.add(integer);
+      downwardsCount++;
+      integer -= makeDifference(2L * downwardsCount - 1);
+      ensureRoomAtBothEnds();
+      start--;
+      integers[start] = integer;
+      size++;
+      added++;
     }
-    return integerList;
+    return added;
   }
 
   /**
    * @return true if {@code value} is in the set.
    */
   boolean contains(int value) {
-    return set.contains(value);
+    return Arrays.binarySearch(integers, start, start + size, value) >= 0;
+  }
+
+  int first() {
+    return integers[start];
+  }
+
+  int last() {
+    return integers[start + size - 1];
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the integer at the specified position of the set, in ascending order.
+   */
+  int get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index " + index + " is not in [0, " + size + ").");
+    }
+    return integers[start + index];
+  }
+
+  /**
+   * Writes only the integers, so that the free space of the array is not saved.
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    out.writeInt(size);
+    for (int i = start; i < start + size; i++) {
+      out.writeInt(integers[i]);
+    }
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    size = in.readInt();
+    integers = new int[Math.max(INITIAL_CAPACITY, 2 * size)];
+    start = (integers.length - size) / 2;
+    for (int i = start; i < start + size; i++) {
+      integers[i] = in.readInt();
+    }
   }
 
   @Override
   public String toString() {
-    return "ExpandableIntegerSet currently of " + set;
+    return "ExpandableIntegerSet currently of " + Arrays.toString(Arrays.copyOfRange(integers, start, start + size));
   }
 
 }
@@ -140,6 +140,7 @@ public class Game {
       throw new IllegalArgumentException("passed null to setGameState.");
     }
     gameState = state;
+    Random.setSource(state.getRandom());
     DungeonLogger.info("Set the GameState field in Game to a GameState.");
     // This is a new GameState that must be refreshed in order to have spawned creatures at the beginning.
     Engine.refresh();
@@ -147,7 +148,16 @@ public class Game {
     gameState.getHero().look();
   }
 
+  /**
+   * Nullifies the GameState field, releasing the resources held by its World.
+   */
   public static void unsetGameState() {
+    if (gameState != null) {
+      if (gameState.getCommandJournal() != null) {
+        gameState.getCommandJournal().close();
+      }
+      gameState.getWorld().dispose();
+    }
     DungeonLogger.info("Set the GameState field in Game to null.");
     gameState = null;
   }
@@ -158,6 +168,8 @@ public class Game {
    * @param issuedCommand the last IssuedCommand.
    */
   public static void renderTurn(IssuedCommand issuedCommand) {
+    // Commands may run on different threads, but they all draw from the RandomSource of the game.
+    Random.setSource(getGameState().getRandom());
     // Clears the text pane.
     getGameWindow().clearTextPane();
     if (processInput(issuedCommand)) {
@@ -173,19 +185,25 @@ public class Game {
   }
 
   /**
-   * Processes the player's input. Adds the IssuedCommand to the CommandHistory and to the CommandStatistics. Finally,
-   * this method finds and executes the corresponding Command object or prints a message if there is not such Command.
+   * Processes the player's input. Adds the IssuedCommand to the CommandHistory and to the CommandStatistics. Then, this
+   * method finds and executes the corresponding Command object or prints a message if there is not such Command.
+   * Finally, the IssuedCommand is appended to the CommandJournal of the game, if there is one.
    *
    * @param issuedCommand the last IssuedCommand.
    * @return a boolean indicating whether or not the command executed successfully
    */
-  private static boolean processInput(IssuedCommand issuedCommand) {
+  static boolean processInput(IssuedCommand issuedCommand) {
     IssuedCommandEvaluation evaluation = IssuedCommandProcessor.evaluateIssuedCommand(issuedCommand);
     if (evaluation.isValid()) {
       instanceInformation.incrementAcceptedCommandCount();
-      getGameState().getCommandHistory().addCommand(issuedCommand);
-      getGameState().getStatistics().addCommand(issuedCommand);
+      // The command may replace the GameState, in which case the journal of the old one is closed.
+      GameState state = getGameState();
+      state.getCommandHistory().addCommand(issuedCommand);
+      state.getStatistics().addCommand(issuedCommand);
       IssuedCommandProcessor.prepareIssuedCommand(issuedCommand).execute();
+      if (state.getCommandJournal() != null) {
+        state.getCommandJournal().append(issuedCommand, state);
+      }
       return true;
     } else {
       DungeonString string = new DungeonString();
@@ -212,6 +230,7 @@ public class Game {
     if (getGameState() != null && !getGameState().isSaved()) {
       Loader.saveGame(getGameState());
     }
+    Loader.awaitPendingSaves();
     logInstanceClosing();
     System.exit(0);
   }
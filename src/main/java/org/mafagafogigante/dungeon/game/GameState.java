@@ -23,6 +23,12 @@ import org.mafagafogigante.dungeon.entity.creatures.Hero;
 import org.mafagafogigante.dungeon.io.JsonObjectFactory;
 import org.mafagafogigante.dungeon.stats.Statistics;
 
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 public class GameState implements Serializable {
@@ -32,16 +38,41 @@ public class GameState implements Serializable {
   private final Statistics statistics = new Statistics();
   private Hero hero;
   private Point heroPosition;
+  // Every random number of the game is drawn from this source, so that the game can be replayed from its commands.
+  private final RandomSource random;
+  // How long the game was played before the current session, in milliseconds. Brought up to date when it is serialized.
+  private long playTimeBeforeSession;
 
   private transient boolean saved = false;
+  private transient CommandJournal commandJournal;
+  private transient long sessionStart = System.currentTimeMillis();
+  // Incremented whenever the game is modified, so that a save that completes after a modification is not taken as
+  // having saved the modification.
+  private transient long modificationCount;
+  // The snapshot this game was last written to or read from and its lineage, which the next save may extend.
+  private transient File saveFile;
+  private transient long saveLineage;
 
   /**
-   * Constructs a new GameState.
+   * Constructs a new GameState with a RandomSource seeded from the RandomSource of the current thread.
    */
   public GameState() {
+    this(new SeededRandom(Random.nextLong()));
+  }
+
+  /**
+   * Constructs a new GameState that draws its random numbers from the specified RandomSource, which is installed on the
+   * current thread. GameStates constructed from sources with the same seed are the same, and stay the same if the same
+   * commands are issued to them.
+   */
+  public GameState(@NotNull RandomSource random) {
+    this.random = random;
+    Random.setSource(random);
     commandHistory = new CommandHistory();
     world = new World(statistics.getWorldStatistics());
     createHeroAndStartingLocation();
+    world.pinChunksAround(heroPosition);
+    world.pregenerateAround(heroPosition, ChunkPregenerator.DEFAULT_RADIUS);
   }
 
   /**
@@ -56,11 +87,34 @@ public class GameState implements Serializable {
    */
   private void createHeroAndStartingLocation() {
     hero = CreatureFactory.makeHero(world.getWorldDate(), statistics);
+    world.setHero(hero);
     heroPosition = new Point(0, 0, 0);
     world.getLocation(heroPosition).addCreature(hero);
     getStatistics().getExplorationStatistics().addVisit(heroPosition, world.getLocation(heroPosition).getId());
   }
 
+  /**
+   * Returns the RandomSource of this game, which must be installed on whatever thread is about to modify it.
+   */
+  public RandomSource getRandom() {
+    return random;
+  }
+
+  public CommandJournal getCommandJournal() {
+    return commandJournal;
+  }
+
+  public void setCommandJournal(CommandJournal commandJournal) {
+    this.commandJournal = commandJournal;
+  }
+
+  /**
+   * Returns for how long this game has been played, in milliseconds, including the current session.
+   */
+  public long getPlayTime() {
+    return playTimeBeforeSession + System.currentTimeMillis() - sessionStart;
+  }
+
   public CommandHistory getCommandHistory() {
     return commandHistory;
   }
@@ -77,16 +131,101 @@ public class GameState implements Serializable {
     return hero;
   }
 
+  /**
+   * Updates the position of the Hero, keeping the chunks around it in memory and letting the World prepare them.
+   */
   public void setHeroPosition(Point heroPosition) {
     this.heroPosition = heroPosition;
+    world.pinChunksAround(heroPosition);
+    // The Hero changes the Locations it is in in ways that the Locations do not see, such as by wounding creatures.
+    world.markChunkDirty(heroPosition);
+    world.pregenerateAround(heroPosition, ChunkPregenerator.DEFAULT_RADIUS);
   }
 
-  public boolean isSaved() {
+  /**
+   * Puts the Hero back into its Location after a game is loaded, reading the chunks around it from the save.
+   */
+  void restoreHero() {
+    world.setHero(hero);
+    world.pinChunksAround(heroPosition);
+    world.loadChunksAround(heroPosition);
+    hero.setLocation(world.getLocation(heroPosition));
+  }
+
+  /**
+   * Forgets which chunks changed, as they were just saved. The chunk of the Hero is still considered changed, as the
+   * Hero may change its Locations without them noticing.
+   */
+  void clearDirtyChunks() {
+    world.clearDirtyChunks();
+    world.markChunkDirty(heroPosition);
+  }
+
+  synchronized File getSaveFile() {
+    return saveFile;
+  }
+
+  synchronized long getSaveLineage() {
+    return saveLineage;
+  }
+
+  /**
+   * Records the snapshot that this game was last written to or read from, so that the next save may only write what
+   * changed since then. A null File makes the next save write a complete snapshot.
+   */
+  synchronized void setSaveFile(File saveFile, long saveLineage) {
+    this.saveFile = saveFile;
+    this.saveLineage = saveLineage;
+  }
+
+  /**
+   * Makes the next save write a complete snapshot if the last save was made to the specified lineage, which could not
+   * be written.
+   */
+  synchronized void discardSaveLineage(long saveLineage) {
+    if (this.saveLineage == saveLineage) {
+      setSaveFile(null, 0);
+    }
+  }
+
+  public synchronized boolean isSaved() {
     return saved;
   }
 
-  public void setSaved(boolean saved) {
+  /**
+   * Sets whether or not this game is saved. Setting it to false records a modification.
+   */
+  public synchronized void setSaved(boolean saved) {
+    if (!saved) {
+      modificationCount++;
+    }
     this.saved = saved;
   }
 
+  public synchronized long getModificationCount() {
+    return modificationCount;
+  }
+
+  /**
+   * Marks this game as saved, unless it was modified after the specified modification count was taken. Used by saves
+   * that are written while the game goes on.
+   */
+  public synchronized void setSavedAsOf(long modificationCount) {
+    if (this.modificationCount == modificationCount) {
+      saved = true;
+    }
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    long now = System.currentTimeMillis();
+    playTimeBeforeSession += now - sessionStart;
+    sessionStart = now;
+    out.defaultWriteObject();
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    sessionStart = System.currentTimeMillis();
+  }
+
 }
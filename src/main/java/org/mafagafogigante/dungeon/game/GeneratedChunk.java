@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Locations and dungeon entrances generated for a chunk that have not yet been added to the World.
+ *
+ * <p>Generating a chunk does not modify the World, so it can happen on any thread. Adding the result to the World is
+ * cheap and happens on the thread that owns the World.
+ */
+final class GeneratedChunk {
+
+  private final int chunkX;
+  private final int chunkY;
+  private final List<Location> locations = new ArrayList<Location>();
+  private final List<Point> entrances = new ArrayList<Point>();
+
+  GeneratedChunk(int chunkX, int chunkY) {
+    this.chunkX = chunkX;
+    this.chunkY = chunkY;
+  }
+
+  int getChunkX() {
+    return chunkX;
+  }
+
+  int getChunkY() {
+    return chunkY;
+  }
+
+  /**
+   * Adds a Location to this chunk. There must not be a Location at the same Point already.
+   */
+  void addLocation(@NotNull Location location) {
+    if (hasLocationAt(location.getPoint())) {
+      throw new IllegalStateException("tried to repeatedly add a location to " + location.getPoint() + ".");
+    }
+    locations.add(location);
+  }
+
+  boolean hasLocationAt(@NotNull Point point) {
+    for (Location location : locations) {
+      if (location.getPoint().equals(point)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  void addEntrance(@NotNull Point point) {
+    entrances.add(point);
+  }
+
+  List<Location> getLocations() {
+    return Collections.unmodifiableList(locations);
+  }
+
+  List<Point> getEntrances() {
+    return Collections.unmodifiableList(entrances);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("GeneratedChunk{chunkX=%d, chunkY=%d, locations=%d}", chunkX, chunkY, locations.size());
+  }
+
+}
@@ -18,6 +18,8 @@
 package org.mafagafogigante.dungeon.game;
 
 import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Id class that wraps an identification String.
@@ -25,9 +27,14 @@ import java.io.Serializable;
  * <p>The wrapped String is guaranteed to only contain valid characters.
  *
  * <p>Valid characters are: uppercase ASCII letters, digits, and the underscore.
+ *
+ * <p>Deserialized Ids are replaced by their canonical instances, so that a loaded game shares the Ids of the presets
+ * instead of holding a copy of them in every Location, Creature and Item.
  */
 public final class Id implements Serializable {
 
+  private static final ConcurrentMap<String, Id> CANONICAL_IDS = new ConcurrentHashMap<String, Id>();
+
   private final String id;
 
   /**
@@ -69,6 +76,18 @@ public final class Id implements Serializable {
     return !Character.isDigit(character) && character != '_';
   }
 
+  /**
+   * Returns the canonical Id equal to this one, which is this Id if no equal Id was interned before.
+   */
+  public Id intern() {
+    Id canonical = CANONICAL_IDS.putIfAbsent(id, this);
+    return canonical == null ? this : canonical;
+  }
+
+  private Object readResolve() {
+    return intern();
+  }
+
   @Override
   public boolean equals(Object object) {
     if (this == object) {
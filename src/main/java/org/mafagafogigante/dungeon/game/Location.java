@@ -17,7 +17,8 @@
 
 package org.mafagafogigante.dungeon.game;
 
-import org.mafagafogigante.dungeon.entity.Entity;
+import org.mafagafogigante.dungeon.date.Date;
+import org.mafagafogigante.dungeon.entity.LightSource;
 import org.mafagafogigante.dungeon.entity.Luminosity;
 import org.mafagafogigante.dungeon.entity.creatures.Creature;
 import org.mafagafogigante.dungeon.entity.items.Item;
@@ -28,59 +29,127 @@ import org.mafagafogigante.dungeon.util.Percentage;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
 
 /**
  * The Location class that defines a Location of a World.
+ *
+ * <p>Locations are created dormant: they only hold what is needed to describe them and to walk through them. Their
+ * items, spawners and creatures are created the first time any of them is needed.
+ *
+ * <p>The name, the description and the light permittivity of a Location are the ones of its preset. They are not
+ * serialized, but taken from the preset again when the Location is deserialized, so that loaded Locations share them.
  */
 public final class Location implements Serializable {
 
   private final Id id;
-  private final Name name;
-  private final LocationDescription description;
   private final BlockedEntrances blockedEntrances;
-  private final List<Creature> creatures;
-  private final List<Spawner> spawners;
-  private final LocationInventory items;
-  private final Percentage lightPermittivity;
   private final World world;
   private final Point point;
+  // What is needed to create the contents of this Location exactly as if they had been created with it.
+  private final long contentSeed;
+  // Set when this Location is added to its World, which always happens on the thread that owns the World.
+  private Date creationDate;
+  // These are null while the Location is dormant.
+  private CreatureCollection creatures;
+  private List<Spawner> spawners;
+  private LocationInventory items;
+  // These come from the preset, which is looked up by the Id when the Location is deserialized.
+  private transient Name name;
+  private transient LocationDescription description;
+  private transient Percentage lightPermittivity;
+  // The luminosity is cached until an entity arrives or leaves, a light source changes or the part of the day changes.
+  private transient Luminosity luminosity;
+  private transient PartOfDay luminosityPartOfDay;
+  private transient long luminosityLightSourceChanges;
 
   /**
-   * Constructs a new location for the specified world based on the provided preset.
+   * Constructs a new dormant location for the specified world based on the provided preset.
    *
-   * <p>The creation date of the items in this location is the world date at the time this location was created.
+   * <p>The creation date of the items in this location is the world date at the time this location is added to the
+   * world, even though the items are only made when they are first needed. Using the date at which the location is
+   * added rather than the one at which it is generated, which may happen on a background thread at any time, keeps the
+   * game reproducible.
    *
    * @param preset the LocationPreset object
    * @param world the World object
+   * @param random the RandomSource from which the seed of the contents of this location is taken
    */
-  public Location(@NotNull LocationPreset preset, @NotNull World world, @NotNull Point point) {
+  Location(@NotNull LocationPreset preset, @NotNull World world, @NotNull Point point, RandomSource random) {
     this.id = preset.getId();
-    this.name = preset.getName();
-    this.description = preset.getDescription();
     this.world = world;
     this.point = point;
     this.blockedEntrances = preset.getBlockedEntrances();
+    this.contentSeed = random.nextLong();
+    setPresetData(preset);
+  }
+
+  private void setPresetData(LocationPreset preset) {
+    this.name = preset.getName();
+    this.description = preset.getDescription();
     this.lightPermittivity = preset.getLightPermittivity();
-    this.creatures = new ArrayList<Creature>();
-    this.spawners = new ArrayList<Spawner>(preset.getSpawners().size());
+  }
+
+  /**
+   * Creates the spawners and rolls for the items of the preset of this location if it is still dormant.
+   */
+  private void materialize() {
+    if (items != null) {
+      return;
+    }
+    world.markChunkDirty(point);
+    LocationPreset preset = LocationPresetStore.getLocationPresetStore().getLocationPreset(id);
+    creatures = new CreatureCollection();
+    spawners = new ArrayList<Spawner>(preset.getSpawners().size());
     for (SpawnerPreset spawner : preset.getSpawners()) {
       spawners.add(new Spawner(spawner, this));
     }
-    this.items = new LocationInventory();
+    items = new LocationInventory();
+    RandomSource random = new SeededRandom(contentSeed);
     for (Entry<Id, Percentage> entry : preset.getItems()) {
-      if (Random.roll(entry.getValue())) {
-        Item item = ItemFactory.makeItem(entry.getKey(), world.getWorldDate());
+      if (random.roll(entry.getValue())) {
+        Item item = ItemFactory.makeItem(entry.getKey(), creationDate);
         if (item != null) {
-          this.addItem(item);
+          items.addItem(item);
         } else {
           DungeonLogger.warning("Item preset not found: " + entry.getKey().toString() + ".");
         }
       }
     }
+    // Dormant locations need no scheduled refreshes, as they catch up when they are materialized.
+    for (Spawner spawner : spawners) {
+      spawner.schedule();
+    }
+    scheduleDecomposition(items.getItems());
+  }
+
+  /**
+   * Schedules a refresh of this location for when each of the provided items decomposes.
+   */
+  void scheduleDecomposition(List<Item> itemList) {
+    for (Item item : itemList) {
+      if (item.hasTag(Item.Tag.DECOMPOSES)) {
+        world.scheduleRefresh(point, item.getDecompositionTime());
+      }
+    }
+  }
+
+  void setCreationDate(@NotNull Date creationDate) {
+    this.creationDate = creationDate;
+  }
+
+  /**
+   * Returns whether or not the contents of this location have not been created yet.
+   */
+  boolean isDormant() {
+    return items == null;
   }
 
   public Id getId() {
@@ -99,11 +168,21 @@ public final class Location implements Serializable {
    * Refreshes all the Spawners of this location.
    */
   public void refreshSpawners() {
+    materialize();
+    world.markChunkDirty(point);
     for (Spawner spawner : spawners) {
       spawner.refresh();
     }
   }
 
+  /**
+   * Returns the Spawners of this location, creating them if it is still dormant.
+   */
+  List<Spawner> getSpawners() {
+    materialize();
+    return spawners;
+  }
+
   public Percentage getLightPermittivity() {
     return lightPermittivity;
   }
@@ -113,49 +192,65 @@ public final class Location implements Serializable {
    * light permittivity and on the luminosity of the Entities in this location.
    */
   public Luminosity getLuminosity() {
-    // Light permittivity is only applied to the luminosity that comes from the sky.
-    Percentage fromEntities = Luminosity.resultantLuminosity(getEntities()).toPercentage();
-    Percentage fromTheWorld = getLightPermittivity().multiply(getWorld().getPartOfDay().getLuminosity().toPercentage());
-    return new Luminosity(new Percentage(Math.min(fromEntities.toDouble() + fromTheWorld.toDouble(), 1.0)));
+    PartOfDay partOfDay = getWorld().getPartOfDay();
+    long lightSourceChanges = LightSource.getChangeCount();
+    if (luminosity == null || partOfDay != luminosityPartOfDay || lightSourceChanges != luminosityLightSourceChanges) {
+      luminosity = computeLuminosity(partOfDay);
+      luminosityPartOfDay = partOfDay;
+      luminosityLightSourceChanges = lightSourceChanges;
+    }
+    return luminosity;
   }
 
-  public List<Creature> getCreatures() {
-    return creatures;
+  private Luminosity computeLuminosity(PartOfDay partOfDay) {
+    double fromEntities = 0;
+    for (Creature creature : getCreatures()) {
+      fromEntities += creature.getLuminosity().toPercentage().toDouble();
+    }
+    for (Item item : getItemList()) {
+      fromEntities += item.getLuminosity().toPercentage().toDouble();
+    }
+    // Light permittivity is only applied to the luminosity that comes from the sky.
+    double fromTheWorld = getLightPermittivity().toDouble() * partOfDay.getLuminosity().toPercentage().toDouble();
+    return new Luminosity(new Percentage(Math.min(Math.min(fromEntities, 1.0) + fromTheWorld, 1.0)));
   }
 
-  public LocationInventory getInventory() {
-    return items;
+  /**
+   * Discards the cached luminosity of this Location. Must be called whenever the luminosity of an entity in this
+   * Location changes without a light source being enabled or disabled, such as when a creature equips a weapon.
+   */
+  public void invalidateLuminosity() {
+    luminosity = null;
   }
 
   /**
-   * Returns a list with all the entities in the current location.
+   * Returns an unmodifiable list of the creatures in this Location, in the order in which they got here.
    */
-  private List<Entity> getEntities() {
-    List<Entity> entities = new ArrayList<Entity>();
-    entities.addAll(getCreatures());
-    entities.addAll(getItemList());
-    return entities;
+  public List<Creature> getCreatures() {
+    materialize();
+    return creatures.toList();
+  }
+
+  public LocationInventory getInventory() {
+    materialize();
+    return items;
   }
 
   public List<Item> getItemList() {
-    return items.getItems();
+    return getInventory().getItems();
   }
 
   public int getCreatureCount() {
+    materialize();
     return creatures.size();
   }
 
   /**
-   * Returns the number of creatures in this Location.
+   * Returns the number of creatures with the specified Id in this Location.
    */
   public int getCreatureCount(Id id) {
-    int count = 0;
-    for (Creature creature : creatures) {
-      if (creature.getId().equals(id)) {
-        count++;
-      }
-    }
-    return count;
+    materialize();
+    return creatures.count(id);
   }
 
   /**
@@ -166,26 +261,46 @@ public final class Location implements Serializable {
    */
   public void addCreature(Creature creature) {
     creature.setLocation(this);
+    materialize();
+    world.markChunkDirty(point);
     creatures.add(creature);
+    invalidateLuminosity();
   }
 
+  /**
+   * Adds an Item to the inventory of this Location.
+   */
   public void addItem(Item item) {
-    items.addItem(item);
+    getInventory().addItem(item);
+    world.markChunkDirty(point);
+    invalidateLuminosity();
+    scheduleDecomposition(Collections.singletonList(item));
   }
 
+  /**
+   * Removes an Item from the inventory of this Location.
+   */
   public void removeItem(Item item) {
-    items.removeItem(item);
+    getInventory().removeItem(item);
+    world.markChunkDirty(point);
+    invalidateLuminosity();
   }
 
   /**
    * Removes a creature of this Location.
    */
   public void removeCreature(Creature creature) {
+    materialize();
     for (Spawner spawner : spawners) {
       spawner.notifyKill(creature);
     }
     // The creature must be removed after the spawns are notified.
     creatures.remove(creature);
+    world.markChunkDirty(point);
+    invalidateLuminosity();
+    for (Spawner spawner : spawners) {
+      spawner.schedule();
+    }
   }
 
   public World getWorld() {
@@ -212,10 +327,25 @@ public final class Location implements Serializable {
    * location.
    */
   public void refreshItems() {
-    getInventory().refreshItems();
-    for (Creature creature : creatures) {
-      creature.getInventory().refreshItems();
+    long currentTime = world.getWorldDate().getTime();
+    world.markChunkDirty(point);
+    int itemCount = getInventory().getItemCount();
+    getInventory().refreshItems(currentTime);
+    if (getInventory().getItemCount() != itemCount) {
+      invalidateLuminosity();
+    }
+    for (Creature creature : getCreatures()) {
+      creature.getInventory().refreshItems(currentTime);
+    }
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    LocationPreset preset = LocationPresetStore.getLocationPresetStore().getLocationPreset(id);
+    if (preset == null) {
+      throw new InvalidObjectException("there is no location preset " + id + ".");
     }
+    setPresetData(preset);
   }
 
   @Override
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import java.io.Serializable;
+
+/**
+ * A square of CHUNK_SIDE by CHUNK_SIDE Locations that share the same z coordinate.
+ *
+ * <p>The Locations are kept in a dense array indexed by their offsets inside the chunk, so that retrieving one of them
+ * does not require any allocation.
+ */
+final class LocationChunk implements Serializable {
+
+  static final int CHUNK_SIDE = WorldGenerator.CHUNK_SIDE;
+
+  /**
+   * How many bits of the packed key are used by each of the chunk coordinates.
+   */
+  private static final int COORDINATE_BITS = 21;
+  private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+  private static final long Z_MASK = (1L << (64 - 2 * COORDINATE_BITS)) - 1;
+
+  private final int chunkX;
+  private final int chunkY;
+  private final int z;
+  private final Location[] locations = new Location[CHUNK_SIDE * CHUNK_SIDE];
+  private int locationCount;
+  // Links of the recency list of the ChunkedLocationStore. Rebuilt when the store is deserialized.
+  private transient LocationChunk newer;
+  private transient LocationChunk older;
+  // Whether or not this chunk changed since the game was last saved or loaded.
+  private transient boolean dirty;
+
+  LocationChunk(int chunkX, int chunkY, int z) {
+    this.chunkX = chunkX;
+    this.chunkY = chunkY;
+    this.z = z;
+  }
+
+  /**
+   * Returns the coordinate of the chunk that contains the specified world coordinate.
+   *
+   * <p>For instance, if CHUNK_SIDE == 5, -5 to -1 map to -1, 0 to 4 map to 0, and 5 to 9 map to 1.
+   */
+  static int toChunkCoordinate(int coordinate) {
+    return coordinate < 0 ? ((coordinate + 1) / CHUNK_SIDE) - 1 : coordinate / CHUNK_SIDE;
+  }
+
+  /**
+   * Packs the coordinates of a chunk into a single long.
+   *
+   * <p>Two chunks have the same key if and only if they have the same coordinates, as long as the chunk coordinates fit
+   * in 21 bits and z fits in 22 bits, which is the case for every coordinate the game will ever need.
+   */
+  static long makeKey(int chunkX, int chunkY, int z) {
+    long key = (chunkX & COORDINATE_MASK) << (64 - COORDINATE_BITS);
+    key |= (chunkY & COORDINATE_MASK) << (64 - 2 * COORDINATE_BITS);
+    return key | (z & Z_MASK);
+  }
+
+  /**
+   * Packs the coordinates of the chunk that contains the specified world coordinates into a single long.
+   */
+  static long makeKeyForPoint(int x, int y, int z) {
+    return makeKey(toChunkCoordinate(x), toChunkCoordinate(y), z);
+  }
+
+  static int getSlotCount() {
+    return CHUNK_SIDE * CHUNK_SIDE;
+  }
+
+  private int toIndex(int x, int y) {
+    return (x - chunkX * CHUNK_SIDE) * CHUNK_SIDE + (y - chunkY * CHUNK_SIDE);
+  }
+
+  long getKey() {
+    return makeKey(chunkX, chunkY, z);
+  }
+
+  int getChunkX() {
+    return chunkX;
+  }
+
+  int getChunkY() {
+    return chunkY;
+  }
+
+  int getZ() {
+    return z;
+  }
+
+  /**
+   * Returns the Location at the specified world coordinates or null if there is no such Location in this chunk.
+   */
+  Location get(int x, int y) {
+    return locations[toIndex(x, y)];
+  }
+
+  /**
+   * Stores a Location in its slot. The slot must be empty.
+   */
+  void put(Location location) {
+    Point point = location.getPoint();
+    int index = toIndex(point.getX(), point.getY());
+    if (locations[index] != null) {
+      throw new IllegalStateException("chunk already has a location at " + point + ".");
+    }
+    locations[index] = location;
+    locationCount++;
+  }
+
+  int getLocationCount() {
+    return locationCount;
+  }
+
+  boolean isDirty() {
+    return dirty;
+  }
+
+  void setDirty(boolean dirty) {
+    this.dirty = dirty;
+  }
+
+  LocationChunk getNewer() {
+    return newer;
+  }
+
+  void setNewer(LocationChunk newer) {
+    this.newer = newer;
+  }
+
+  LocationChunk getOlder() {
+    return older;
+  }
+
+  void setOlder(LocationChunk older) {
+    this.older = older;
+  }
+
+  @Override
+  public String toString() {
+    String format = "LocationChunk{chunkX=%d, chunkY=%d, z=%d, locationCount=%d}";
+    return String.format(format, chunkX, chunkY, z, locationCount);
+  }
+
+}
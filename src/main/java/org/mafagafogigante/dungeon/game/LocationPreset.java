@@ -91,7 +91,7 @@ public final class LocationPreset {
    * @param probability the probability of the item appearing
    */
   public void addItem(String id, Double probability) {
-    items.put(new Id(id), new Percentage(probability));
+    items.put(new Id(id).intern(), new Percentage(probability));
   }
 
   public BlockedEntrances getBlockedEntrances() {
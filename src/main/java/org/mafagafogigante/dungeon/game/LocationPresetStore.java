@@ -59,7 +59,7 @@ public class LocationPresetStore {
     JsonObject jsonObject = JsonObjectFactory.makeJsonObject("locations.json");
     for (JsonValue jsonValue : jsonObject.get("locations").asArray()) {
       JsonObject presetObject = jsonValue.asObject();
-      Id id = new Id(presetObject.get("id").asString());
+      Id id = new Id(presetObject.get("id").asString()).intern();
       Type type = Type.valueOf(presetObject.get("type").asString());
       Name name = NameFactory.fromJsonObject(presetObject.get("name").asObject());
       LocationPreset preset = new LocationPreset(id, type, name);
@@ -110,6 +110,10 @@ public class LocationPresetStore {
     return idLocationPresetMap.values();
   }
 
+  LocationPreset getLocationPreset(Id id) {
+    return idLocationPresetMap.get(id);
+  }
+
   List<LocationPreset> getLocationPresetsByType(Type type) {
     return typeLocationPresetMap.get(type);
   }
@@ -25,6 +25,8 @@ import java.io.Serializable;
 
 /**
  * Name immutable class that stores the singular and plural forms of a name.
+ *
+ * <p>Names made by NameFactory and deserialized Names are canonical, so equal Names are usually the same instance.
  */
 public final class Name implements Serializable {
 
@@ -92,6 +94,10 @@ public final class Name implements Serializable {
     return number + " " + name;
   }
 
+  private Object readResolve() {
+    return NameFactory.intern(this);
+  }
+
   @Override
   public boolean equals(Object object) {
     if (this == object) {
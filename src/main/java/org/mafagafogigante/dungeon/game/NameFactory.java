@@ -23,11 +23,16 @@ import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * A factory of names. All Name objects should be created through this factory.
  */
 public final class NameFactory {
 
+  private static final ConcurrentMap<Name, Name> CANONICAL_NAMES = new ConcurrentHashMap<Name, Name>();
+
   private NameFactory() {
     throw new AssertionError();
   }
@@ -50,7 +55,15 @@ public final class NameFactory {
    * @return a Name constructed using the provided singular and plural forms
    */
   private static Name newInstance(String singular, String plural) {
-    return new Name(singular, plural);
+    return intern(new Name(singular, plural));
+  }
+
+  /**
+   * Returns the canonical Name equal to the specified one, which is the specified Name if no equal Name was interned.
+   */
+  static Name intern(@NotNull Name name) {
+    Name canonical = CANONICAL_NAMES.putIfAbsent(name, name);
+    return canonical == null ? name : canonical;
   }
 
   /**
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+/**
+ * Counts and times the evictions of chunks to the region file of a World and the faults that bring them back.
+ *
+ * <p>These statistics only cover the current session and are not saved.
+ */
+public final class PagingStatistics {
+
+  private long evictionCount;
+  private long evictionNanoseconds;
+  private long maximumEvictionNanoseconds;
+  private long faultCount;
+  private long faultNanoseconds;
+  private long maximumFaultNanoseconds;
+
+  void recordEviction(long nanoseconds) {
+    evictionCount++;
+    evictionNanoseconds += nanoseconds;
+    maximumEvictionNanoseconds = Math.max(maximumEvictionNanoseconds, nanoseconds);
+  }
+
+  void recordFault(long nanoseconds) {
+    faultCount++;
+    faultNanoseconds += nanoseconds;
+    maximumFaultNanoseconds = Math.max(maximumFaultNanoseconds, nanoseconds);
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public long getAverageEvictionNanoseconds() {
+    return evictionCount == 0 ? 0 : evictionNanoseconds / evictionCount;
+  }
+
+  public long getMaximumEvictionNanoseconds() {
+    return maximumEvictionNanoseconds;
+  }
+
+  public long getFaultCount() {
+    return faultCount;
+  }
+
+  public long getAverageFaultNanoseconds() {
+    return faultCount == 0 ? 0 : faultNanoseconds / faultCount;
+  }
+
+  public long getMaximumFaultNanoseconds() {
+    return maximumFaultNanoseconds;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("PagingStatistics{evictionCount=%d, faultCount=%d}", evictionCount, faultCount);
+  }
+
+}
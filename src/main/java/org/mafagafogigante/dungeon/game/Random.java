@@ -22,14 +22,44 @@ import org.mafagafogigante.dungeon.util.Percentage;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Random class that encapsulates the single Random object shared by the whole application. The reason for this is that
- * other parts of the code should not be able to call some of Random public methods, such as setSeed.
+ * Random class that gives each thread of the application its own RandomSource, so that drawing values never contends.
+ * Parts of the game that do not need a particular stream use the static methods of this class.
+ *
+ * <p>Each thread gets a SeededRandom whose seed comes from a shared sequence. Code that must be reproducible, such as
+ * simulations and benchmarks, should seed its own RandomSource instead.
  */
-public class Random {
+public final class Random {
+
+  private static final long SEED_INCREMENT = 0x9e3779b97f4a7c15L;
+  private static final AtomicLong SEEDS = new AtomicLong(SeededRandom.mix(System.nanoTime()));
+  private static final ThreadLocal<RandomSource> SOURCE = new ThreadLocal<RandomSource>() {
+    @Override
+    protected RandomSource initialValue() {
+      return new SeededRandom(SeededRandom.mix(SEEDS.addAndGet(SEED_INCREMENT)));
+    }
+  };
+
+  private Random() { // Ensure that this class cannot be instantiated.
+    throw new AssertionError();
+  }
+
+  /**
+   * Returns the RandomSource of the current thread. It must not be shared with other threads.
+   */
+  public static RandomSource getSource() {
+    return SOURCE.get();
+  }
 
-  private static final java.util.Random RANDOM = new java.util.Random();
+  /**
+   * Makes the current thread use the specified RandomSource. A source may be handed from one thread to another, such as
+   * from a command to the next, as long as it is never used by two threads at the same time.
+   */
+  public static void setSource(@NotNull RandomSource source) {
+    SOURCE.set(source);
+  }
 
   /**
    * Simulates a random roll.
@@ -38,7 +68,7 @@ public class Random {
    * @return a boolean indicating if the roll was successful or not.
    */
   public static boolean roll(Percentage chance) {
-    return chance.toDouble() > RANDOM.nextDouble();
+    return getSource().roll(chance);
   }
 
   /**
@@ -48,7 +78,7 @@ public class Random {
    * @return a boolean indicating if the roll was successful or not.
    */
   public static boolean roll(double chance) {
-    return roll(new Percentage(chance));
+    return getSource().roll(chance);
   }
 
   /**
@@ -57,7 +87,7 @@ public class Random {
    * @return a boolean
    */
   public static boolean nextBoolean() {
-    return RANDOM.nextBoolean();
+    return getSource().nextBoolean();
   }
 
   /**
@@ -67,7 +97,16 @@ public class Random {
    * @return an int in the range [0, n)
    */
   public static int nextInteger(int n) {
-    return RANDOM.nextInt(n);
+    return getSource().nextInteger(n);
+  }
+
+  /**
+   * Returns a pseudorandom, uniformly distributed long.
+   *
+   * @return a long
+   */
+  public static long nextLong() {
+    return getSource().nextLong();
   }
 
   /**
@@ -78,10 +117,7 @@ public class Random {
    * @return an element of list or null
    */
   public static <T> T select(@NotNull List<T> list) {
-    if (list.isEmpty()) {
-      throw new IllegalArgumentException("list is empty.");
-    }
-    return list.get(nextInteger(list.size()));
+    return getSource().select(list);
   }
 
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.util.Percentage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * A stream of pseudorandom values.
+ *
+ * <p>Implementations are not expected to be thread-safe. Rather than sharing one RandomSource among threads or
+ * subsystems, give each of them its own stream, either by seeding a new one explicitly or by calling split.
+ */
+public interface RandomSource {
+
+  /**
+   * Returns a pseudorandom, uniformly distributed long.
+   */
+  long nextLong();
+
+  /**
+   * Returns a pseudorandom, uniformly distributed double in the range [0, 1).
+   */
+  double nextDouble();
+
+  /**
+   * Returns a pseudorandom, uniformly distributed int value between 0 (inclusive) and the specified value (exclusive).
+   *
+   * @param n the bound on the random number to be returned, must be positive
+   * @return an int in the range [0, n)
+   */
+  int nextInteger(int n);
+
+  /**
+   * Returns a pseudorandom, uniformly distributed boolean.
+   */
+  boolean nextBoolean();
+
+  /**
+   * Simulates a random roll.
+   *
+   * @param chance the probability of a true result, in the range [0, 1]
+   * @return a boolean indicating if the roll was successful or not
+   */
+  boolean roll(double chance);
+
+  /**
+   * Simulates a random roll.
+   *
+   * @param chance the probability of a true result
+   * @return a boolean indicating if the roll was successful or not
+   */
+  boolean roll(@NotNull Percentage chance);
+
+  /**
+   * Selects a random element from a List.
+   *
+   * @param list a List object, not empty, not null
+   * @param <T> the type of elements held in the List
+   * @return an element of list
+   */
+  <T> T select(@NotNull List<T> list);
+
+  /**
+   * Returns a new RandomSource whose values are independent of the ones of this RandomSource. Advances this stream.
+   */
+  RandomSource split();
+
+}
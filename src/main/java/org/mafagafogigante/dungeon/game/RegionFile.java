@@ -0,0 +1,459 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.entity.creatures.Hero;
+import org.mafagafogigante.dungeon.logging.DungeonLogger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+
+/**
+ * A file on local disk that holds the LocationChunks that were evicted from memory.
+ *
+ * <p>Chunks are appended to the file and found through an open addressing index keyed by chunk key, made of primitive
+ * arrays. A chunk is removed from the index when it is read back, as the copy in memory becomes the authoritative one.
+ * Bytes are never overwritten. Once most of the file is taken by chunks that were read back or written again, the live
+ * chunks are copied to a new file, which replaces it. The old file is never written to again, so handles opened by
+ * openForReading keep reading valid chunks from it at the offsets they were given.
+ *
+ * <p>References to the World and to the Hero are not written to the file, but replaced by markers that are resolved
+ * when the chunk is read back. This is also the form in which chunks are written to save files, so that evicted chunks
+ * are saved and loaded without being deserialized. The contents of the file are not part of the serialized form of the
+ * RegionFile, as the SaveJournal writes the chunks separately.
+ */
+final class RegionFile implements Serializable {
+
+  private static final int INITIAL_CAPACITY = 64; // Must be a power of two.
+  // The file is only compacted once it gets this long, so that small files are not copied over and over again.
+  static final long MINIMUM_COMPACTION_LENGTH = 1 << 20;
+
+  private final World world;
+  private transient Hero hero;
+  private transient File path;
+  private transient RandomAccessFile file;
+  private transient long fileLength;
+
+  private transient long[] keys;
+  private transient long[] offsets;
+  // A slot is free if and only if its length is zero.
+  private transient int[] lengths;
+  private transient int chunkCount;
+  // How many bytes of the file belong to the chunks in the index.
+  private transient long liveByteCount;
+
+  RegionFile(@NotNull World world) {
+    this.world = world;
+    initializeIndex(INITIAL_CAPACITY);
+  }
+
+  private static int hash(long key) {
+    long hash = key;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return (int) hash;
+  }
+
+  private void initializeIndex(int capacity) {
+    keys = new long[capacity];
+    offsets = new long[capacity];
+    lengths = new int[capacity];
+    chunkCount = 0;
+    liveByteCount = 0;
+  }
+
+  private int findSlot(long key) {
+    int mask = lengths.length - 1;
+    int index = hash(key) & mask;
+    while (lengths[index] != 0 && keys[index] != key) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  private void putIndex(long key, long offset, int length) {
+    int index = findSlot(key);
+    if (lengths[index] == 0) {
+      chunkCount++;
+    }
+    liveByteCount += length - lengths[index];
+    keys[index] = key;
+    offsets[index] = offset;
+    lengths[index] = length;
+    if (2 * chunkCount > lengths.length) {
+      long[] oldKeys = keys;
+      long[] oldOffsets = offsets;
+      int[] oldLengths = lengths;
+      keys = new long[oldKeys.length * 2];
+      offsets = new long[oldOffsets.length * 2];
+      lengths = new int[oldLengths.length * 2];
+      for (int i = 0; i < oldLengths.length; i++) {
+        if (oldLengths[i] != 0) {
+          int newIndex = findSlot(oldKeys[i]);
+          keys[newIndex] = oldKeys[i];
+          offsets[newIndex] = oldOffsets[i];
+          lengths[newIndex] = oldLengths[i];
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes the entry in the specified slot, shifting back the entries of the same probe sequence that follow it.
+   */
+  private void removeSlot(int index) {
+    liveByteCount -= lengths[index];
+    int mask = lengths.length - 1;
+    int hole = index;
+    int current = (hole + 1) & mask;
+    while (lengths[current] != 0) {
+      int ideal = hash(keys[current]) & mask;
+      // Moves the entry to the hole if the hole lies between its ideal slot and its current slot.
+      if (((current - ideal) & mask) >= ((current - hole) & mask)) {
+        keys[hole] = keys[current];
+        offsets[hole] = offsets[current];
+        lengths[hole] = lengths[current];
+        hole = current;
+      }
+      current = (current + 1) & mask;
+    }
+    lengths[hole] = 0;
+    chunkCount--;
+  }
+
+  private RandomAccessFile getFile() throws IOException {
+    if (file == null) {
+      path = createTemporaryFile();
+      file = new RandomAccessFile(path, "rw");
+      fileLength = 0;
+    }
+    return file;
+  }
+
+  private static File createTemporaryFile() throws IOException {
+    File temporaryFile = File.createTempFile("dungeon-", ".region");
+    temporaryFile.deleteOnExit();
+    return temporaryFile;
+  }
+
+  /**
+   * Copies the chunks in the index to a new file, which replaces the current one.
+   *
+   * <p>The current file is deleted, but the handles opened by openForReading keep reading it where the file system
+   * allows it. Where it does not, the file is deleted on exit.
+   */
+  private void compact() throws IOException {
+    File newPath = createTemporaryFile();
+    RandomAccessFile newFile = new RandomAccessFile(newPath, "rw");
+    // The index is only updated once every chunk was copied, so that a failure leaves it as it was.
+    long[] newOffsets = new long[offsets.length];
+    long newLength = 0;
+    try {
+      for (int i = 0; i < lengths.length; i++) {
+        if (lengths[i] != 0) {
+          byte[] bytes = new byte[lengths[i]];
+          file.seek(offsets[i]);
+          file.readFully(bytes);
+          newFile.write(bytes);
+          newOffsets[i] = newLength;
+          newLength += bytes.length;
+        }
+      }
+    } catch (IOException exception) {
+      newFile.close();
+      if (!newPath.delete()) {
+        DungeonLogger.warning("Failed to delete " + newPath.getName() + ".");
+      }
+      throw exception;
+    }
+    file.close();
+    if (!path.delete()) {
+      DungeonLogger.info("Deferred the deletion of " + path.getName() + ", which is still open.");
+    }
+    file = newFile;
+    path = newPath;
+    offsets = newOffsets;
+    fileLength = newLength;
+  }
+
+  /**
+   * Sets the Hero that replaces the markers found in the chunks that are read back.
+   */
+  void setHero(Hero hero) {
+    this.hero = hero;
+  }
+
+  boolean contains(long key) {
+    return lengths[findSlot(key)] != 0;
+  }
+
+  int getChunkCount() {
+    return chunkCount;
+  }
+
+  /**
+   * Returns how many bytes the file currently occupies on disk, including the space of chunks that were read back.
+   */
+  long getFileLength() {
+    return fileLength;
+  }
+
+  /**
+   * Returns how many bytes of the file belong to the chunks in it.
+   */
+  long getLiveByteCount() {
+    return liveByteCount;
+  }
+
+  /**
+   * Returns the keys of the chunks in the file.
+   */
+  long[] getKeys() {
+    long[] result = new long[chunkCount];
+    int count = 0;
+    for (int i = 0; i < lengths.length; i++) {
+      if (lengths[i] != 0) {
+        result[count++] = keys[i];
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Appends a chunk to the file.
+   */
+  void write(@NotNull LocationChunk chunk) {
+    try {
+      append(chunk.getKey(), serialize(chunk));
+    } catch (IOException exception) {
+      throw new IllegalStateException("failed to write " + chunk + " to the region file.", exception);
+    }
+  }
+
+  /**
+   * Appends a chunk that is already serialized to the file, replacing the chunk with the same key if there is one. If
+   * most of the file is taken by chunks that are no longer in it, the file is compacted first.
+   */
+  void append(long key, @NotNull byte[] bytes) throws IOException {
+    if (fileLength >= MINIMUM_COMPACTION_LENGTH && fileLength > 2 * liveByteCount) {
+      compact();
+    }
+    RandomAccessFile randomAccessFile = getFile();
+    randomAccessFile.seek(fileLength);
+    randomAccessFile.write(bytes);
+    putIndex(key, fileLength, bytes.length);
+    fileLength += bytes.length;
+  }
+
+  /**
+   * Returns the offset of the chunk with the specified key. The chunk must be in the file.
+   */
+  long getOffset(long key) {
+    return offsets[findSlot(key)];
+  }
+
+  /**
+   * Returns the length of the chunk with the specified key. The chunk must be in the file.
+   */
+  int getLength(long key) {
+    return lengths[findSlot(key)];
+  }
+
+  /**
+   * Opens a read-only handle to the file, with which another thread may read chunks while this one keeps appending to
+   * it. As bytes are never overwritten, the bytes of a chunk can still be read at its offset after the chunk is read
+   * back or written again. The handle keeps reading the same file after a compaction replaces it, so the offsets that
+   * were valid when it was opened stay valid. Returns null if nothing was written to the file yet.
+   */
+  RandomAccessFile openForReading() throws IOException {
+    return file == null ? null : new RandomAccessFile(path, "r");
+  }
+
+  /**
+   * Returns the serialized form of the chunk with the specified key without removing it from the file, or null if
+   * there is no such chunk.
+   */
+  byte[] readBytes(long key) throws IOException {
+    int index = findSlot(key);
+    if (lengths[index] == 0) {
+      return null;
+    }
+    byte[] bytes = new byte[lengths[index]];
+    RandomAccessFile randomAccessFile = getFile();
+    randomAccessFile.seek(offsets[index]);
+    randomAccessFile.readFully(bytes);
+    return bytes;
+  }
+
+  /**
+   * Reads and removes the chunk with the specified key from the file. Returns null if there is no such chunk.
+   */
+  LocationChunk read(long key) {
+    int index = findSlot(key);
+    if (lengths[index] == 0) {
+      return null;
+    }
+    try {
+      LocationChunk chunk = deserialize(readBytes(key));
+      removeSlot(findSlot(key));
+      return chunk;
+    } catch (IOException exception) {
+      throw new IllegalStateException("failed to read chunk " + key + " from the region file.", exception);
+    } catch (ClassNotFoundException exception) {
+      throw new IllegalStateException("failed to read chunk " + key + " from the region file.", exception);
+    }
+  }
+
+  /**
+   * Returns the serialized form of a chunk, as it is written to this file and to save files.
+   */
+  byte[] serialize(@NotNull LocationChunk chunk) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream stream = new ReplacingOutputStream(bytes, world, hero);
+    stream.writeObject(chunk);
+    stream.close();
+    return bytes.toByteArray();
+  }
+
+  private LocationChunk deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+    ObjectInputStream stream = new ResolvingInputStream(new ByteArrayInputStream(bytes), world, hero);
+    try {
+      return (LocationChunk) stream.readObject();
+    } finally {
+      stream.close();
+    }
+  }
+
+  /**
+   * Deserializes a chunk that is not in this file, such as one that was read from a save file.
+   */
+  LocationChunk deserialize(long key, @NotNull byte[] bytes) throws IOException {
+    try {
+      return deserialize(bytes);
+    } catch (ClassNotFoundException exception) {
+      throw new IOException("failed to deserialize chunk " + key + ".", exception);
+    }
+  }
+
+  /**
+   * Closes and deletes the file. The chunks in it are lost.
+   *
+   * <p>The handles opened by openForReading keep reading the file where the file system allows it. Where it does not,
+   * the file is deleted on exit.
+   */
+  void delete() {
+    initializeIndex(INITIAL_CAPACITY);
+    if (file != null) {
+      try {
+        file.close();
+      } catch (IOException ignored) {
+        // The file is deleted on exit anyway.
+      }
+      if (!path.delete()) {
+        DungeonLogger.info("Deferred the deletion of " + path.getName() + ", which is still open.");
+      }
+      file = null;
+      path = null;
+      fileLength = 0;
+    }
+  }
+
+  /**
+   * Starts with an empty file, as the chunks are saved separately.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    initializeIndex(INITIAL_CAPACITY);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("RegionFile{chunkCount=%d, fileLength=%d, liveByteCount=%d}", chunkCount, fileLength,
+        liveByteCount);
+  }
+
+  /**
+   * Marks where a reference to the World or to the Hero was in a serialized chunk.
+   */
+  private enum Reference {
+    WORLD, HERO
+  }
+
+  private static class ReplacingOutputStream extends ObjectOutputStream {
+
+    private final World world;
+    private final Hero hero;
+
+    ReplacingOutputStream(OutputStream out, World world, Hero hero) throws IOException {
+      super(out);
+      this.world = world;
+      this.hero = hero;
+      enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(Object object) {
+      if (object == world) {
+        return Reference.WORLD;
+      } else if (object != null && object == hero) {
+        return Reference.HERO;
+      }
+      return object;
+    }
+
+  }
+
+  private static class ResolvingInputStream extends ObjectInputStream {
+
+    private final World world;
+    private final Hero hero;
+
+    ResolvingInputStream(InputStream in, World world, Hero hero) throws IOException {
+      super(in);
+      this.world = world;
+      this.hero = hero;
+      enableResolveObject(true);
+    }
+
+    @Override
+    protected Object resolveObject(Object object) {
+      if (object == Reference.WORLD) {
+        return world;
+      } else if (object == Reference.HERO) {
+        if (hero == null) {
+          throw new IllegalStateException("read a chunk that references the Hero before the Hero was set.");
+        }
+        return hero;
+      }
+      return object;
+    }
+
+  }
+
+}
@@ -30,10 +30,10 @@ class River implements Serializable {
   private final ExpandableIntegerSet bridges;
 
   /**
-   * Make a river.
+   * Make a river whose bridges are derived from the provided seed.
    */
-  River() {
-    bridges = new ExpandableIntegerSet(MIN_BRIDGE_DIST, MAX_BRIDGE_DIST);
+  River(long seed) {
+    bridges = new ExpandableIntegerSet(MIN_BRIDGE_DIST, MAX_BRIDGE_DIST, seed);
   }
 
   /**
@@ -45,6 +45,14 @@ class River implements Serializable {
     bridges.expand(y);
   }
 
+  /**
+   * Expand the set of bridges so that evaluating any y in the range {@code [minimumY, maximumY]} does not modify it.
+   */
+  void expandBridges(int minimumY, int maximumY) {
+    expand(minimumY);
+    expand(maximumY);
+  }
+
   /**
    * Evaluates if a given value of y corresponds to a bridge.
    *
@@ -17,8 +17,9 @@
 
 package org.mafagafogigante.dungeon.game;
 
+import org.mafagafogigante.dungeon.util.LongHashMap;
+
 import java.io.Serializable;
-import java.util.HashMap;
 
 /**
  * The component of WorldGenerator that generates rivers.
@@ -28,34 +29,70 @@ final class RiverGenerator implements Serializable {
   private static final int MIN_DIST_RIVER = 6;
   private static final int MAX_DIST_RIVER = 11;
   private static final int START = 10; // Rivers do not appear in x > 10 || x < 10.
+  private final long seed;
   private final ExpandableIntegerSet lines;
-  private final HashMap<Integer, River> rivers;
+  private final LongHashMap<River> rivers;
 
-  public RiverGenerator() {
-    lines = new ExpandableIntegerSet(MIN_DIST_RIVER, MAX_DIST_RIVER);
-    rivers = new HashMap<Integer, River>();
+  /**
+   * Makes a new RiverGenerator whose rivers and bridges are derived from the provided seed.
+   */
+  public RiverGenerator(long seed) {
+    this.seed = seed;
+    lines = new ExpandableIntegerSet(MIN_DIST_RIVER, MAX_DIST_RIVER, seed);
+    rivers = new LongHashMap<River>();
   }
 
   /**
-   * Expand the river set to ensure that all points whose x coordinate is in the range {@code [point.x - chunkSide,
-   * point.x + chunkSide]} will either correspond to a river or to a location that anticipates a river.
+   * Expand the river set to ensure that all points whose x coordinate is in the range {@code [minimumX, maximumX]} will
+   * either correspond to a river or to a location that anticipates a river.
    *
-   * @param point the point from which the expansion starts
-   * @param chunkSide the current chunk side
+   * @param minimumX the smallest x coordinate that must be covered
+   * @param maximumX the biggest x coordinate that must be covered
    */
-  void expand(Point point, int chunkSide) {
-    for (int river : lines.expand(point.getX() - chunkSide)) {
-      if (river <= -START) {
-        rivers.put(river, new River());
+  void expand(int minimumX, int maximumX) {
+    int first = lines.first();
+    int last = lines.last();
+    if (lines.expand(minimumX) + lines.expand(maximumX) > 0) {
+      // New lines are always added to the ends of the set.
+      for (int i = 0; lines.get(i) < first; i++) {
+        addRiver(lines.get(i));
       }
-    }
-    for (int river : lines.expand(point.getX() + chunkSide)) {
-      if (river >= START) {
-        rivers.put(river, new River());
+      for (int i = lines.size() - 1; lines.get(i) > last; i--) {
+        addRiver(lines.get(i));
       }
     }
   }
 
+  /**
+   * Expand the bridges of every river so that checking points whose y coordinate is in the range
+   * {@code [minimumY, maximumY]} does not modify this generator. Afterwards, such points may be checked concurrently.
+   */
+  void expandBridges(int minimumY, int maximumY) {
+    for (River river : rivers.values()) {
+      river.expandBridges(minimumY, maximumY);
+    }
+  }
+
+  private void addRiver(int line) {
+    if (line <= -START || line >= START) {
+      rivers.put(line, new River(SeededRandom.deriveSeed(seed, line)));
+    }
+  }
+
+  /**
+   * Returns if in this point there should be neither a river nor a bridge.
+   */
+  boolean isLand(Point point) {
+    return isLand(point.getX());
+  }
+
+  /**
+   * Returns if there is neither a river nor a bridge at the specified x coordinate.
+   */
+  boolean isLand(int x) {
+    return !rivers.containsKey(x);
+  }
+
   /**
    * Returns if in this point there should be a river.
    */
@@ -0,0 +1,1378 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Saves and loads GameStates as a snapshot plus an append-only journal of what changed since the snapshot was written.
+ *
+ * <p>A save is made of the core, which is the GameState without its Locations, and of the LocationChunks of the World.
+ * Both files are sequences of records that follow a header with the lineage of the snapshot. A CHUNK record holds a
+ * serialized chunk, a CORE record holds the serialized core and a COMMIT record ends a save with how many bytes its
+ * records take, the Metadata of the save and a checksum of all of them. Records that are not followed by a valid COMMIT
+ * record were left by an interrupted save and are ignored.
+ *
+ * <p>The first save of a game to a file writes a complete snapshot. The following saves to the same file only append
+ * the core and the chunks that changed to the journal. Compaction merges the journal into the snapshot without
+ * deserializing anything. A journal is only read if its lineage matches the lineage of the snapshot, so a journal
+ * that survived the replacement of its snapshot is never applied to it.
+ *
+ * <p>Every record is compressed on its own, so that records can still be read by where they are and copied without
+ * being decompressed. The header of each file records the Codec it was written with and how many bytes its records
+ * take before and after compression. The codec is chosen with the dungeon.saves.codec system property.
+ *
+ * <p>A snapshot ends with a directory of where its core and chunks are, so that it can be loaded without reading it
+ * whole. When a game is loaded, only its core and the chunks around the Hero are read. The Index of the save stays open
+ * and the World reads every other chunk from it the first time it is needed. Such a snapshot is not compacted while
+ * the game is loaded, so its journal is compacted when it is loaded instead.
+ *
+ * <p>The header of a snapshot also has a fixed-size Metadata block that describes the game, which can be read without
+ * reading any record. Nothing is written to a file after it was committed to, so a snapshot is never modified once it
+ * is in place and a delta save that is interrupted cannot damage what was saved before it. The Metadata of the newest
+ * delta save is the one in the last valid COMMIT record of the journal.
+ */
+public final class SaveJournal {
+
+  /**
+   * The extension of journal files.
+   */
+  public static final String JOURNAL_EXTENSION = ".journal";
+  private static final String TEMPORARY_EXTENSION = ".tmp";
+  private static final int MAGIC = 0x44534156; // "DSAV"
+  private static final int VERSION = 5;
+  // Where the byte counts, the offset of the directory and the metadata are in the header of a snapshot, which are
+  // written after the records. They are zero in the header of a journal.
+  private static final int BYTE_COUNTS_OFFSET = 17;
+  private static final int METADATA_OFFSET = 41;
+  private static final int HEADER_LENGTH = METADATA_OFFSET + Metadata.LENGTH;
+  private static final int CHUNK = 1;
+  private static final int CORE = 2;
+  private static final int COMMIT = 3;
+  // The journal is merged into the snapshot once it gets this big relative to the snapshot.
+  private static final double COMPACTION_RATIO = 0.5;
+  // Saves and compactions of the same files must not interleave.
+  private static final Object LOCK = new Object();
+  // The lineages to which a save could not be written, which must not be extended by the saves captured after it.
+  private static final Set<Long> FAILED_LINEAGES = new HashSet<Long>();
+  // The snapshots from which loaded games still read chunks, once for each game.
+  private static final List<File> OPEN_SNAPSHOTS = Collections.synchronizedList(new ArrayList<File>());
+  private static final Codec DEFAULT_CODEC = Codec.fromString(System.getProperty("dungeon.saves.codec"));
+
+  private SaveJournal() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Returns the journal of the specified snapshot.
+   */
+  public static File getJournalFile(@NotNull File snapshot) {
+    String name = snapshot.getName();
+    int dot = name.lastIndexOf('.');
+    return new File(snapshot.getParentFile(), (dot == -1 ? name : name.substring(0, dot)) + JOURNAL_EXTENSION);
+  }
+
+  /**
+   * Saves a GameState to the specified snapshot, capturing and writing it on the calling thread.
+   *
+   * @return how many bytes were written
+   */
+  public static long save(@NotNull GameState state, @NotNull File snapshot) throws IOException {
+    return write(capture(state, snapshot));
+  }
+
+  /**
+   * Saves a GameState to the specified snapshot with the specified Codec, capturing and writing it on the calling
+   * thread.
+   *
+   * @return how many bytes were written
+   */
+  public static long save(@NotNull GameState state, @NotNull File snapshot, @NotNull Codec codec) throws IOException {
+    return write(capture(state, snapshot, codec));
+  }
+
+  /**
+   * Captures what a save of the GameState to the specified snapshot needs to write, so that it can be written by
+   * another thread while the game goes on. Must be invoked from the thread that modifies the GameState.
+   *
+   * <p>If the GameState was last saved to or loaded from the same snapshot, only what changed since then is captured
+   * and it is appended to the journal of the snapshot. Otherwise, a complete snapshot is captured. Resident chunks are
+   * serialized, while evicted chunks are captured by where they are in the region file, which is never overwritten.
+   *
+   * <p>The core and the resident chunks are serialized here rather than by the thread that writes the Capture. The Hero
+   * changes the Locations it is in without marking their chunks first, so a chunk cannot be frozen and serialized later
+   * without copying it, which costs as much as serializing it. SaveCaptureBenchmark measures how long this takes.
+   */
+  public static Capture capture(@NotNull GameState state, @NotNull File snapshot) throws IOException {
+    return capture(state, snapshot, DEFAULT_CODEC);
+  }
+
+  /**
+   * Captures what a save of the GameState to the specified snapshot needs to write, to be compressed with the specified
+   * Codec. Must be invoked from the thread that modifies the GameState.
+   */
+  public static Capture capture(@NotNull GameState state, @NotNull File snapshot, @NotNull Codec codec)
+      throws IOException {
+    boolean complete = !snapshot.equals(state.getSaveFile());
+    long lineage = complete ? SeededRandom.mix(System.nanoTime() ^ System.currentTimeMillis()) : state.getSaveLineage();
+    Capture capture = new Capture(state, snapshot, lineage, complete, codec, Metadata.of(state));
+    try {
+      if (complete && state.getWorld().readsSavedChunksFrom(snapshot)) {
+        // The snapshot is about to be replaced, so the chunks that were not read from it yet must be taken out of it.
+        state.getWorld().detachSavedChunks();
+      }
+      capture.core = serializeCore(state);
+      state.getWorld().visitChunks(capture, complete);
+    } catch (IOException exception) {
+      capture.close();
+      throw exception;
+    }
+    state.clearDirtyChunks();
+    state.setSaveFile(snapshot, lineage);
+    return capture;
+  }
+
+  /**
+   * Writes a Capture to disk, returning only after it is durable. Captures must be written in the order in which they
+   * were taken. If a Capture cannot be written, the next save of its GameState writes a complete snapshot, as what
+   * changed since the last save was lost.
+   *
+   * @return how many bytes were written
+   */
+  public static long write(@NotNull Capture capture) throws IOException {
+    synchronized (LOCK) {
+      try {
+        if (capture.complete) {
+          return writeSnapshot(capture);
+        } else {
+          return writeDelta(capture);
+        }
+      } catch (IOException exception) {
+        FAILED_LINEAGES.add(capture.lineage);
+        capture.state.discardSaveLineage(capture.lineage);
+        throw exception;
+      } finally {
+        capture.close();
+      }
+    }
+  }
+
+  private static long writeSnapshot(Capture capture) throws IOException {
+    File temporary = new File(capture.snapshot.getPath() + TEMPORARY_EXTENSION);
+    SaveFileWriter writer = new SaveFileWriter(temporary, capture.codec);
+    try {
+      writer.writeHeader(capture.lineage);
+      capture.writeRecords(writer);
+      writer.writeDirectory();
+      writer.finish(capture.metadata);
+    } finally {
+      writer.close();
+    }
+    replace(temporary, capture.snapshot);
+    File journal = getJournalFile(capture.snapshot);
+    if (journal.exists() && !journal.delete()) {
+      throw new IOException("failed to delete " + journal.getName() + ".");
+    }
+    return capture.snapshot.length();
+  }
+
+  private static long writeDelta(Capture capture) throws IOException {
+    File snapshot = capture.snapshot;
+    if (FAILED_LINEAGES.contains(capture.lineage)) {
+      throw new IOException("a previous save to " + snapshot.getName() + " could not be written.");
+    }
+    if (readHeader(snapshot).lineage != capture.lineage) {
+      throw new IOException(snapshot.getName() + " was replaced since the game was last saved to it.");
+    }
+    File journal = getJournalFile(snapshot);
+    boolean committed = truncateToLastCommit(journal, capture.lineage);
+    final long committedLength = journal.length();
+    // The records are streamed to the end of the journal. If this fails, the next save truncates them.
+    SaveFileWriter writer = new SaveFileWriter(journal, capture.codec);
+    try {
+      if (!committed) {
+        writer.writeHeader(capture.lineage);
+      }
+      capture.writeRecords(writer);
+      writer.sync();
+    } finally {
+      writer.close();
+    }
+    return journal.length() - committedLength;
+  }
+
+  private static Header readHeader(File file) throws IOException {
+    SaveFileReader reader = new SaveFileReader(file);
+    try {
+      return reader.readHeader();
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Discards whatever follows the last commit of a journal, returning whether or not its header was kept. A journal
+   * with another lineage is discarded completely.
+   */
+  private static boolean truncateToLastCommit(File journal, long lineage) throws IOException {
+    if (!journal.isFile()) {
+      return false;
+    }
+    long committed = 0;
+    SaveFileReader reader = new SaveFileReader(journal);
+    Index index = new Index(journal);
+    try {
+      if (reader.readHeader().lineage == lineage) {
+        committed = reader.readCommittedRecords(index);
+      }
+    } catch (IOException invalid) {
+      committed = 0;
+    } finally {
+      reader.close();
+      index.close();
+    }
+    RandomAccessFile file = new RandomAccessFile(journal, "rw");
+    try {
+      file.setLength(committed);
+    } finally {
+      file.close();
+    }
+    return committed != 0;
+  }
+
+  /**
+   * Loads a GameState from the specified snapshot and its journal. Only the core and the chunks around the Hero are
+   * read, the other chunks are read by the World as they are needed.
+   */
+  public static GameState load(@NotNull File snapshot) throws IOException {
+    synchronized (LOCK) {
+      if (snapshot.isFile() && shouldCompact(snapshot)) {
+        compact(snapshot);
+      }
+      Index index = new Index(snapshot);
+      final long lineage;
+      GameState state;
+      boolean adopted = false;
+      try {
+        lineage = readIndex(snapshot, index).lineage;
+        if (index.core == null) {
+          throw new IOException(snapshot.getName() + " does not have a complete save.");
+        }
+        state = deserializeCore(index.open(index.core));
+        index.register();
+        state.getWorld().setSavedChunks(index);
+        adopted = true;
+      } finally {
+        if (!adopted) {
+          index.close();
+        }
+      }
+      state.restoreHero();
+      state.clearDirtyChunks();
+      state.setSaveFile(snapshot, lineage);
+      return state;
+    }
+  }
+
+  /**
+   * Indexes the records of a snapshot through its directory and the committed records of its journal, returning the
+   * header of the snapshot.
+   */
+  private static Header readIndex(File snapshot, Index index) throws IOException {
+    Header header = readHeader(snapshot);
+    readDirectory(snapshot, header, index);
+    readJournal(snapshot, header, index);
+    return header;
+  }
+
+  /**
+   * Adds the committed records of the journal of a snapshot to the index, if the journal has the lineage of the
+   * snapshot. The index starts with the byte counts and the Metadata of the snapshot and ends with the ones of the last
+   * valid commit.
+   */
+  private static void readJournal(File snapshot, Header header, Index index) throws IOException {
+    index.uncompressedByteCount = header.uncompressedByteCount;
+    index.compressedByteCount = header.compressedByteCount;
+    index.metadata = header.metadata;
+    File journal = getJournalFile(snapshot);
+    if (journal.isFile()) {
+      SaveFileReader reader = new SaveFileReader(journal);
+      try {
+        if (reader.readHeader().lineage == header.lineage) {
+          reader.readCommittedRecords(index);
+        }
+      } catch (IOException invalid) {
+        // A journal without a complete header was never committed to.
+      } finally {
+        reader.close();
+      }
+    }
+  }
+
+  /**
+   * Adds the records listed in the directory of a snapshot to the index.
+   */
+  private static void readDirectory(File snapshot, Header header, Index index) throws IOException {
+    if (header.directoryOffset == 0) {
+      throw new IOException(snapshot.getName() + " does not have a directory.");
+    }
+    FileInputStream stream = new FileInputStream(snapshot);
+    try {
+      stream.getChannel().position(header.directoryOffset);
+      CRC32 checksum = new CRC32();
+      DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(stream), checksum));
+      int chunkCount = in.readInt();
+      if (chunkCount < 0) {
+        throw new IOException(snapshot.getName() + " has an invalid directory.");
+      }
+      index.core = new Record(snapshot, in.readLong(), in.readInt(), in.readInt());
+      for (int i = 0; i < chunkCount; i++) {
+        long key = in.readLong();
+        index.chunks.put(key, new Record(snapshot, in.readLong(), in.readInt(), in.readInt()));
+      }
+      long expected = checksum.getValue();
+      if (in.readLong() != expected) {
+        throw new IOException(snapshot.getName() + " has a corrupted directory.");
+      }
+    } catch (EOFException exception) {
+      throw new IOException(snapshot.getName() + " has a truncated directory.", exception);
+    } finally {
+      stream.close();
+    }
+  }
+
+  /**
+   * Reads the Metadata of the newest save in the specified snapshot and how well the records of the snapshot and of
+   * its journal were compressed, without reading any record.
+   *
+   * <p>Only the headers of the records of the journal are read, to find its commits. Only the checksum of the last
+   * commit is verified, as only the end of a journal can be left by an interrupted save. If it does not match, the
+   * commit before it is tried. Loading the save still verifies every commit.
+   */
+  public static Summary readSummary(@NotNull File snapshot) throws IOException {
+    Header header = readHeader(snapshot);
+    long uncompressedByteCount = header.uncompressedByteCount;
+    long compressedByteCount = header.compressedByteCount;
+    Metadata metadata = header.metadata;
+    File journal = getJournalFile(snapshot);
+    if (journal.isFile()) {
+      RandomAccessFile file = new RandomAccessFile(journal, "r");
+      try {
+        if (hasLineage(file, header.lineage)) {
+          List<long[]> commits = findCommits(file);
+          for (int i = commits.size() - 1; i >= 0; i--) {
+            if (isCommitValid(file, commits.get(i))) {
+              for (int j = 0; j <= i; j++) {
+                uncompressedByteCount += commits.get(j)[2];
+                compressedByteCount += commits.get(j)[3];
+              }
+              byte[] bytes = new byte[Metadata.LENGTH];
+              file.seek(commits.get(i)[1] + 1 + 8 + 8);
+              file.readFully(bytes);
+              metadata = Metadata.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+              break;
+            }
+          }
+        }
+      } finally {
+        file.close();
+      }
+    }
+    return new Summary(metadata, new Compression(header.codec, uncompressedByteCount, compressedByteCount));
+  }
+
+  /**
+   * Returns whether or not a journal has a complete header of this version with the specified lineage.
+   */
+  private static boolean hasLineage(RandomAccessFile file, long lineage) throws IOException {
+    if (file.length() < HEADER_LENGTH) {
+      return false;
+    }
+    file.seek(0);
+    return file.readInt() == MAGIC && file.readInt() == VERSION && file.readLong() == lineage;
+  }
+
+  /**
+   * Walks the records of a journal by their headers, returning for each commit where its save starts, where the commit
+   * is and the byte counts in it. Stops at the first record that is not complete.
+   */
+  private static List<long[]> findCommits(RandomAccessFile file) throws IOException {
+    List<long[]> commits = new ArrayList<long[]>();
+    final long length = file.length();
+    // The longest record header is the one of a chunk.
+    byte[] bytes = new byte[1 + 8 + 4 + 4];
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    long saveStart = HEADER_LENGTH;
+    long position = HEADER_LENGTH;
+    while (true) {
+      file.seek(position);
+      int read = file.read(bytes);
+      if (read < 1) {
+        break;
+      }
+      buffer.clear();
+      buffer.limit(read);
+      try {
+        int type = buffer.get();
+        long next;
+        if (type == CHUNK) {
+          buffer.getLong();
+          buffer.getInt();
+          next = position + 1 + 8 + 4 + 4 + readLength(buffer);
+        } else if (type == CORE) {
+          buffer.getInt();
+          next = position + 1 + 4 + 4 + readLength(buffer);
+        } else if (type == COMMIT) {
+          next = position + 1 + 8 + 8 + Metadata.LENGTH + 8;
+          if (next <= length) {
+            commits.add(new long[] {saveStart, position, buffer.getLong(), buffer.getLong()});
+          }
+          saveStart = next;
+        } else {
+          break;
+        }
+        if (next > length) {
+          break;
+        }
+        position = next;
+      } catch (BufferUnderflowException truncated) {
+        break;
+      }
+    }
+    return commits;
+  }
+
+  private static int readLength(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      throw new BufferUnderflowException();
+    }
+    return length;
+  }
+
+  /**
+   * Returns whether or not the checksum of a commit found by findCommits matches the bytes of its save.
+   */
+  private static boolean isCommitValid(RandomAccessFile file, long[] commit) throws IOException {
+    long checksumPosition = commit[1] + 1 + 8 + 8 + Metadata.LENGTH;
+    CRC32 checksum = new CRC32();
+    byte[] buffer = new byte[8192];
+    file.seek(commit[0]);
+    for (long remaining = checksumPosition - commit[0]; remaining > 0; ) {
+      int read = file.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+      if (read == -1) {
+        return false;
+      }
+      checksum.update(buffer, 0, read);
+      remaining -= read;
+    }
+    return file.readLong() == checksum.getValue();
+  }
+
+  /**
+   * Returns whether or not the journal of the specified snapshot got big enough to be merged into it.
+   */
+  public static boolean shouldCompact(@NotNull File snapshot) {
+    return getJournalFile(snapshot).length() > COMPACTION_RATIO * snapshot.length();
+  }
+
+  /**
+   * Merges the journal of the specified snapshot into it, keeping its lineage. The records are copied without being
+   * deserialized. Does nothing while a loaded game still reads chunks from the snapshot, as the snapshot cannot be
+   * replaced then.
+   */
+  public static void compact(@NotNull File snapshot) throws IOException {
+    synchronized (LOCK) {
+      File journal = getJournalFile(snapshot);
+      if (!journal.isFile() || !snapshot.isFile() || OPEN_SNAPSHOTS.contains(snapshot)) {
+        return;
+      }
+      Index index = new Index(snapshot);
+      Header header = readIndex(snapshot, index);
+      if (index.core == null) {
+        index.close();
+        throw new IOException(snapshot.getName() + " does not have a complete save.");
+      }
+      File temporary = new File(snapshot.getPath() + TEMPORARY_EXTENSION);
+      SaveFileWriter writer = new SaveFileWriter(temporary, header.codec);
+      try {
+        writer.writeHeader(header.lineage);
+        writer.writeCompressedCore(index.core.uncompressedLength, index.readCompressed(index.core));
+        for (Map.Entry<Long, Record> entry : index.chunks.entrySet()) {
+          Record record = entry.getValue();
+          writer.writeCompressedChunk(entry.getKey(), record.uncompressedLength, index.readCompressed(record));
+        }
+        writer.writeCommit(index.metadata);
+        writer.writeDirectory();
+        writer.finish(index.metadata);
+      } finally {
+        writer.close();
+        index.close();
+      }
+      // If the journal outlives the rename, it still has the lineage of the snapshot and applying it again is harmless.
+      replace(temporary, snapshot);
+      if (!journal.delete()) {
+        throw new IOException("failed to delete " + journal.getName() + ".");
+      }
+    }
+  }
+
+  private static void replace(File source, File target) throws IOException {
+    if (!source.renameTo(target)) {
+      // Some platforms do not rename over an existing file.
+      if (!target.delete() || !source.renameTo(target)) {
+        throw new IOException("failed to rename " + source.getName() + " to " + target.getName() + ".");
+      }
+    }
+  }
+
+  private static byte[] serializeCore(GameState state) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream stream = new CoreOutputStream(bytes);
+    stream.writeObject(state);
+    stream.close();
+    return bytes.toByteArray();
+  }
+
+  private static GameState deserializeCore(InputStream in) throws IOException {
+    ObjectInputStream stream = new CoreInputStream(in);
+    try {
+      return (GameState) stream.readObject();
+    } catch (ClassNotFoundException exception) {
+      throw new IOException("failed to read the core of the save.", exception);
+    } finally {
+      stream.close();
+    }
+  }
+
+  /**
+   * Marks where a reference to a Location was in the core. Locations are saved in their chunks.
+   */
+  private enum LocationReference {
+    INSTANCE
+  }
+
+  /**
+   * How the records of a save are compressed. Both codecs write the same format, so a save written with one of them can
+   * be read and extended with the other.
+   */
+  public enum Codec {
+
+    /**
+     * Spends as little time as possible compressing.
+     */
+    FAST(Deflater.BEST_SPEED),
+
+    /**
+     * Makes saves as small as possible.
+     */
+    DENSE(Deflater.BEST_COMPRESSION);
+
+    private final int level;
+
+    Codec(int level) {
+      this.level = level;
+    }
+
+    /**
+     * Returns the Codec with the specified name, ignoring case, or DENSE if there is no such Codec.
+     */
+    static Codec fromString(String name) {
+      for (Codec codec : values()) {
+        if (codec.name().equalsIgnoreCase(name)) {
+          return codec;
+        }
+      }
+      return DENSE;
+    }
+
+  }
+
+  /**
+   * What the newest save in a snapshot is about and how well its records were compressed.
+   */
+  public static final class Summary {
+
+    private final Metadata metadata;
+    private final Compression compression;
+
+    private Summary(Metadata metadata, Compression compression) {
+      this.metadata = metadata;
+      this.compression = compression;
+    }
+
+    public Metadata getMetadata() {
+      return metadata;
+    }
+
+    public Compression getCompression() {
+      return compression;
+    }
+
+  }
+
+  /**
+   * How many bytes the records of a save take before and after compression.
+   */
+  public static final class Compression {
+
+    private final Codec codec;
+    private final long uncompressedByteCount;
+    private final long compressedByteCount;
+
+    private Compression(Codec codec, long uncompressedByteCount, long compressedByteCount) {
+      this.codec = codec;
+      this.uncompressedByteCount = uncompressedByteCount;
+      this.compressedByteCount = compressedByteCount;
+    }
+
+    /**
+     * Returns the Codec of the snapshot. The journal may have been written with another one.
+     */
+    public Codec getCodec() {
+      return codec;
+    }
+
+    public long getUncompressedByteCount() {
+      return uncompressedByteCount;
+    }
+
+    public long getCompressedByteCount() {
+      return compressedByteCount;
+    }
+
+  }
+
+  /**
+   * What a save is about, kept in a fixed-size block of the header so that many saves can be described quickly.
+   */
+  public static final class Metadata {
+
+    private static final int NAME_LENGTH = 64;
+    private static final int DATE_LENGTH = 32;
+    private static final int LENGTH = NAME_LENGTH + DATE_LENGTH + 8 + 4;
+    private static final String CHARSET = "UTF-8";
+
+    private final String heroName;
+    private final String worldDate;
+    private final long playTime;
+    private final int locationCount;
+
+    private Metadata(String heroName, String worldDate, long playTime, int locationCount) {
+      this.heroName = heroName;
+      this.worldDate = worldDate;
+      this.playTime = playTime;
+      this.locationCount = locationCount;
+    }
+
+    private static Metadata of(GameState state) {
+      String heroName = state.getHero().getName().getSingular();
+      String worldDate = state.getWorld().getWorldDate().toString();
+      return new Metadata(heroName, worldDate, state.getPlayTime(), state.getWorld().getLocationCount());
+    }
+
+    private static Metadata read(DataInput in) throws IOException {
+      String heroName = readString(in, NAME_LENGTH);
+      String worldDate = readString(in, DATE_LENGTH);
+      return new Metadata(heroName, worldDate, in.readLong(), in.readInt());
+    }
+
+    /**
+     * Reads a string written by writeString.
+     */
+    private static String readString(DataInput in, int length) throws IOException {
+      int size = in.readUnsignedShort();
+      byte[] bytes = new byte[length - 2];
+      in.readFully(bytes);
+      if (size > bytes.length) {
+        throw new IOException("invalid string in the metadata of a save.");
+      }
+      return new String(bytes, 0, size, CHARSET);
+    }
+
+    /**
+     * Writes a string as its length followed by its UTF-8 bytes, padded to the specified length. Strings that do not
+     * fit are shortened.
+     */
+    private static void writeString(DataOutputStream out, String string, int length) throws IOException {
+      byte[] bytes = string.getBytes(CHARSET);
+      while (bytes.length > length - 2) {
+        string = string.substring(0, string.length() - 1);
+        bytes = string.getBytes(CHARSET);
+      }
+      out.writeShort(bytes.length);
+      out.write(bytes);
+      out.write(new byte[length - 2 - bytes.length]);
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      writeString(out, heroName, NAME_LENGTH);
+      writeString(out, worldDate, DATE_LENGTH);
+      out.writeLong(playTime);
+      out.writeInt(locationCount);
+    }
+
+    public String getHeroName() {
+      return heroName;
+    }
+
+    public String getWorldDate() {
+      return worldDate;
+    }
+
+    /**
+     * Returns for how long the game had been played when it was saved, in milliseconds.
+     */
+    public long getPlayTime() {
+      return playTime;
+    }
+
+    public int getLocationCount() {
+      return locationCount;
+    }
+
+  }
+
+  private static class CoreOutputStream extends ObjectOutputStream {
+
+    CoreOutputStream(OutputStream out) throws IOException {
+      super(out);
+      enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(Object object) {
+      return object instanceof Location ? LocationReference.INSTANCE : object;
+    }
+
+  }
+
+  private static class CoreInputStream extends ObjectInputStream {
+
+    CoreInputStream(InputStream in) throws IOException {
+      super(in);
+      enableResolveObject(true);
+    }
+
+    @Override
+    protected Object resolveObject(Object object) {
+      return object == LocationReference.INSTANCE ? null : object;
+    }
+
+  }
+
+  /**
+   * What a save needs to write, taken from a GameState at once so that the game can go on while it is written.
+   */
+  public static final class Capture implements ChunkedLocationStore.ChunkVisitor {
+
+    private final GameState state;
+    private final File snapshot;
+    private final long lineage;
+    private final boolean complete;
+    private final Codec codec;
+    private final Metadata metadata;
+    private final long modificationCount;
+    private final List<Long> keys = new ArrayList<Long>();
+    // For every key, either the serialized chunk or null if the chunk is in the region file or in a save file.
+    private final List<byte[]> chunks = new ArrayList<byte[]>();
+    // For every key, the save file that has the compressed chunk or null.
+    private final List<File> files = new ArrayList<File>();
+    private final List<Long> offsets = new ArrayList<Long>();
+    private final List<Integer> lengths = new ArrayList<Integer>();
+    private final List<Integer> uncompressedLengths = new ArrayList<Integer>();
+    // Opened when the save is captured, so that the chunks can be read while the game goes on.
+    private final Map<File, RandomAccessFile> savedFiles = new HashMap<File, RandomAccessFile>();
+    private byte[] core;
+    private RandomAccessFile regionFile;
+
+    private Capture(GameState state, File snapshot, long lineage, boolean complete, Codec codec, Metadata metadata) {
+      this.state = state;
+      this.snapshot = snapshot;
+      this.lineage = lineage;
+      this.complete = complete;
+      this.codec = codec;
+      this.metadata = metadata;
+      this.modificationCount = state.getModificationCount();
+    }
+
+    public GameState getGameState() {
+      return state;
+    }
+
+    public File getSnapshot() {
+      return snapshot;
+    }
+
+    /**
+     * Returns the modification count of the GameState when it was captured.
+     */
+    public long getModificationCount() {
+      return modificationCount;
+    }
+
+    private void add(long key, byte[] bytes, File file, long offset, int length, int uncompressedLength) {
+      keys.add(key);
+      chunks.add(bytes);
+      files.add(file);
+      offsets.add(offset);
+      lengths.add(length);
+      uncompressedLengths.add(uncompressedLength);
+    }
+
+    @Override
+    public void visit(long key, byte[] bytes) {
+      add(key, bytes, null, 0, bytes.length, bytes.length);
+    }
+
+    @Override
+    public void visitEvicted(long key, long offset, int length) throws IOException {
+      if (regionFile == null) {
+        regionFile = state.getWorld().openRegionFileForReading();
+      }
+      add(key, null, null, offset, length, length);
+    }
+
+    @Override
+    public void visitSaved(long key, File file, long offset, int length, int uncompressedLength) throws IOException {
+      if (!savedFiles.containsKey(file)) {
+        savedFiles.put(file, new RandomAccessFile(file, "r"));
+      }
+      add(key, null, file, offset, length, uncompressedLength);
+    }
+
+    private void writeRecords(SaveFileWriter writer) throws IOException {
+      writer.writeCore(core);
+      for (int i = 0; i < keys.size(); i++) {
+        byte[] bytes = chunks.get(i);
+        File file = files.get(i);
+        if (bytes == null) {
+          RandomAccessFile source = file == null ? regionFile : savedFiles.get(file);
+          bytes = new byte[lengths.get(i)];
+          source.seek(offsets.get(i));
+          source.readFully(bytes);
+        }
+        if (file == null) {
+          writer.writeChunk(keys.get(i), bytes);
+        } else {
+          // Chunks that are still in a save file are copied without being decompressed.
+          writer.writeCompressedChunk(keys.get(i), uncompressedLengths.get(i), bytes);
+        }
+      }
+      writer.writeCommit(metadata);
+    }
+
+    private void close() throws IOException {
+      if (regionFile != null) {
+        regionFile.close();
+        regionFile = null;
+      }
+      for (RandomAccessFile file : savedFiles.values()) {
+        file.close();
+      }
+      savedFiles.clear();
+    }
+
+  }
+
+  /**
+   * The newest committed core and chunks of a save, by where they are in its files.
+   *
+   * <p>The Index of a loaded game is the source of the chunks that its World did not read yet.
+   */
+  private static class Index implements ChunkedLocationStore.ChunkSource {
+
+    private final File snapshot;
+    private final Map<Long, Record> chunks = new HashMap<Long, Record>();
+    private final Map<File, RandomAccessFile> files = new HashMap<File, RandomAccessFile>();
+    private final Inflater inflater = new Inflater();
+    private Record core;
+    // The totals and the Metadata of the newest save that was indexed.
+    private long uncompressedByteCount;
+    private long compressedByteCount;
+    private Metadata metadata;
+    private boolean registered;
+
+    Index(File snapshot) {
+      this.snapshot = snapshot;
+    }
+
+    /**
+     * Prevents the snapshot from being compacted until this Index is closed.
+     */
+    void register() {
+      OPEN_SNAPSHOTS.add(snapshot);
+      registered = true;
+    }
+
+    @Override
+    public boolean contains(long key) {
+      return chunks.containsKey(key);
+    }
+
+    @Override
+    public byte[] read(long key) throws IOException {
+      Record record = chunks.get(key);
+      if (record == null) {
+        throw new IllegalArgumentException("there is no chunk " + key + " in " + snapshot.getName() + ".");
+      }
+      byte[] bytes = inflate(record);
+      chunks.remove(key);
+      return bytes;
+    }
+
+    @Override
+    public long[] getKeys() {
+      long[] keys = new long[chunks.size()];
+      int count = 0;
+      for (long key : chunks.keySet()) {
+        keys[count++] = key;
+      }
+      return keys;
+    }
+
+    @Override
+    public int getChunkCount() {
+      return chunks.size();
+    }
+
+    @Override
+    public boolean isBackedBy(File snapshot) {
+      return this.snapshot.equals(snapshot);
+    }
+
+    @Override
+    public void visit(ChunkedLocationStore.ChunkVisitor visitor) throws IOException {
+      for (Map.Entry<Long, Record> entry : chunks.entrySet()) {
+        Record record = entry.getValue();
+        visitor.visitSaved(entry.getKey(), record.file, record.offset, record.length, record.uncompressedLength);
+      }
+    }
+
+    /**
+     * Reads the compressed bytes of a record, keeping its file open for the records that follow.
+     */
+    byte[] readCompressed(Record record) throws IOException {
+      RandomAccessFile file = files.get(record.file);
+      if (file == null) {
+        file = new RandomAccessFile(record.file, "r");
+        files.put(record.file, file);
+      }
+      byte[] bytes = new byte[record.length];
+      file.seek(record.offset);
+      file.readFully(bytes);
+      return bytes;
+    }
+
+    /**
+     * Reads and decompresses the bytes of a record.
+     */
+    byte[] inflate(Record record) throws IOException {
+      byte[] bytes = new byte[record.uncompressedLength];
+      inflater.reset();
+      inflater.setInput(readCompressed(record));
+      try {
+        int length = 0;
+        while (length < bytes.length && !inflater.finished()) {
+          int inflated = inflater.inflate(bytes, length, bytes.length - length);
+          if (inflated == 0 && inflater.needsInput()) {
+            break;
+          }
+          length += inflated;
+        }
+        if (length != bytes.length) {
+          throw new IOException("a record of " + record.file.getName() + " is shorter than it should be.");
+        }
+      } catch (DataFormatException exception) {
+        throw new IOException("a record of " + record.file.getName() + " is corrupted.", exception);
+      }
+      return bytes;
+    }
+
+    /**
+     * Opens a stream that decompresses a record as it is read from its file. The stream must be closed by the caller.
+     */
+    InputStream open(Record record) throws IOException {
+      FileInputStream stream = new FileInputStream(record.file);
+      try {
+        stream.getChannel().position(record.offset);
+      } catch (IOException exception) {
+        stream.close();
+        throw exception;
+      }
+      return new InflaterInputStream(new BufferedInputStream(stream));
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (registered) {
+        OPEN_SNAPSHOTS.remove(snapshot);
+        registered = false;
+      }
+      inflater.end();
+      for (RandomAccessFile file : files.values()) {
+        file.close();
+      }
+      files.clear();
+    }
+
+  }
+
+  private static class Record {
+
+    private final File file;
+    private final long offset;
+    private final int length;
+    private final int uncompressedLength;
+
+    Record(File file, long offset, int length, int uncompressedLength) {
+      this.file = file;
+      this.offset = offset;
+      this.length = length;
+      this.uncompressedLength = uncompressedLength;
+    }
+
+  }
+
+  private static class Header {
+
+    private final long lineage;
+    private final Codec codec;
+    private final long uncompressedByteCount;
+    private final long compressedByteCount;
+    // Zero for journals, which do not have a directory.
+    private final long directoryOffset;
+    private final Metadata metadata;
+
+    Header(long lineage, Codec codec, long[] counts, long directoryOffset, Metadata metadata) {
+      this.lineage = lineage;
+      this.codec = codec;
+      this.uncompressedByteCount = counts[0];
+      this.compressedByteCount = counts[1];
+      this.directoryOffset = directoryOffset;
+      this.metadata = metadata;
+    }
+
+  }
+
+  /**
+   * Streams records to the end of a file, compressing them one at a time.
+   */
+  private static class SaveFileWriter {
+
+    private final CRC32 checksum = new CRC32();
+    private final RandomAccessFile file;
+    private final DataOutputStream out;
+    private final Codec codec;
+    private final Deflater deflater;
+    private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    private final byte[] buffer = new byte[8192];
+    private final File path;
+    // Where the records written by this writer are, so that snapshots can end with a directory of them.
+    private final Map<Long, Record> chunks = new LinkedHashMap<Long, Record>();
+    private Record core;
+    private long uncompressedByteCount;
+    private long compressedByteCount;
+    // The byte counts when the last commit was written, so that each commit records the bytes of its own records.
+    private long committedUncompressedByteCount;
+    private long committedCompressedByteCount;
+    private long position;
+    private long directoryOffset;
+
+    SaveFileWriter(File path, Codec codec) throws IOException {
+      this.path = path;
+      this.file = new RandomAccessFile(path, "rw");
+      this.codec = codec;
+      this.deflater = new Deflater(codec.level);
+      position = file.length();
+      file.seek(position);
+      OutputStream stream = Channels.newOutputStream(file.getChannel());
+      out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(stream), checksum));
+    }
+
+    /**
+     * Replaces whatever the file had with a header. The byte counts and the metadata of a snapshot are written by
+     * finish.
+     */
+    void writeHeader(long lineage) throws IOException {
+      file.setLength(0);
+      file.seek(0);
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(lineage);
+      out.writeByte(codec.ordinal());
+      out.write(new byte[HEADER_LENGTH - BYTE_COUNTS_OFFSET]);
+      checksum.reset();
+      position = HEADER_LENGTH;
+    }
+
+    void writeChunk(long key, byte[] bytes) throws IOException {
+      writeCompressedChunk(key, bytes.length, compress(bytes));
+    }
+
+    void writeCompressedChunk(long key, int uncompressedLength, byte[] bytes) throws IOException {
+      out.writeByte(CHUNK);
+      out.writeLong(key);
+      position += 1 + 8;
+      chunks.put(key, writePayload(uncompressedLength, bytes));
+    }
+
+    void writeCore(byte[] bytes) throws IOException {
+      writeCompressedCore(bytes.length, compress(bytes));
+    }
+
+    void writeCompressedCore(int uncompressedLength, byte[] bytes) throws IOException {
+      out.writeByte(CORE);
+      position += 1;
+      core = writePayload(uncompressedLength, bytes);
+    }
+
+    private Record writePayload(int uncompressedLength, byte[] bytes) throws IOException {
+      out.writeInt(uncompressedLength);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+      uncompressedByteCount += uncompressedLength;
+      compressedByteCount += bytes.length;
+      Record record = new Record(path, position + 4 + 4, bytes.length, uncompressedLength);
+      position += 4 + 4 + bytes.length;
+      return record;
+    }
+
+    private byte[] compress(byte[] bytes) {
+      deflater.reset();
+      deflater.setInput(bytes);
+      deflater.finish();
+      compressed.reset();
+      while (!deflater.finished()) {
+        compressed.write(buffer, 0, deflater.deflate(buffer));
+      }
+      return compressed.toByteArray();
+    }
+
+    /**
+     * Ends a save with the byte counts of its records and its Metadata, followed by the checksum of everything written
+     * since the header or the previous commit.
+     */
+    void writeCommit(Metadata metadata) throws IOException {
+      out.writeByte(COMMIT);
+      out.writeLong(uncompressedByteCount - committedUncompressedByteCount);
+      out.writeLong(compressedByteCount - committedCompressedByteCount);
+      metadata.write(out);
+      out.writeLong(checksum.getValue());
+      checksum.reset();
+      committedUncompressedByteCount = uncompressedByteCount;
+      committedCompressedByteCount = compressedByteCount;
+      position += 1 + 8 + 8 + Metadata.LENGTH + 8;
+    }
+
+    /**
+     * Ends a snapshot with the positions of the core and of every chunk written by this writer, followed by their
+     * checksum, so that loading the snapshot does not have to scan it.
+     */
+    void writeDirectory() throws IOException {
+      if (core == null) {
+        throw new IllegalStateException("a directory needs a core.");
+      }
+      directoryOffset = position;
+      checksum.reset();
+      out.writeInt(chunks.size());
+      out.writeLong(core.offset);
+      out.writeInt(core.length);
+      out.writeInt(core.uncompressedLength);
+      for (Map.Entry<Long, Record> entry : chunks.entrySet()) {
+        out.writeLong(entry.getKey());
+        out.writeLong(entry.getValue().offset);
+        out.writeInt(entry.getValue().length);
+        out.writeInt(entry.getValue().uncompressedLength);
+      }
+      out.writeLong(checksum.getValue());
+      checksum.reset();
+      position += 4 + 16 + chunks.size() * 24L + 8;
+    }
+
+    /**
+     * Flushes the records of a snapshot, writes their byte counts, the offset of the directory and the metadata to its
+     * header and returns only after the file is durable. Snapshots are written to a temporary file, so the header is
+     * complete before the snapshot is put in place.
+     */
+    void finish(Metadata metadata) throws IOException {
+      if (directoryOffset == 0) {
+        throw new IllegalStateException("only snapshots are finished.");
+      }
+      out.flush();
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_LENGTH - BYTE_COUNTS_OFFSET);
+      DataOutputStream header = new DataOutputStream(bytes);
+      header.writeLong(uncompressedByteCount);
+      header.writeLong(compressedByteCount);
+      header.writeLong(directoryOffset);
+      metadata.write(header);
+      file.seek(BYTE_COUNTS_OFFSET);
+      file.write(bytes.toByteArray());
+      sync();
+    }
+
+    /**
+     * Flushes the records and returns only after the file is durable.
+     */
+    void sync() throws IOException {
+      out.flush();
+      file.getFD().sync();
+    }
+
+    void close() throws IOException {
+      deflater.end();
+      file.close();
+    }
+
+  }
+
+  private static class SaveFileReader {
+
+    private final File file;
+    private final CRC32 checksum = new CRC32();
+    private final DataInputStream in;
+    private long position;
+
+    SaveFileReader(File file) throws IOException {
+      this.file = file;
+      in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), checksum));
+    }
+
+    Header readHeader() throws IOException {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException(file.getName() + " is not a save file of this version.");
+      }
+      long lineage = in.readLong();
+      int codec = in.readUnsignedByte();
+      if (codec >= Codec.values().length) {
+        throw new IOException(file.getName() + " was written with an unknown codec.");
+      }
+      long[] counts = {in.readLong(), in.readLong()};
+      long directoryOffset = in.readLong();
+      Metadata metadata = Metadata.read(in);
+      Header header = new Header(lineage, Codec.values()[codec], counts, directoryOffset, metadata);
+      position = HEADER_LENGTH;
+      checksum.reset();
+      return header;
+    }
+
+    /**
+     * Adds the committed records that follow the header to the index, returning the length of the file up to the end of
+     * its last valid commit. The byte counts of every valid commit are added to the ones of the index and its Metadata
+     * replaces the one of the index.
+     */
+    long readCommittedRecords(Index index) throws IOException {
+      Map<Long, Record> pendingChunks = new HashMap<Long, Record>();
+      Record pendingCore = null;
+      long committed = position;
+      try {
+        for (int type = in.read(); type != -1; type = in.read()) {
+          position++;
+          if (type == CHUNK) {
+            long key = in.readLong();
+            position += 8;
+            pendingChunks.put(key, skipRecord());
+          } else if (type == CORE) {
+            pendingCore = skipRecord();
+          } else if (type == COMMIT) {
+            final long uncompressedByteCount = in.readLong();
+            final long compressedByteCount = in.readLong();
+            // The Metadata is only parsed once the checksum shows that it was written completely.
+            byte[] metadata = new byte[Metadata.LENGTH];
+            in.readFully(metadata);
+            long expected = checksum.getValue();
+            long stored = in.readLong();
+            position += 8 + 8 + Metadata.LENGTH + 8;
+            if (stored != expected) {
+              break;
+            }
+            index.uncompressedByteCount += uncompressedByteCount;
+            index.compressedByteCount += compressedByteCount;
+            index.metadata = Metadata.read(new DataInputStream(new ByteArrayInputStream(metadata)));
+            index.chunks.putAll(pendingChunks);
+            if (pendingCore != null) {
+              index.core = pendingCore;
+            }
+            pendingChunks.clear();
+            pendingCore = null;
+            committed = position;
+            checksum.reset();
+          } else {
+            break;
+          }
+        }
+      } catch (EOFException interrupted) {
+        // The last save was interrupted, its records are ignored.
+      }
+      return committed;
+    }
+
+    private Record skipRecord() throws IOException {
+      int uncompressedLength = in.readInt();
+      int length = in.readInt();
+      position += 8;
+      if (uncompressedLength < 0 || length < 0 || in.skipBytes(length) != length) {
+        throw new EOFException();
+      }
+      Record record = new Record(file, position, length, uncompressedLength);
+      position += length;
+      return record;
+    }
+
+    void close() throws IOException {
+      in.close();
+    }
+
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.util.Percentage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A small, fast and explicitly seeded RandomSource based on SplitMix64. Drawing from it neither allocates nor
+ * synchronizes.
+ *
+ * <p>Instances are not thread-safe and are meant to be confined to a single thread or task, such as the generation of a
+ * chunk. The static methods derive seeds and hash coordinates so that what is generated for a region of the world
+ * depends only on the world seed and on the coordinates of the region.
+ */
+public final class SeededRandom implements RandomSource, Serializable {
+
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+  private long state;
+
+  /**
+   * Makes a new SeededRandom. Two SeededRandoms made with the same seed produce the same values.
+   */
+  public SeededRandom(long seed) {
+    this.state = seed;
+  }
+
+  /**
+   * Mixes the bits of a long so that close inputs produce unrelated outputs.
+   */
+  static long mix(long value) {
+    long z = value;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Derives a new seed from a seed and a value.
+   */
+  static long deriveSeed(long seed, long value) {
+    return mix(seed + GOLDEN_GAMMA * mix(value + GOLDEN_GAMMA));
+  }
+
+  /**
+   * Derives a new seed from a seed and two values.
+   */
+  static long deriveSeed(long seed, long first, long second) {
+    return deriveSeed(deriveSeed(seed, first), second);
+  }
+
+  /**
+   * Returns a uniformly distributed double in the range [0, 1) that only depends on the provided arguments.
+   */
+  static double hashToDouble(long seed, int x, int y) {
+    return (deriveSeed(seed, x, y) >>> 11) * DOUBLE_UNIT;
+  }
+
+  /**
+   * Returns a uniformly distributed int in the range [0, bound) that only depends on the provided arguments.
+   */
+  static int hashToInteger(long seed, long index, int bound) {
+    return (int) ((deriveSeed(seed, index) >>> 1) % bound);
+  }
+
+  @Override
+  public long nextLong() {
+    state += GOLDEN_GAMMA;
+    return mix(state);
+  }
+
+  @Override
+  public double nextDouble() {
+    return (nextLong() >>> 11) * DOUBLE_UNIT;
+  }
+
+  @Override
+  public int nextInteger(int n) {
+    if (n <= 0) {
+      throw new IllegalArgumentException("n must be positive.");
+    }
+    return (int) ((nextLong() >>> 1) % n);
+  }
+
+  @Override
+  public boolean nextBoolean() {
+    return nextLong() < 0;
+  }
+
+  @Override
+  public boolean roll(double chance) {
+    return chance > nextDouble();
+  }
+
+  @Override
+  public boolean roll(@NotNull Percentage chance) {
+    return roll(chance.toDouble());
+  }
+
+  @Override
+  public <T> T select(@NotNull List<T> list) {
+    if (list.isEmpty()) {
+      throw new IllegalArgumentException("list is empty.");
+    }
+    return list.get(nextInteger(list.size()));
+  }
+
+  @Override
+  public SeededRandom split() {
+    return new SeededRandom(nextLong());
+  }
+
+}
@@ -22,6 +22,7 @@ import org.mafagafogigante.dungeon.entity.creatures.CreatureFactory;
 import org.mafagafogigante.dungeon.logging.DungeonLogger;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * Spawner class that repopulates locations.
@@ -34,6 +35,8 @@ class Spawner implements Serializable {
   private final Location location;
   // A change can be either the spawn of a creature or the end of the population limit.
   private long lastChange;
+  // The time of the next spawn for which a refresh was last scheduled, so that it is not scheduled again.
+  private long scheduledSpawn;
 
   public Spawner(SpawnerPreset preset, Location location) {
     id = preset.id;
@@ -46,20 +49,43 @@ class Spawner implements Serializable {
   /**
    * Refresh the spawner, spawning all creatures that should have spawned since the last spawn.
    *
-   * <p>Only spawners in locations whose creatures are visible to the player should be refreshed.
+   * <p>Unless the whole world is simulated, only spawners in locations whose creatures are visible to the player should
+   * be refreshed.
    */
   public void refresh() {
-    long worldTime = getWorldTime();
-    while (worldTime - lastChange >= spawnDelay && location.getCreatureCount(id) < populationLimit) {
-      Creature creature = CreatureFactory.makeCreature(id);
-      if (creature != null) {
-        location.addCreature(creature);
-      } else {
-        DungeonLogger.warning("Could not find the creature preset for " + id + ".");
+    // How many spawns could have happened since the last change if there were no population limit.
+    long elapsedDelays = (getWorldTime() - lastChange) / spawnDelay;
+    if (elapsedDelays > 0) {
+      int vacancies = populationLimit - location.getCreatureCount(id);
+      if (vacancies > 0) {
+        int spawns = (int) Math.min(elapsedDelays, vacancies);
+        List<Creature> creatures = CreatureFactory.makeCreatures(id, spawns);
+        if (creatures != null) {
+          for (Creature creature : creatures) {
+            location.addCreature(creature);
+            location.scheduleDecomposition(creature.getInventory().getItems());
+          }
+          // Simulate that each creature was spawned just when it should have been.
+          lastChange += spawns * (long) spawnDelay;
+        } else {
+          DungeonLogger.warning("Could not find the creature preset for " + id + ".");
+          // The population never grows, so every elapsed delay is spent. This also avoids retrying on every refresh.
+          lastChange += elapsedDelays * spawnDelay;
+        }
       }
-      // Simulate that the creature was spawned just when it should have been.
-      // Do not prevent this modification if making the creature was unsuccessful to avoid an infinite loop.
-      lastChange += spawnDelay;
+    }
+    schedule();
+  }
+
+  /**
+   * Schedules a refresh of the location of this spawner for the time of the next spawn, if there will be one and it
+   * has not been scheduled yet.
+   */
+  void schedule() {
+    long nextSpawn = lastChange + spawnDelay;
+    if (nextSpawn != scheduledSpawn && location.getCreatureCount(id) < populationLimit) {
+      scheduledSpawn = nextSpawn;
+      location.getWorld().scheduleRefresh(location.getPoint(), nextSpawn);
     }
   }
 
@@ -73,6 +99,10 @@ class Spawner implements Serializable {
     }
   }
 
+  long getLastChange() {
+    return lastChange;
+  }
+
   /**
    * Returns the time, in milliseconds, of the World of the Location that this Spawner is in.
    */
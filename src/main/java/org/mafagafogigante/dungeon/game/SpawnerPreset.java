@@ -33,7 +33,7 @@ class SpawnerPreset {
    * @param delayInHours the spawn delay, in hours
    */
   public SpawnerPreset(String id, int population, int delayInHours) {
-    this.id = new Id(id);
+    this.id = new Id(id).intern();
     this.population = population;
     this.spawnDelay = delayInHours * (int) DungeonTimeUnit.HOUR.milliseconds;
   }
@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A hierarchical timing wheel of events that are due at a given world time and happen at a Point of the World.
+ *
+ * <p>Time is divided into ticks of one second. Each of the levels of the wheel has 64 slots and each slot of a level
+ * spans 64 times as many ticks as a slot of the level below it. An event is kept in the lowest level in which its tick
+ * and the current tick only differ in the bits of that level, so advancing the wheel only cascades the slots it goes
+ * through. Each level keeps the slots that have events in a bit mask, so empty slots are skipped entirely and the cost
+ * of advancing depends on the number of events rather than on how much time passed.
+ *
+ * <p>Events are stored in parallel primitive arrays and chained into singly linked lists by index, so scheduling and
+ * advancing do not allocate objects other than the Points of the events that are due.
+ */
+final class TimingWheel implements Serializable {
+
+  private static final long TICK_MILLISECONDS = 1000;
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS = 1 << SLOT_BITS;
+  private static final int LEVELS = 5;
+  private static final int NONE = -1;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private long currentTick;
+  private transient long[] ticks;
+  private transient int[] xs;
+  private transient int[] ys;
+  private transient int[] zs;
+  private transient int[] next;
+  private transient int freeHead;
+  private transient int[] slotHeads;
+  private transient long[] occupiedSlots;
+  // Events that were already due when they were scheduled or that became due while cascading.
+  private transient int dueHead;
+  // Events too far in the future for the wheel.
+  private transient int overflowHead;
+  private transient int size;
+
+  /**
+   * Makes an empty wheel whose current time is the specified world time.
+   */
+  TimingWheel(long currentMillis) {
+    if (currentMillis < 0) {
+      throw new IllegalArgumentException("the current time must be nonnegative.");
+    }
+    currentTick = currentMillis / TICK_MILLISECONDS;
+    initialize(INITIAL_CAPACITY);
+  }
+
+  private static int getSlot(long tick, int level) {
+    return (int) (tick >>> (level * SLOT_BITS)) & (SLOTS - 1);
+  }
+
+  private static int[] copyOf(int[] array, int length) {
+    int[] copy = new int[length];
+    System.arraycopy(array, 0, copy, 0, array.length);
+    return copy;
+  }
+
+  private void initialize(int capacity) {
+    ticks = new long[capacity];
+    xs = new int[capacity];
+    ys = new int[capacity];
+    zs = new int[capacity];
+    next = new int[capacity];
+    for (int i = 0; i < capacity; i++) {
+      next[i] = i + 1 < capacity ? i + 1 : NONE;
+    }
+    freeHead = 0;
+    slotHeads = new int[LEVELS * SLOTS];
+    for (int i = 0; i < slotHeads.length; i++) {
+      slotHeads[i] = NONE;
+    }
+    occupiedSlots = new long[LEVELS];
+    dueHead = NONE;
+    overflowHead = NONE;
+    size = 0;
+  }
+
+  private int allocate() {
+    if (freeHead == NONE) {
+      int capacity = ticks.length;
+      int newCapacity = 2 * capacity;
+      long[] newTicks = new long[newCapacity];
+      System.arraycopy(ticks, 0, newTicks, 0, capacity);
+      ticks = newTicks;
+      xs = copyOf(xs, newCapacity);
+      ys = copyOf(ys, newCapacity);
+      zs = copyOf(zs, newCapacity);
+      next = copyOf(next, newCapacity);
+      for (int i = capacity; i < newCapacity; i++) {
+        next[i] = i + 1 < newCapacity ? i + 1 : NONE;
+      }
+      freeHead = capacity;
+    }
+    int index = freeHead;
+    freeHead = next[index];
+    return index;
+  }
+
+  private void release(int index) {
+    next[index] = freeHead;
+    freeHead = index;
+  }
+
+  /**
+   * Schedules an event at the specified point for the specified world time. Events scheduled for a time that has
+   * already passed are due in the next call to advance.
+   *
+   * @param dueMillis the world time at which the event is due, in milliseconds, nonnegative
+   * @param point the Point of the event, not null
+   */
+  void schedule(long dueMillis, Point point) {
+    if (dueMillis < 0) {
+      throw new IllegalArgumentException("the due time must be nonnegative.");
+    }
+    int index = allocate();
+    // Round up, so that an event is never due before its time.
+    ticks[index] = (dueMillis + TICK_MILLISECONDS - 1) / TICK_MILLISECONDS;
+    xs[index] = point.getX();
+    ys[index] = point.getY();
+    zs[index] = point.getZ();
+    insert(index);
+    size++;
+  }
+
+  /**
+   * Places an event in the list where it belongs given the current tick.
+   */
+  private void insert(int index) {
+    long tick = ticks[index];
+    if (tick <= currentTick) {
+      next[index] = dueHead;
+      dueHead = index;
+      return;
+    }
+    int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(tick ^ currentTick)) / SLOT_BITS;
+    if (level >= LEVELS) {
+      next[index] = overflowHead;
+      overflowHead = index;
+    } else {
+      int slot = getSlot(tick, level);
+      next[index] = slotHeads[level * SLOTS + slot];
+      slotHeads[level * SLOTS + slot] = index;
+      occupiedSlots[level] |= 1L << slot;
+    }
+  }
+
+  /**
+   * Advances the wheel to the specified world time, adding the points of all the events that are due to a list.
+   *
+   * <p>The points are added in the order in which their events became due, and events that are due at the same tick are
+   * added in no particular order. A point is added once for each event, so it may be added more than once.
+   *
+   * @param currentMillis the current world time, in milliseconds
+   * @param due the List to which the points of the events that are due are added
+   */
+  void advance(long currentMillis, List<Point> due) {
+    long targetTick = Math.max(currentTick, currentMillis / TICK_MILLISECONDS);
+    drainDueEvents(due);
+    while (true) {
+      int level = 0;
+      long pendingSlots = 0;
+      while (level < LEVELS && pendingSlots == 0) {
+        // Only slots after the one of the current tick may have events.
+        pendingSlots = occupiedSlots[level] & (-2L << getSlot(currentTick, level));
+        if (pendingSlots == 0) {
+          level++;
+        }
+      }
+      if (level == LEVELS) {
+        if (overflowHead == NONE || getEarliestOverflowTick() > targetTick) {
+          break;
+        }
+        currentTick = getEarliestOverflowTick();
+        reinsertOverflow();
+      } else {
+        int slot = Long.numberOfTrailingZeros(pendingSlots);
+        int shift = (level + 1) * SLOT_BITS;
+        long slotStart = (currentTick >>> shift << shift) | ((long) slot << (level * SLOT_BITS));
+        if (slotStart > targetTick) {
+          break;
+        }
+        currentTick = slotStart;
+        cascade(level, slot);
+      }
+      drainDueEvents(due);
+    }
+    long previousTick = currentTick;
+    currentTick = targetTick;
+    if ((previousTick >>> (LEVELS * SLOT_BITS)) != (targetTick >>> (LEVELS * SLOT_BITS))) {
+      reinsertOverflow();
+    }
+  }
+
+  /**
+   * Moves all the events of a slot to the lists where they belong given the current tick.
+   */
+  private void cascade(int level, int slot) {
+    int index = slotHeads[level * SLOTS + slot];
+    slotHeads[level * SLOTS + slot] = NONE;
+    occupiedSlots[level] &= ~(1L << slot);
+    while (index != NONE) {
+      int following = next[index];
+      insert(index);
+      index = following;
+    }
+  }
+
+  private long getEarliestOverflowTick() {
+    long earliest = Long.MAX_VALUE;
+    for (int index = overflowHead; index != NONE; index = next[index]) {
+      earliest = Math.min(earliest, ticks[index]);
+    }
+    return earliest;
+  }
+
+  private void reinsertOverflow() {
+    int index = overflowHead;
+    overflowHead = NONE;
+    while (index != NONE) {
+      int following = next[index];
+      insert(index);
+      index = following;
+    }
+  }
+
+  private void drainDueEvents(List<Point> due) {
+    while (dueHead != NONE) {
+      int index = dueHead;
+      dueHead = next[index];
+      due.add(new Point(xs[index], ys[index], zs[index]));
+      release(index);
+      size--;
+    }
+  }
+
+  /**
+   * Returns how many events have not been returned by advance yet.
+   */
+  int size() {
+    return size;
+  }
+
+  private void writeObject(ObjectOutputStream stream) throws IOException {
+    stream.defaultWriteObject();
+    stream.writeInt(size);
+    for (int index = dueHead; index != NONE; index = next[index]) {
+      writeEvent(stream, index);
+    }
+    for (int index = overflowHead; index != NONE; index = next[index]) {
+      writeEvent(stream, index);
+    }
+    for (int head : slotHeads) {
+      for (int index = head; index != NONE; index = next[index]) {
+        writeEvent(stream, index);
+      }
+    }
+  }
+
+  private void writeEvent(ObjectOutputStream stream, int index) throws IOException {
+    stream.writeLong(ticks[index]);
+    stream.writeInt(xs[index]);
+    stream.writeInt(ys[index]);
+    stream.writeInt(zs[index]);
+  }
+
+  private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+    stream.defaultReadObject();
+    int count = stream.readInt();
+    initialize(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, count)) * 2));
+    for (int i = 0; i < count; i++) {
+      int index = allocate();
+      ticks[index] = stream.readLong();
+      xs[index] = stream.readInt();
+      ys[index] = stream.readInt();
+      zs[index] = stream.readInt();
+      insert(index);
+      size++;
+    }
+  }
+
+}
@@ -19,36 +19,61 @@ package org.mafagafogigante.dungeon.game;
 
 import org.mafagafogigante.dungeon.date.Date;
 import org.mafagafogigante.dungeon.date.DungeonTimeUnit;
+import org.mafagafogigante.dungeon.entity.creatures.Hero;
 import org.mafagafogigante.dungeon.logging.DungeonLogger;
 import org.mafagafogigante.dungeon.stats.WorldStatistics;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 public class World implements Serializable {
 
   private final WorldGenerator generator;
 
-  private final Map<Point, Location> locations;
+  private final ChunkedLocationStore locations;
 
   private final WorldStatistics worldStatistics;
+  private final long seed;
   private final Date worldCreationDate = new Date(1, 1, 1);
-  private Date worldDate = new Date(2055, 6, 2, 6, 10, 0);
+  // Read by the thread that pregenerates chunks, as the creation date of the items it makes.
+  private volatile Date worldDate = new Date(2055, 6, 2, 6, 10, 0);
+  // The times at which Locations away from the Hero need to be refreshed, if the whole world is simulated.
+  private final TimingWheel refreshes = new TimingWheel(worldDate.getTime());
+  private transient ChunkPregenerator pregenerator;
 
   /**
-   * Creates a new World.
+   * Creates a new World with a random seed.
    *
    * @param statistics a WorldStatistics object on which this World will record its status
    */
   public World(WorldStatistics statistics) {
+    this(statistics, Random.nextLong());
+  }
+
+  /**
+   * Creates a new World. Worlds with the same seed have the same locations, regardless of the order in which they are
+   * generated.
+   *
+   * @param statistics a WorldStatistics object on which this World will record its status
+   * @param seed the seed from which every chunk of this World is generated
+   */
+  public World(WorldStatistics statistics, long seed) {
     worldStatistics = statistics;
-    locations = new HashMap<Point, Location>();
+    this.seed = seed;
+    locations = new ChunkedLocationStore(this);
     generator = new WorldGenerator(this);
   }
 
+  public long getSeed() {
+    return seed;
+  }
+
   public Date getWorldCreationDate() {
     return worldCreationDate;
   }
@@ -57,11 +82,34 @@ public class World implements Serializable {
     return worldDate;
   }
 
+  /**
+   * Schedules a refresh of the Location at the specified Point for the specified world time. Does nothing unless the
+   * Engine simulates the whole world, as only then the refreshes are ever taken.
+   */
+  void scheduleRefresh(Point point, long millis) {
+    if (Engine.isSimulatingTheWholeWorld()) {
+      refreshes.schedule(millis, point);
+    }
+  }
+
+  /**
+   * Returns the Points of the Locations whose scheduled refreshes are due at the current world date.
+   */
+  List<Point> takeDueRefreshes() {
+    List<Point> due = new ArrayList<Point>();
+    refreshes.advance(worldDate.getTime(), due);
+    return due;
+  }
+
+  public int getScheduledRefreshCount() {
+    return refreshes.size();
+  }
+
   /**
    * Adds a Location to this World.
    */
   public void addLocation(Location locationObject, Point coordinates) {
-    if (locations.containsKey(coordinates)) {
+    if (locations.contains(coordinates)) {
       throw new IllegalStateException("tried to repeatedly add a location to " + coordinates + ".");
     }
     if (!locationObject.getWorld().equals(this)) {
@@ -72,7 +120,8 @@ public class World implements Serializable {
       Point point = locationObject.getPoint();
       throw new IllegalStateException("tried to add location with Point field " + point + " to " + coordinates + ".");
     }
-    locations.put(coordinates, locationObject);
+    locationObject.setCreationDate(worldDate);
+    locations.put(locationObject);
     worldStatistics.addLocation(locationObject.getName().getSingular());
   }
 
@@ -85,10 +134,196 @@ public class World implements Serializable {
    */
   @NotNull
   public Location getLocation(@NotNull Point point) {
-    if (!locations.containsKey(point)) {
-      generator.expand(point);
+    Location location = locations.get(point);
+    if (location == null) {
+      expand(point);
+      location = locations.get(point);
     }
-    return locations.get(point);
+    return location;
+  }
+
+  /**
+   * Ensures that the surface chunk above or at the specified Point exists, preferring a chunk that was generated in
+   * the background over generating it now.
+   */
+  private void expand(@NotNull Point point) {
+    int chunkX = LocationChunk.toChunkCoordinate(point.getX());
+    int chunkY = LocationChunk.toChunkCoordinate(point.getY());
+    if (!locations.containsChunk(chunkX, chunkY, 0)) {
+      GeneratedChunk chunk = pregenerator == null ? null : pregenerator.take(chunkX, chunkY);
+      if (chunk == null) {
+        chunk = generator.generateChunk(chunkX, chunkY);
+      }
+      addChunk(chunk);
+    }
+  }
+
+  /**
+   * Generates every missing surface chunk that intersects the rectangle with the specified corners, as well as the
+   * dungeons below them. The chunks are generated in parallel and then added to this World in a deterministic order.
+   */
+  public void generateRegion(int minimumX, int minimumY, int maximumX, int maximumY) {
+    if (minimumX > maximumX || minimumY > maximumY) {
+      throw new IllegalArgumentException("the minimum coordinates must not be bigger than the maximum coordinates.");
+    }
+    List<GeneratedChunk> chunks = new ArrayList<GeneratedChunk>();
+    int maximumChunkX = LocationChunk.toChunkCoordinate(maximumX);
+    int maximumChunkY = LocationChunk.toChunkCoordinate(maximumY);
+    for (int chunkX = LocationChunk.toChunkCoordinate(minimumX); chunkX <= maximumChunkX; chunkX++) {
+      for (int chunkY = LocationChunk.toChunkCoordinate(minimumY); chunkY <= maximumChunkY; chunkY++) {
+        if (!locations.containsChunk(chunkX, chunkY, 0)) {
+          chunks.add(new GeneratedChunk(chunkX, chunkY));
+        }
+      }
+    }
+    generator.generateChunks(chunks);
+    for (GeneratedChunk chunk : chunks) {
+      addChunk(chunk);
+    }
+  }
+
+  /**
+   * Adds the Locations of a GeneratedChunk to this World, unless the chunk has already been added.
+   */
+  private void addChunk(@NotNull GeneratedChunk chunk) {
+    if (!locations.containsChunk(chunk.getChunkX(), chunk.getChunkY(), 0)) {
+      for (Location location : chunk.getLocations()) {
+        addLocation(location, location.getPoint());
+      }
+      generator.registerDungeonEntrances(chunk);
+    }
+  }
+
+  /**
+   * Schedules the generation in the background of the missing chunks that are at most radius chunks away from the chunk
+   * of the specified Point, closest chunks first, and discards the ones that are farther away.
+   *
+   * <p>The chunks generated in the background are only added to this World when they are needed, so that when a chunk
+   * is added does not depend on how fast the background thread is. Must be invoked from the thread that modifies this
+   * World.
+   */
+  void pregenerateAround(@NotNull Point point, int radius) {
+    if (radius <= 0) {
+      return;
+    }
+    if (pregenerator == null) {
+      pregenerator = new ChunkPregenerator(generator);
+    }
+    int centerX = LocationChunk.toChunkCoordinate(point.getX());
+    int centerY = LocationChunk.toChunkCoordinate(point.getY());
+    pregenerator.discardFartherThan(centerX, centerY, radius);
+    for (int distance = 0; distance <= radius; distance++) {
+      for (int chunkX = centerX - distance; chunkX <= centerX + distance; chunkX++) {
+        for (int chunkY = centerY - distance; chunkY <= centerY + distance; chunkY++) {
+          boolean onRing = Math.max(Math.abs(chunkX - centerX), Math.abs(chunkY - centerY)) == distance;
+          if (onRing && !locations.containsChunk(chunkX, chunkY, 0)) {
+            pregenerator.request(chunkX, chunkY);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Stops generating chunks in the background. The World may still be used afterwards.
+   */
+  void stopPregeneration() {
+    if (pregenerator != null) {
+      pregenerator.shutdown();
+      pregenerator = null;
+    }
+  }
+
+  /**
+   * Prevents the chunks around the specified Point from being evicted from memory.
+   *
+   * <p>The chunk that contains the Hero must always be pinned, as faulting it back in would create a Location other
+   * than the one that the Hero is in.
+   */
+  void pinChunksAround(@NotNull Point point) {
+    locations.pin(LocationChunk.toChunkCoordinate(point.getX()), LocationChunk.toChunkCoordinate(point.getY()));
+  }
+
+  /**
+   * Marks the chunk that contains the specified Point as changed, so that it is written by the next save.
+   */
+  void markChunkDirty(@NotNull Point point) {
+    locations.markDirty(point);
+  }
+
+  /**
+   * Sets the Hero of this World, which is written to the chunks as a reference to the Hero of the save.
+   */
+  void setHero(Hero hero) {
+    locations.setHero(hero);
+  }
+
+  /**
+   * Passes the chunks that changed since the last save, or all chunks if all is true, to the specified visitor.
+   */
+  void visitChunks(@NotNull ChunkedLocationStore.ChunkVisitor visitor, boolean all) throws IOException {
+    locations.visitChunks(visitor, all);
+  }
+
+  /**
+   * Opens a read-only handle to the file that holds the evicted chunks, or returns null if nothing was evicted yet.
+   */
+  RandomAccessFile openRegionFileForReading() throws IOException {
+    return locations.openRegionFileForReading();
+  }
+
+  /**
+   * Forgets which chunks changed since the last save.
+   */
+  void clearDirtyChunks() {
+    locations.clearDirtyChunks();
+  }
+
+  /**
+   * Sets the source of the chunks of the save file this World was loaded from, from which chunks are read as they are
+   * needed.
+   */
+  void setSavedChunks(@NotNull ChunkedLocationStore.ChunkSource source) {
+    locations.setSavedChunks(source);
+  }
+
+  /**
+   * Returns whether or not this World still reads chunks from the specified save file.
+   */
+  boolean readsSavedChunksFrom(@NotNull File snapshot) {
+    return locations.readsSavedChunksFrom(snapshot);
+  }
+
+  /**
+   * Stops reading chunks from the save file this World was loaded from, so that the save file can be replaced.
+   */
+  void detachSavedChunks() throws IOException {
+    locations.detachSavedChunks();
+  }
+
+  /**
+   * Reads the chunks around the specified Point into memory.
+   */
+  void loadChunksAround(@NotNull Point point) {
+    int chunkX = LocationChunk.toChunkCoordinate(point.getX());
+    int chunkY = LocationChunk.toChunkCoordinate(point.getY());
+    locations.loadChunksAround(chunkX, chunkY, point.getZ());
+  }
+
+  /**
+   * Sets how many chunks this World keeps in memory before evicting the least recently used ones to disk.
+   */
+  void setChunkBudget(int chunkBudget) {
+    locations.setChunkBudget(chunkBudget);
+  }
+
+  /**
+   * Releases the resources held by this World, such as background threads and the file that holds the evicted chunks.
+   * The World must not be used afterwards.
+   */
+  void dispose() {
+    stopPregeneration();
+    locations.deleteRegionFile();
   }
 
   /**
@@ -117,7 +352,7 @@ public class World implements Serializable {
       return true;
     } else {
       if (point.getZ() == 0) {
-        generator.expand(point);
+        expand(point);
       }
       return alreadyHasLocationAt(point);
     }
@@ -128,7 +363,64 @@ public class World implements Serializable {
    * WorldGenerator.
    */
   public boolean alreadyHasLocationAt(Point point) {
-    return locations.containsKey(point);
+    return locations.contains(point);
+  }
+
+  /**
+   * Returns how many Locations this World has already created.
+   */
+  public int getLocationCount() {
+    return locations.getLocationCount();
+  }
+
+  /**
+   * Returns how many chunks of Locations this World has already created.
+   */
+  public int getChunkCount() {
+    return locations.getChunkCount();
+  }
+
+  /**
+   * Returns how many chunks of Locations are currently in memory.
+   */
+  public int getResidentChunkCount() {
+    return locations.getResidentChunkCount();
+  }
+
+  /**
+   * Returns how many chunks were not read from the save file yet.
+   */
+  public int getSavedChunkCount() {
+    return locations.getSavedChunkCount();
+  }
+
+  /**
+   * Returns how many chunks of Locations are currently evicted to disk.
+   */
+  public int getEvictedChunkCount() {
+    return locations.getEvictedChunkCount();
+  }
+
+  public int getChunkBudget() {
+    return locations.getChunkBudget();
+  }
+
+  /**
+   * Returns how many bytes the file that holds the evicted chunks occupies on disk.
+   */
+  public long getRegionFileLength() {
+    return locations.getRegionFileLength();
+  }
+
+  public PagingStatistics getPagingStatistics() {
+    return locations.getPagingStatistics();
+  }
+
+  /**
+   * Returns an estimate of how many bytes are used to index the Locations of this World.
+   */
+  public long getLocationStoreFootprint() {
+    return locations.getMemoryFootprint();
   }
 
 }
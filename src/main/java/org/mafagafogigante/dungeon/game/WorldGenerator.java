@@ -19,80 +19,182 @@ package org.mafagafogigante.dungeon.game;
 
 import org.mafagafogigante.dungeon.game.LocationPreset.Type;
 
-import org.jetbrains.annotations.NotNull;
-
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * The world generator. This class should be instantiated by a World object.
+ *
+ * <p>Generating a chunk does not modify the World, so chunks may be generated on any thread. The methods that read or
+ * write the state of the generator are synchronized.
  */
 class WorldGenerator implements Serializable {
 
-  private static final int CHUNK_SIDE = 5;
+  static final int CHUNK_SIDE = 5;
+  // Salts used to derive independent seeds for the components of the generator from the seed of the world.
+  private static final long RIVER_SALT = 1;
+  private static final long DUNGEON_SALT = 2;
   private final World world;
   private final RiverGenerator riverGenerator;
-  private final DungeonDistributor dungeonDistributor = new DungeonDistributor();
-  private final DungeonCreator dungeonCreator = new DungeonCreator(dungeonDistributor);
+  private final DungeonDistributor dungeonDistributor;
+  private final DungeonCreator dungeonCreator = new DungeonCreator();
   private final int chunkSide;
 
   WorldGenerator(World world) {
     this.world = world;
-    this.riverGenerator = new RiverGenerator();
+    this.riverGenerator = new RiverGenerator(SeededRandom.deriveSeed(world.getSeed(), RIVER_SALT));
+    long dungeonSeed = SeededRandom.deriveSeed(world.getSeed(), DUNGEON_SALT);
+    this.dungeonDistributor = new DungeonDistributor(dungeonSeed, riverGenerator);
     this.chunkSide = WorldGenerator.CHUNK_SIDE;
   }
 
   /**
-   * Retrieves a random LocationPreset whose type is "Land".
+   * Retrieves a random LocationPreset of the specified type.
    *
    * @return a LocationPreset
    */
-  private static LocationPreset getRandomLandLocationPreset() {
+  private static LocationPreset getRandomLocationPreset(Type type, RandomSource random) {
     LocationPresetStore locationPresetStore = LocationPresetStore.getLocationPresetStore();
-    return Random.select(locationPresetStore.getLocationPresetsByType(Type.LAND));
+    return random.select(locationPresetStore.getLocationPresetsByType(type));
   }
 
-  private Location createRandomRiverLocation(@NotNull final Point point) {
-    LocationPresetStore locationPresetStore = LocationPresetStore.getLocationPresetStore();
-    return new Location(Random.select(locationPresetStore.getLocationPresetsByType(Type.RIVER)), world, point);
+  /**
+   * Makes the SeededRandom used to generate the specified chunk.
+   *
+   * <p>As it only depends on the seed of the world and on the coordinates of the chunk, the same chunk is generated
+   * regardless of the order in which chunks are generated.
+   */
+  private SeededRandom makeChunkRandom(int chunkX, int chunkY) {
+    return new SeededRandom(SeededRandom.deriveSeed(world.getSeed(), chunkX, chunkY));
   }
 
-  private Location createRandomBridgeLocation(@NotNull final Point point) {
-    LocationPresetStore locationPresetStore = LocationPresetStore.getLocationPresetStore();
-    return new Location(Random.select(locationPresetStore.getLocationPresetsByType(Type.BRIDGE)), world, point);
+  /**
+   * Generates the surface chunk with the specified coordinates and the dungeons whose entrances are in it.
+   *
+   * <p>This method does not modify the World. The caller is responsible for adding the result to it exactly once.
+   */
+  synchronized GeneratedChunk generateChunk(int chunkX, int chunkY) {
+    GeneratedChunk chunk = new GeneratedChunk(chunkX, chunkY);
+    expandRivers(chunkX, chunkX);
+    populate(chunk);
+    return chunk;
   }
 
-  public void expand(Point point) {
-    riverGenerator.expand(point, chunkSide);
+  /**
+   * Generates the provided empty chunks in parallel, using as many threads as there are available processors.
+   *
+   * <p>The rivers and bridges of the whole region are expanded beforehand, so that the threads only read the state of
+   * this generator. This method does not modify the World.
+   */
+  synchronized void generateChunks(List<GeneratedChunk> chunks) {
+    if (chunks.isEmpty()) {
+      return;
+    }
+    int minimumChunkX = Integer.MAX_VALUE;
+    int maximumChunkX = Integer.MIN_VALUE;
+    int minimumChunkY = Integer.MAX_VALUE;
+    int maximumChunkY = Integer.MIN_VALUE;
+    for (GeneratedChunk chunk : chunks) {
+      minimumChunkX = Math.min(minimumChunkX, chunk.getChunkX());
+      maximumChunkX = Math.max(maximumChunkX, chunk.getChunkX());
+      minimumChunkY = Math.min(minimumChunkY, chunk.getChunkY());
+      maximumChunkY = Math.max(maximumChunkY, chunk.getChunkY());
+    }
+    expandRivers(minimumChunkX, maximumChunkX);
+    riverGenerator.expandBridges(chunkSide * minimumChunkY, chunkSide * (maximumChunkY + 1) - 1);
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(chunks.size());
+    for (final GeneratedChunk chunk : chunks) {
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          populate(chunk);
+          return null;
+        }
+      });
+    }
+    int threads = Math.min(Runtime.getRuntime().availableProcessors(), chunks.size());
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (Future<Void> future : executor.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while generating chunks.", exception);
+    } catch (ExecutionException exception) {
+      throw new IllegalStateException("failed to generate a chunk.", exception.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Expands the rivers so that they cover the no entrances zones of all points of the chunks in the specified range.
+   */
+  private void expandRivers(int minimumChunkX, int maximumChunkX) {
+    int zoneWidth = DungeonCreator.getMinimumBoundingRectangle().getWidth();
+    riverGenerator.expand(chunkSide * minimumChunkX - zoneWidth, chunkSide * (maximumChunkX + 1) - 1 + zoneWidth);
+  }
+
+  /**
+   * Fills an empty chunk. The rivers must have already been expanded to cover the chunk.
+   *
+   * <p>This method is not synchronized so that several chunks may be populated at the same time, but it is only safe to
+   * do so if the bridges have also been expanded.
+   */
+  private void populate(GeneratedChunk chunk) {
     Point currentPoint;
     LocationPreset currentLocationPreset = null;
     int remainingLocationsOfCurrentPreset = 0;
-    int pX = point.getX();
-    int pY = point.getY();
-    // Get the closest smaller chunkSide multiple of x and y.
-    // For instance, if chunkSide == 5, x == -2 and y == 1, then it makes xStart == -5 and yStart == 0.
-    int xStart = pX < 0 ? chunkSide * (((pX + 1) / chunkSide) - 1) : chunkSide * (pX / chunkSide);
-    int yStart = pY < 0 ? chunkSide * (((pY + 1) / chunkSide) - 1) : chunkSide * (pY / chunkSide);
+    int xStart = chunkSide * chunk.getChunkX();
+    int yStart = chunkSide * chunk.getChunkY();
+    RandomSource random = makeChunkRandom(chunk.getChunkX(), chunk.getChunkY());
     for (int x = xStart; x < xStart + chunkSide; x++) {
       for (int y = yStart; y < yStart + chunkSide; y++) {
         currentPoint = new Point(x, y, 0);
-        if (!world.alreadyHasLocationAt(currentPoint)) {
-          if (riverGenerator.isRiver(currentPoint)) {
-            world.addLocation(createRandomRiverLocation(currentPoint), currentPoint);
-          } else if (riverGenerator.isBridge(currentPoint)) {
-            world.addLocation(createRandomBridgeLocation(currentPoint), currentPoint);
-          } else if (dungeonDistributor.rollForDungeon(currentPoint)) {
-            dungeonCreator.createDungeon(world, currentPoint);
-          } else {
-            if (currentLocationPreset == null || remainingLocationsOfCurrentPreset == 0) {
-              currentLocationPreset = getRandomLandLocationPreset();
-              remainingLocationsOfCurrentPreset = currentLocationPreset.getBlobSize();
-            }
-            world.addLocation(new Location(currentLocationPreset, world, currentPoint), currentPoint);
-            remainingLocationsOfCurrentPreset--;
+        if (riverGenerator.isRiver(currentPoint)) {
+          LocationPreset preset = getRandomLocationPreset(Type.RIVER, random);
+          chunk.addLocation(new Location(preset, world, currentPoint, random));
+        } else if (riverGenerator.isBridge(currentPoint)) {
+          LocationPreset preset = getRandomLocationPreset(Type.BRIDGE, random);
+          chunk.addLocation(new Location(preset, world, currentPoint, random));
+        } else if (dungeonDistributor.rollForDungeon(currentPoint)) {
+          dungeonCreator.createDungeon(world, chunk, currentPoint, random);
+        } else {
+          if (currentLocationPreset == null || remainingLocationsOfCurrentPreset == 0) {
+            currentLocationPreset = getRandomLocationPreset(Type.LAND, random);
+            remainingLocationsOfCurrentPreset = currentLocationPreset.getBlobSize();
           }
+          chunk.addLocation(new Location(currentLocationPreset, world, currentPoint, random));
+          remainingLocationsOfCurrentPreset--;
         }
       }
     }
   }
 
+  /**
+   * Registers the dungeon entrances of a chunk that was just added to the World.
+   */
+  void registerDungeonEntrances(GeneratedChunk chunk) {
+    for (Point entrance : chunk.getEntrances()) {
+      dungeonDistributor.registerDungeonEntrance(entrance);
+    }
+  }
+
+  /**
+   * Serializes this generator while holding its lock, so that a chunk being generated in the background cannot modify
+   * the rivers while they are written.
+   */
+  private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+  }
+
 }
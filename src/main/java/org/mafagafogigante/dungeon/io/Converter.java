@@ -20,7 +20,7 @@ package org.mafagafogigante.dungeon.io;
 /**
  * Uninstantiable Converter class that defines methods for IO related data conversion.
  */
-class Converter {
+public final class Converter {
 
   private Converter() {
     throw new AssertionError();
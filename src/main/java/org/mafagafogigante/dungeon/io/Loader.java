@@ -17,31 +17,37 @@
 
 package org.mafagafogigante.dungeon.io;
 
+import org.mafagafogigante.dungeon.game.CommandJournal;
 import org.mafagafogigante.dungeon.game.DungeonString;
 import org.mafagafogigante.dungeon.game.Game;
 import org.mafagafogigante.dungeon.game.GameState;
+import org.mafagafogigante.dungeon.game.Random;
+import org.mafagafogigante.dungeon.game.SaveJournal;
+import org.mafagafogigante.dungeon.game.SeededRandom;
 import org.mafagafogigante.dungeon.logging.DungeonLogger;
 import org.mafagafogigante.dungeon.util.Messenger;
 import org.mafagafogigante.dungeon.util.StopWatch;
 
 import org.jetbrains.annotations.NotNull;
-import org.nustaq.serialization.FSTObjectInput;
-import org.nustaq.serialization.FSTObjectOutput;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.swing.JOptionPane;
 
 /**
  * Loader class that handles saving and loading the game.
+ *
+ * <p>Games are saved through the SaveJournal, so saving a game again to the same file only writes what changed. The
+ * game is captured on the thread that saves it, but it is written to disk on a background thread while play goes on.
+ * Journals that grow too big are merged into their snapshots afterwards, on the same thread. Saves are compressed as
+ * they are streamed to and from the disk, with the codec selected by the dungeon.saves.codec system property.
  */
 public final class Loader {
 
@@ -50,6 +56,18 @@ public final class Loader {
   private static final String DEFAULT_SAVE_NAME = "default" + SAVE_EXTENSION;
   private static final String SAVE_CONFIRM = "Do you want to save the game?";
   private static final String LOAD_CONFIRM = "Do you want to load the game?";
+  private static final SavesIndex SAVES_INDEX =
+      new SavesIndex(SAVES_FOLDER, DungeonFilenameFilters.getExtensionFilter());
+  // Writes the captured saves in the order in which they were taken.
+  private static final ExecutorService SAVE_WRITER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "Save Writer");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    }
+  });
 
   private Loader() { // Ensure that this class cannot be instantiated.
     throw new AssertionError();
@@ -69,7 +87,7 @@ public final class Loader {
    * Checks if any file in the saves folder ends with the save extension.
    */
   public static boolean checkForSave() {
-    return !getSavedFiles().isEmpty();
+    return !getSaves().isEmpty();
   }
 
   /**
@@ -95,7 +113,9 @@ public final class Loader {
    * Generates a new GameState and returns it.
    */
   public static GameState newGame() {
-    GameState gameState = new GameState();
+    long seed = Random.nextLong();
+    GameState gameState = new GameState(new SeededRandom(seed));
+    gameState.setCommandJournal(CommandJournal.start(seed, gameState.getWorld().getSeed()));
     DungeonString string = new DungeonString();
     string.append("Created a new game.\n\n");
     string.append(gameState.getPreface());
@@ -115,6 +135,7 @@ public final class Loader {
    * @return a GameState or null
    */
   public static GameState loadGame(boolean requireConfirmation) {
+    awaitPendingSaves();
     if (checkForSave()) {
       if (!requireConfirmation || confirmOperation(LOAD_CONFIRM)) {
         return loadFile(getMostRecentlySavedFile());
@@ -136,6 +157,7 @@ public final class Loader {
    * <p>This method guarantees that the if null is returned, something is written to the screen.
    */
   public static GameState parseLoadCommand(String[] arguments) {
+    awaitPendingSaves();
     if (arguments.length != 0) {
       // A save name was provided.
       String argument = arguments[0];
@@ -206,85 +228,139 @@ public final class Loader {
    */
   private static GameState loadFile(File file) {
     StopWatch stopWatch = new StopWatch();
-    FileInputStream fileInStream;
-    FSTObjectInput objectInStream;
     try {
-      fileInStream = new FileInputStream(file);
-      objectInStream = new FSTObjectInput(fileInStream);
-      GameState loadedGameState = (GameState) objectInStream.readObject();
-      objectInStream.close();
+      GameState loadedGameState = SaveJournal.load(file);
       loadedGameState.setSaved(true); // It is saved, we just loaded it (needed as it now defaults to false).
-      String sizeString = Converter.bytesToHuman(file.length());
+      loadedGameState.setCommandJournal(CommandJournal.start(loadedGameState));
+      String sizeString = Converter.bytesToHuman(file.length() + SaveJournal.getJournalFile(file).length());
       DungeonLogger.info(String.format("Loaded %s in %s.", sizeString, stopWatch.toString()));
       Writer.write(String.format("Successfully loaded the game (read %s from %s).", sizeString, file.getName()));
       return loadedGameState;
     } catch (Exception bad) {
+      DungeonLogger.logSevere(bad);
       Writer.write("Could not load the saved game.");
       return null;
     }
   }
 
   /**
-   * Serializes the specified {@code GameState} state to a file.
+   * Captures the specified {@code GameState} and schedules it to be written to a file. The GameState is only set as
+   * saved once the file is durable and only if it was not modified in the meantime.
    *
    * @param state a GameState
    * @param name the name of the file
    */
   private static void saveFile(GameState state, String name) {
-    StopWatch stopWatch = new StopWatch();
+    final StopWatch stopWatch = new StopWatch();
     File file = createFileFromName(name);
-    FileOutputStream fileOutStream;
-    FSTObjectOutput objectOutStream;
+    if (!SAVES_FOLDER.exists()) {
+      if (!SAVES_FOLDER.mkdir()) {
+        Messenger.printFailedToCreateDirectoryMessage(SAVES_FOLDER.getName());
+        return;
+      }
+    }
+    final SaveJournal.Capture capture;
     try {
-      if (!SAVES_FOLDER.exists()) {
-        if (!SAVES_FOLDER.mkdir()) {
-          Messenger.printFailedToCreateDirectoryMessage(SAVES_FOLDER.getName());
-          return;
-        }
+      capture = SaveJournal.capture(state, file);
+    } catch (IOException bad) {
+      DungeonLogger.logSevere(bad);
+      Writer.write("Could not save the game.");
+      return;
+    }
+    DungeonLogger.info(String.format("Captured the game in %s.", stopWatch.toString()));
+    if (state.getCommandJournal() != null) {
+      state.getCommandJournal().appendSave(state);
+    }
+    SAVE_WRITER.submit(new Runnable() {
+      @Override
+      public void run() {
+        writeCapture(capture, stopWatch);
       }
-      fileOutStream = new FileOutputStream(file);
-      objectOutStream = new FSTObjectOutput(fileOutStream);
-      objectOutStream.writeObject(state);
-      objectOutStream.close();
-      state.setSaved(true);
-      String sizeString = Converter.bytesToHuman(file.length());
+    });
+  }
+
+  private static void writeCapture(SaveJournal.Capture capture, StopWatch stopWatch) {
+    File file = capture.getSnapshot();
+    try {
+      long written = SaveJournal.write(capture);
+      capture.getGameState().setSavedAsOf(capture.getModificationCount());
+      String sizeString = Converter.bytesToHuman(written);
       DungeonLogger.info(String.format("Saved %s in %s.", sizeString, stopWatch.toString()));
       Writer.write(String.format("Successfully saved the game (wrote %s to %s).", sizeString, file.getName()));
     } catch (IOException bad) {
+      DungeonLogger.logSevere(bad);
       Writer.write("Could not save the game.");
+      return;
+    } finally {
+      SAVES_INDEX.notifyWritten(file);
+    }
+    if (SaveJournal.shouldCompact(file)) {
+      compact(file);
+    }
+  }
+
+  /**
+   * Waits until every save that was captured is written.
+   */
+  public static void awaitPendingSaves() {
+    try {
+      SAVE_WRITER.submit(new Runnable() {
+        @Override
+        public void run() {
+          // Runs after every save that was submitted before it.
+        }
+      }).get();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException exception) {
+      DungeonLogger.logSevere(exception);
+    }
+  }
+
+  private static void compact(File file) {
+    StopWatch stopWatch = new StopWatch();
+    try {
+      SaveJournal.compact(file);
+      DungeonLogger.info(String.format("Compacted %s in %s.", file.getName(), stopWatch.toString()));
+    } catch (IOException bad) {
+      DungeonLogger.logSevere(bad);
+    } finally {
+      SAVES_INDEX.notifyWritten(file);
     }
   }
 
   /**
    * Returns a list of abstract pathnames denoting the files in the saves folder that end with a valid extension sorted
-   * in natural order.
+   * from the most recently modified to the least recently modified.
    */
   @NotNull
   public static List<File> getSavedFiles() {
-    File[] fileArray = SAVES_FOLDER.listFiles(DungeonFilenameFilters.getExtensionFilter());
-    if (fileArray == null) {
-      fileArray = new File[0];
-    }
-    List<File> fileList = new ArrayList<File>(Arrays.asList(fileArray));
-    for (Iterator<File> fileIterator = fileList.iterator(); fileIterator.hasNext(); ) {
-      File file = fileIterator.next();
-      if (!file.isFile()) {
-        fileIterator.remove();
-      }
+    List<SavesIndex.Entry> entries = getSaves();
+    List<File> fileList = new ArrayList<File>(entries.size());
+    for (SavesIndex.Entry entry : entries) {
+      fileList.add(entry.getFile());
     }
-    Collections.sort(fileList, new FileLastModifiedComparator());
     return fileList;
   }
 
+  /**
+   * Returns the saves in the saves folder, from the most recently modified to the least recently modified, as they are
+   * in the index of the folder.
+   */
+  @NotNull
+  static List<SavesIndex.Entry> getSaves() {
+    return SAVES_INDEX.getEntries();
+  }
+
   /**
    * Returns the most recently saved file. As a precondition, there must be at least one save file.
    */
   private static File getMostRecentlySavedFile() {
-    List<File> fileList = getSavedFiles();
-    if (fileList.isEmpty()) {
+    List<SavesIndex.Entry> entries = getSaves();
+    if (entries.isEmpty()) {
       throw new IllegalStateException("called getMostRecentlySavedFile() but there are no save files.");
     }
-    return fileList.get(0);
+    return entries.get(0).getFile();
   }
 
 }
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.io;
+
+import org.mafagafogigante.dungeon.game.SaveJournal;
+import org.mafagafogigante.dungeon.logging.DungeonLogger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An in-memory index of the saves in a folder and of what their headers and the commits of their journals say about
+ * them.
+ *
+ * <p>The folder is only listed again when its modification time changes, which happens whenever a save is created,
+ * renamed or deleted, and only the saves whose sizes or modification times changed are read again.
+ * Writing to an existing save does not change the folder, so the saves written by the game are reported to the index
+ * as they are written.
+ */
+final class SavesIndex {
+
+  // Some file systems keep modification times in whole seconds, so the folder may change without its modification time
+  // changing if it changed shortly before it was listed. In that case, it is listed again.
+  private static final long TIMESTAMP_RESOLUTION = 2000;
+
+  private final File folder;
+  private final FilenameFilter filter;
+  private final Map<File, Entry> entries = new HashMap<File, Entry>();
+  // Saves that were written since the index was last refreshed.
+  private final Set<File> writtenFiles = new HashSet<File>();
+  private List<Entry> sortedEntries = Collections.emptyList();
+  private long folderLastModified = -1;
+  private long lastListing;
+
+  SavesIndex(@NotNull File folder, @NotNull FilenameFilter filter) {
+    this.folder = folder;
+    this.filter = filter;
+  }
+
+  /**
+   * Returns an unmodifiable list of the saves in the folder, from the most recently modified to the least recently
+   * modified.
+   */
+  synchronized List<Entry> getEntries() {
+    refresh();
+    return sortedEntries;
+  }
+
+  /**
+   * Tells the index that a save was written, so that its header is read again.
+   */
+  synchronized void notifyWritten(@NotNull File file) {
+    writtenFiles.add(file);
+  }
+
+  private void refresh() {
+    long lastModified = folder.lastModified();
+    boolean changed = false;
+    if (lastModified != folderLastModified || lastListing - lastModified < TIMESTAMP_RESOLUTION) {
+      folderLastModified = lastModified;
+      lastListing = System.currentTimeMillis();
+      listFolder();
+      changed = true;
+    } else {
+      for (File file : writtenFiles) {
+        entries.remove(file);
+        if (file.isFile()) {
+          entries.put(file, new Entry(file));
+        }
+      }
+      changed = !writtenFiles.isEmpty();
+    }
+    writtenFiles.clear();
+    if (changed) {
+      List<Entry> list = new ArrayList<Entry>(entries.values());
+      Collections.sort(list, new Comparator<Entry>() {
+        @Override
+        public int compare(Entry left, Entry right) {
+          return Long.valueOf(right.lastModified).compareTo(left.lastModified);
+        }
+      });
+      sortedEntries = Collections.unmodifiableList(list);
+    }
+  }
+
+  private void listFolder() {
+    File[] files = folder.listFiles(filter);
+    Map<File, Entry> previous = new HashMap<File, Entry>(entries);
+    entries.clear();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      if (file.isFile()) {
+        Entry entry = previous.get(file);
+        if (entry == null || writtenFiles.contains(file) || !entry.isUpToDate()) {
+          entry = new Entry(file);
+        }
+        entries.put(file, entry);
+      }
+    }
+  }
+
+  /**
+   * A save and what its header says about it.
+   */
+  static final class Entry {
+
+    private final File file;
+    private final long snapshotLength;
+    private final long journalLength;
+    private final long lastModified;
+    private final SaveJournal.Metadata metadata;
+    private final SaveJournal.Compression compression;
+
+    private Entry(File file) {
+      this.file = file;
+      File journal = SaveJournal.getJournalFile(file);
+      this.snapshotLength = file.length();
+      this.journalLength = journal.length();
+      this.lastModified = Math.max(file.lastModified(), journal.lastModified());
+      SaveJournal.Metadata readMetadata = null;
+      SaveJournal.Compression readCompression = null;
+      try {
+        SaveJournal.Summary summary = SaveJournal.readSummary(file);
+        readMetadata = summary.getMetadata();
+        readCompression = summary.getCompression();
+      } catch (IOException exception) {
+        DungeonLogger.warning("Could not read the header of " + file.getName() + ".");
+      }
+      this.metadata = readMetadata;
+      this.compression = readCompression;
+    }
+
+    private boolean isUpToDate() {
+      File journal = SaveJournal.getJournalFile(file);
+      boolean sameLengths = file.length() == snapshotLength && journal.length() == journalLength;
+      return sameLengths && Math.max(file.lastModified(), journal.lastModified()) == lastModified;
+    }
+
+    File getFile() {
+      return file;
+    }
+
+    /**
+     * Returns how many bytes the snapshot and the journal of the save take.
+     */
+    long getLength() {
+      return snapshotLength + journalLength;
+    }
+
+    long getLastModified() {
+      return lastModified;
+    }
+
+    /**
+     * Returns the Metadata of the save or null if its header could not be read.
+     */
+    SaveJournal.Metadata getMetadata() {
+      return metadata;
+    }
+
+    /**
+     * Returns the Compression of the save or null if its header could not be read.
+     */
+    SaveJournal.Compression getCompression() {
+      return compression;
+    }
+
+  }
+
+}
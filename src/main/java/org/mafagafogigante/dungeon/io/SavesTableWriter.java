@@ -17,10 +17,10 @@
 
 package org.mafagafogigante.dungeon.io;
 
+import org.mafagafogigante.dungeon.game.SaveJournal;
 import org.mafagafogigante.dungeon.util.Table;
 import org.mafagafogigante.dungeon.util.Utils;
 
-import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
@@ -37,25 +37,47 @@ public final class SavesTableWriter {
   }
 
   /**
-   * Writes a table of the files found on the saves folder to the screen.
+   * Writes a table of the saves found on the saves folder to the screen, with what their headers say about their games
+   * and how much their records were compressed.
    */
   public static void writeSavesFolderTable() {
-    List<File> files = Loader.getSavedFiles();
-    if (!files.isEmpty()) {
-      Table table = new Table("Name", "Size", "Last modified");
-      int fileCount = 0;
-      int byteCount = 0;
-      for (File file : files) {
-        fileCount += 1;
-        byteCount += file.length();
-        Date lastModified = new Date(file.lastModified());
+    List<SavesIndex.Entry> entries = Loader.getSaves();
+    if (!entries.isEmpty()) {
+      Table table = new Table("Name", "Hero", "World date", "Played for", "Size", "Ratio", "Last modified");
+      long byteCount = 0;
+      long uncompressedByteCount = 0;
+      long compressedByteCount = 0;
+      for (SavesIndex.Entry entry : entries) {
+        byteCount += entry.getLength();
+        Date lastModified = new Date(entry.getLastModified());
         String periodString = Utils.makePeriodString(System.currentTimeMillis() - lastModified.getTime()) + " ago";
         String lastModifiedString = String.format("%s (%s)", LAST_MODIFIED_FORMAT.format(lastModified), periodString);
-        table.insertRow(file.getName(), Converter.bytesToHuman(file.length()), lastModifiedString);
+        String size = Converter.bytesToHuman(entry.getLength());
+        String heroName = "?";
+        String worldDate = "?";
+        String playTime = "?";
+        SaveJournal.Metadata metadata = entry.getMetadata();
+        if (metadata != null) {
+          heroName = metadata.getHeroName();
+          worldDate = metadata.getWorldDate();
+          playTime = Utils.makePeriodString(metadata.getPlayTime());
+        }
+        String ratio = "?";
+        SaveJournal.Compression compression = entry.getCompression();
+        if (compression != null) {
+          uncompressedByteCount += compression.getUncompressedByteCount();
+          compressedByteCount += compression.getCompressedByteCount();
+          ratio = formatRatio(compression.getUncompressedByteCount(), compression.getCompressedByteCount());
+          ratio += " " + compression.getCodec().toString().toLowerCase();
+        }
+        String name = entry.getFile().getName();
+        table.insertRow(name, heroName, worldDate, playTime, size, ratio, lastModifiedString);
       }
-      if (fileCount > 1) {
+      if (entries.size() > 1) {
         table.insertSeparator();
-        table.insertRow("Sum of these " + fileCount + " files", Converter.bytesToHuman((byteCount)), "");
+        String sum = Converter.bytesToHuman(byteCount);
+        String ratio = formatRatio(uncompressedByteCount, compressedByteCount);
+        table.insertRow("Sum of these " + entries.size() + " saves", "", "", "", sum, ratio, "");
       }
       Writer.write(table);
     } else {
@@ -63,4 +85,14 @@ public final class SavesTableWriter {
     }
   }
 
+  /**
+   * Formats how many times smaller the compressed records are, such as "4.2:1".
+   */
+  private static String formatRatio(long uncompressedByteCount, long compressedByteCount) {
+    if (compressedByteCount == 0) {
+      return "?";
+    }
+    return String.format("%.1f:1", uncompressedByteCount / (double) compressedByteCount);
+  }
+
 }
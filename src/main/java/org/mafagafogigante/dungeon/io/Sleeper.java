@@ -17,6 +17,7 @@
 
 package org.mafagafogigante.dungeon.io;
 
+import org.mafagafogigante.dungeon.game.Game;
 import org.mafagafogigante.dungeon.logging.DungeonLogger;
 
 /**
@@ -31,11 +32,15 @@ public final class Sleeper {
   }
 
   /**
-   * Sleeps for a specified amount of milliseconds.
+   * Sleeps for a specified amount of milliseconds. Does not sleep if there is no game window, as when the game is
+   * replayed headlessly.
    *
    * @param milliseconds how many milliseconds should this thread sleep for, between 1 and 60000
    */
   public static void sleep(long milliseconds) {
+    if (Game.getGameWindow() == null) {
+      return;
+    }
     if (milliseconds <= 0) {
       DungeonLogger.warning("Tried to sleep a nonpositive amount of milliseconds.");
     } else if (milliseconds > MILLISECONDS_IN_MINUTE) {
@@ -17,11 +17,16 @@
 
 package org.mafagafogigante.dungeon.io;
 
+import org.mafagafogigante.dungeon.game.ColoredString;
 import org.mafagafogigante.dungeon.game.DungeonString;
 import org.mafagafogigante.dungeon.game.Game;
 import org.mafagafogigante.dungeon.game.Writable;
 import org.mafagafogigante.dungeon.gui.WritingSpecifications;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Writer class that encapsulates all Input/Output operations. This is the only class that should call the writing
  * methods of the game window.
@@ -32,6 +37,11 @@ public final class Writer {
    * For how many milliseconds the game sleeps after writing a string of battle output.
    */
   private static final int DEFAULT_WAIT_INTERVAL = 300;
+  /**
+   * While not null, everything that the thread writes is collected here instead of being sent to the game window.
+   * Other threads, such as the one that writes saves, still write to the window.
+   */
+  private static final ThreadLocal<List<ColoredString>> BUFFER = new ThreadLocal<List<ColoredString>>();
 
   private Writer() { // Ensure that this class cannot be instantiated.
     throw new AssertionError();
@@ -64,6 +74,14 @@ public final class Writer {
    * @param specifications a WritingSpecifications object
    */
   public static void write(Writable writable, WritingSpecifications specifications) {
+    List<ColoredString> list = BUFFER.get();
+    if (list != null) {
+      list.addAll(writable.toColoredStringList());
+      return;
+    }
+    if (Game.getGameWindow() == null) {
+      return; // There is no window when the game is replayed headlessly.
+    }
     Game.getGameWindow().scheduleWriteToTextPane(writable, specifications);
     if (specifications.shouldWait()) {
       Sleeper.sleep(specifications.getWait());
@@ -77,4 +95,34 @@ public final class Writer {
     write(writable, new WritingSpecifications(true, DEFAULT_WAIT_INTERVAL));
   }
 
+  /**
+   * Starts collecting everything that is written instead of writing it, so that it can be written at once, without any
+   * waiting, by flushBuffer.
+   */
+  public static void startBuffering() {
+    if (BUFFER.get() != null) {
+      throw new IllegalStateException("Writer is already buffering.");
+    }
+    BUFFER.set(new ArrayList<ColoredString>());
+  }
+
+  /**
+   * Writes everything collected since startBuffering was called as a single Writable and stops buffering.
+   */
+  public static void flushBuffer() {
+    if (BUFFER.get() == null) {
+      throw new IllegalStateException("Writer is not buffering.");
+    }
+    final List<ColoredString> contents = Collections.unmodifiableList(BUFFER.get());
+    BUFFER.remove();
+    if (!contents.isEmpty()) {
+      write(new Writable() {
+        @Override
+        public List<ColoredString> toColoredStringList() {
+          return contents;
+        }
+      });
+    }
+  }
+
 }
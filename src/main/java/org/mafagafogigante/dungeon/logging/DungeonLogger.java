@@ -54,6 +54,14 @@ public final class DungeonLogger {
     throw new AssertionError();
   }
 
+  /**
+   * Sets the level below which messages are discarded. Tools that run the game code in bulk, such as CombatSimulator,
+   * raise it so that they do not trace every step to the log file.
+   */
+  public static void setLevel(Level level) {
+    logger.setLevel(level);
+  }
+
   /**
    * Logs a fine message. This should be used for tracing information.
    *
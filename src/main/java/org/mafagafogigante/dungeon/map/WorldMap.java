@@ -37,8 +37,7 @@ public class WorldMap {
   /**
    * Initializes the WorldMap with a proper IterationLimits object and a matrix of null objects.
    */
-  private WorldMap() {
-    Point center = Game.getGameState().getHero().getLocation().getPoint();
+  private WorldMap(Point center) {
     int cols = GameWindow.COLS;
     int rows = GameWindow.ROWS - 1;
     limits = new IterationLimits(center, cols, rows);
@@ -55,22 +54,31 @@ public class WorldMap {
     Point heroPosition = Game.getGameState().getHero().getLocation().getPoint();
     ExplorationStatistics explorationStatistics = Game.getGameState().getStatistics().getExplorationStatistics();
     WorldMapSymbolFactory factory = new WorldMapSymbolFactory(world, heroPosition, explorationStatistics);
-    return renderWorldMap(factory);
+    return renderWorldMap(new WorldMap(heroPosition), factory);
   }
 
   /**
-   * Makes a debug WorldMap.
+   * Makes a debug WorldMap. As every Location in the map is revealed, the region of the map is generated in advance.
    */
   @NotNull
   public static WorldMap makeDebugWorldMap() {
     World world = Game.getGameState().getWorld();
     Point heroPosition = Game.getGameState().getHero().getLocation().getPoint();
-    WorldMapSymbolFactory factory = new WorldMapSymbolFactory(world, heroPosition);
-    return renderWorldMap(factory);
+    return makeDebugWorldMap(world, heroPosition);
   }
 
-  private static WorldMap renderWorldMap(WorldMapSymbolFactory symbolFactory) {
-    WorldMap map = new WorldMap();
+  /**
+   * Makes a debug WorldMap of the specified World centered on the specified Point, which is where the hero is drawn.
+   */
+  @NotNull
+  static WorldMap makeDebugWorldMap(World world, Point center) {
+    WorldMapSymbolFactory factory = new WorldMapSymbolFactory(world, center);
+    WorldMap map = new WorldMap(center);
+    world.generateRegion(map.limits.minX, map.limits.maxY, map.limits.maxX, map.limits.minY);
+    return renderWorldMap(map, factory);
+  }
+
+  private static WorldMap renderWorldMap(WorldMap map, WorldMapSymbolFactory symbolFactory) {
     for (int curY = map.limits.minY; curY >= map.limits.maxY; curY--) {
       for (int curX = map.limits.minX; curX <= map.limits.maxX; curX++) {
         Point currentPosition = new Point(curX, curY, 0);
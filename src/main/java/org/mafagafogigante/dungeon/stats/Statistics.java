@@ -64,6 +64,13 @@ public final class Statistics implements Serializable {
     commandStatistics.addCommand(issuedCommand);
   }
 
+  /**
+   * Returns how many commands were accepted by the game.
+   */
+  public int getCommandCount() {
+    return commandStatistics.getCommandCount();
+  }
+
   /**
    * Writes most of the available statistics.
    */
@@ -35,8 +35,15 @@ public final class WorldStatistics implements Serializable {
    * Adds the spawn of a new Creature to the statistics.
    */
   public void addSpawn(String creature) {
-    spawnCount++;
-    spawnCounter.incrementCounter(creature);
+    addSpawns(creature, 1);
+  }
+
+  /**
+   * Adds the spawn of the specified amount of Creatures with the same name to the statistics.
+   */
+  public void addSpawns(String creature, int amount) {
+    spawnCount += amount;
+    spawnCounter.incrementCounter(creature, amount);
   }
 
   /**
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hash map from primitive long keys to non-null values that uses open addressing.
+ *
+ * <p>Unlike a HashMap with Long keys, retrieving and checking for keys never allocate objects.
+ */
+public final class LongHashMap<V> implements Serializable {
+
+  private static final int INITIAL_CAPACITY = 16; // Must be a power of two.
+
+  private transient long[] keys;
+  // A slot is free if and only if its value is null.
+  private transient Object[] values;
+  private transient int size;
+
+  public LongHashMap() {
+    initialize(INITIAL_CAPACITY);
+  }
+
+  private static int hash(long key) {
+    long hash = key;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return (int) hash;
+  }
+
+  private void initialize(int capacity) {
+    keys = new long[capacity];
+    values = new Object[capacity];
+    size = 0;
+  }
+
+  private int findSlot(long key) {
+    int mask = values.length - 1;
+    int index = hash(key) & mask;
+    while (values[index] != null && keys[index] != key) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  /**
+   * Returns the value mapped to the specified key or null if there is no such value.
+   */
+  @SuppressWarnings("unchecked")
+  public V get(long key) {
+    return (V) values[findSlot(key)];
+  }
+
+  public boolean containsKey(long key) {
+    return values[findSlot(key)] != null;
+  }
+
+  /**
+   * Maps a key to a value, replacing the previous value of the key if there was one.
+   */
+  public void put(long key, @NotNull V value) {
+    int index = findSlot(key);
+    if (values[index] == null) {
+      size++;
+    }
+    keys[index] = key;
+    values[index] = value;
+    // Keep the load factor at or below one half so that probe sequences stay short.
+    if (2 * size > values.length) {
+      long[] oldKeys = keys;
+      Object[] oldValues = values;
+      keys = new long[oldKeys.length * 2];
+      values = new Object[oldValues.length * 2];
+      for (int i = 0; i < oldValues.length; i++) {
+        if (oldValues[i] != null) {
+          int newIndex = findSlot(oldKeys[i]);
+          keys[newIndex] = oldKeys[i];
+          values[newIndex] = oldValues[i];
+        }
+      }
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns a new List with all the values of this map, in no particular order.
+   */
+  @SuppressWarnings("unchecked")
+  public List<V> values() {
+    List<V> list = new ArrayList<V>(size);
+    for (Object value : values) {
+      if (value != null) {
+        list.add((V) value);
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Writes only the mappings, so that the spare capacity of the table is not saved.
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    out.writeInt(size);
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) {
+        out.writeLong(keys[i]);
+        out.writeObject(values[i]);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    int count = in.readInt();
+    initialize(INITIAL_CAPACITY);
+    for (int i = 0; i < count; i++) {
+      long key = in.readLong();
+      put(key, (V) in.readObject());
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("LongHashMap{size=%d}", size);
+  }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.entity.creatures;
+
+import org.mafagafogigante.dungeon.entity.creatures.CombatSimulator.Combatant;
+import org.mafagafogigante.dungeon.game.Id;
+import org.mafagafogigante.dungeon.game.PartOfDay;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CombatSimulatorTest {
+
+  @Test
+  public void simulateShouldOnlyDependOnItsArguments() throws Exception {
+    CombatSimulator simulator = new CombatSimulator(Combatant.fromString("HERO:AXE"), Combatant.fromString("BAT"));
+    CombatReport first = simulator.simulate(PartOfDay.MIDNIGHT, 1001, 3, 42);
+    CombatReport second = simulator.simulate(PartOfDay.MIDNIGHT, 1001, 3, 42);
+    Assert.assertEquals(1001, first.getFights());
+    Assert.assertEquals(first.getFirstWins(), second.getFirstWins());
+    Assert.assertEquals(first.getMeanTurnsToKill(), second.getMeanTurnsToKill(), 0.0);
+  }
+
+  @Test
+  public void fightsBetweenCrittersShouldBeDraws() throws Exception {
+    CombatSimulator simulator = new CombatSimulator(Combatant.fromString("FROG"), Combatant.fromString("RABBIT"));
+    CombatReport report = simulator.simulate(PartOfDay.NOON, 10, 2, 0);
+    Assert.assertEquals(10, report.getDraws());
+    Assert.assertEquals(0, report.getFirstWins() + report.getSecondWins());
+  }
+
+  @Test
+  public void weaponsThatBreakShouldBeCounted() throws Exception {
+    // A cherry breaks after a single hit, so the farmer breaks it in every fight in which it hits the bear.
+    CombatSimulator simulator = new CombatSimulator(Combatant.fromString("FARMER:CHERRY"), Combatant.fromString("BEAR"));
+    CombatReport report = simulator.simulate(PartOfDay.NOON, 100, 1, 0);
+    Assert.assertTrue(report.getFirstWeaponBreaks() > 90);
+    Assert.assertEquals(0, report.getSecondWeaponBreaks());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void combatantShouldRejectUnknownCreatures() throws Exception {
+    new Combatant(new Id("NOT_A_CREATURE"), null);
+  }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.entity.items;
+
+import org.mafagafogigante.dungeon.date.Date;
+import org.mafagafogigante.dungeon.entity.Integrity;
+import org.mafagafogigante.dungeon.entity.TagSet;
+import org.mafagafogigante.dungeon.entity.Weight;
+import org.mafagafogigante.dungeon.entity.creatures.Creature;
+import org.mafagafogigante.dungeon.entity.creatures.CreaturePreset;
+import org.mafagafogigante.dungeon.entity.items.CreatureInventory.SimulationResult;
+import org.mafagafogigante.dungeon.game.Id;
+import org.mafagafogigante.dungeon.game.NameFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CreatureInventoryTest {
+
+  private static final double TOLERANCE = 1e-9;
+
+  private static CreatureInventory makeInventory(double weightLimit) {
+    CreaturePreset preset = new CreaturePreset();
+    preset.setId(new Id("HUMAN"));
+    preset.setType("Human");
+    preset.setName(NameFactory.newInstance("Human"));
+    preset.setHealth(10);
+    preset.setTagSet(TagSet.makeEmptyTagSet(Creature.Tag.class));
+    preset.setInventoryItemLimit(10);
+    preset.setInventoryWeightLimit(weightLimit);
+    return new Creature(preset).getInventory();
+  }
+
+  private static Item makeItem(String name, double weight, boolean proportionalToIntegrity) {
+    ItemPreset preset = new ItemPreset();
+    preset.setId(new Id(name.toUpperCase()));
+    preset.setType(name);
+    preset.setName(NameFactory.newInstance(name));
+    preset.setIntegrity(new Integrity(10, 10));
+    preset.setWeight(Weight.newInstance(weight));
+    if (proportionalToIntegrity) {
+      preset.addTag(Item.Tag.WEIGHT_PROPORTIONAL_TO_INTEGRITY);
+    }
+    return new Item(preset, new Date(2055, 6, 2, 6, 10, 0));
+  }
+
+  @Test
+  public void weightShouldFollowAdditionsAndRemovals() throws Exception {
+    CreatureInventory inventory = makeInventory(10);
+    Item stone = makeItem("Stone", 2, false);
+    Item axe = makeItem("Axe", 3.5, false);
+    inventory.addItem(stone);
+    inventory.addItem(axe);
+    Assert.assertEquals(5.5, inventory.getWeight().toDouble(), TOLERANCE);
+    inventory.removeItem(stone);
+    Assert.assertEquals(3.5, inventory.getWeight().toDouble(), TOLERANCE);
+    inventory.removeItem(axe);
+    Assert.assertEquals(0, inventory.getWeight().toDouble(), 0);
+  }
+
+  @Test
+  public void weightShouldFollowIntegrityChangesOfProportionalItems() throws Exception {
+    CreatureInventory inventory = makeInventory(10);
+    Item bottle = makeItem("Bottle", 4, true);
+    inventory.addItem(bottle);
+    bottle.getIntegrity().decrementBy(5);
+    Assert.assertEquals(2, inventory.getWeight().toDouble(), TOLERANCE);
+    Assert.assertEquals(bottle.getWeight().toDouble(), inventory.getWeight().toDouble(), TOLERANCE);
+    bottle.getIntegrity().incrementBy(2);
+    Assert.assertEquals(2.8, inventory.getWeight().toDouble(), TOLERANCE);
+    inventory.removeItem(bottle);
+    bottle.getIntegrity().incrementBy(3);
+    Assert.assertEquals(0, inventory.getWeight().toDouble(), 0);
+  }
+
+  @Test
+  public void simulateItemAdditionShouldRespectTheWeightLimit() throws Exception {
+    CreatureInventory inventory = makeInventory(5);
+    inventory.addItem(makeItem("Stone", 3, false));
+    Assert.assertEquals(SimulationResult.WEIGHT_LIMIT, inventory.simulateItemAddition(makeItem("Axe", 2.5, false)));
+    Assert.assertEquals(SimulationResult.SUCCESSFUL, inventory.simulateItemAddition(makeItem("Knife", 2, false)));
+  }
+
+}
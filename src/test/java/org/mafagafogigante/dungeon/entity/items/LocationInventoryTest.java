@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.entity.items;
+
+import org.mafagafogigante.dungeon.date.Date;
+import org.mafagafogigante.dungeon.date.DungeonTimeUnit;
+import org.mafagafogigante.dungeon.entity.Integrity;
+import org.mafagafogigante.dungeon.game.Id;
+import org.mafagafogigante.dungeon.game.NameFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LocationInventoryTest {
+
+  private static final Date CREATION = new Date(2055, 6, 2, 6, 10, 0);
+
+  private static Item makeItem(String name, long putrefactionPeriod) {
+    ItemPreset preset = new ItemPreset();
+    preset.setId(new Id(name.toUpperCase()));
+    preset.setType(name);
+    preset.setName(NameFactory.newInstance(name));
+    preset.setIntegrity(new Integrity(10, 10));
+    if (putrefactionPeriod > 0) {
+      preset.addTag(Item.Tag.DECOMPOSES);
+      preset.setPutrefactionPeriod(putrefactionPeriod);
+    }
+    return new Item(preset, CREATION);
+  }
+
+  private static long afterSeconds(long seconds) {
+    return CREATION.getTime() + seconds * DungeonTimeUnit.SECOND.milliseconds;
+  }
+
+  @Test
+  public void refreshItemsShouldRemoveTheItemsThatDecomposed() throws Exception {
+    LocationInventory inventory = new LocationInventory();
+    Item stone = makeItem("Stone", 0);
+    Item apple = makeItem("Apple", 100);
+    Item bread = makeItem("Bread", 50);
+    Item meat = makeItem("Meat", 200);
+    inventory.addItem(stone);
+    inventory.addItem(apple);
+    inventory.addItem(bread);
+    inventory.addItem(meat);
+    inventory.refreshItems(afterSeconds(49));
+    Assert.assertEquals(4, inventory.getItemCount());
+    inventory.refreshItems(afterSeconds(100));
+    Assert.assertEquals(2, inventory.getItemCount());
+    Assert.assertTrue(inventory.hasItem(stone));
+    Assert.assertTrue(inventory.hasItem(meat));
+    Assert.assertNull(apple.getInventory());
+    inventory.removeItem(meat);
+    inventory.refreshItems(afterSeconds(1000));
+    Assert.assertEquals(1, inventory.getItemCount());
+    Assert.assertTrue(inventory.hasItem(stone));
+  }
+
+}
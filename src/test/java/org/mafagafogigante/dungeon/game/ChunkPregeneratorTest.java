@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.stats.WorldStatistics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChunkPregeneratorTest {
+
+  private static final long SEED = 1234L;
+  private static final int RADIUS = 2;
+
+  @Test
+  public void pregeneratedChunksShouldBeEqualToChunksGeneratedOnDemand() throws Exception {
+    World pregenerated = new World(new WorldStatistics(), SEED);
+    Point origin = new Point(0, 0, 0);
+    pregenerated.pregenerateAround(origin, RADIUS);
+    pregenerated.pregenerateAround(new Point(LocationChunk.CHUNK_SIDE, 0, 0), RADIUS);
+    World onDemand = new World(new WorldStatistics(), SEED);
+    final int range = (RADIUS + 1) * LocationChunk.CHUNK_SIDE;
+    try {
+      for (int x = -range; x < range; x++) {
+        for (int y = -range; y < range; y++) {
+          Point point = new Point(x, y, 0);
+          Assert.assertEquals(onDemand.getLocation(point).getId(), pregenerated.getLocation(point).getId());
+        }
+      }
+      Assert.assertEquals(onDemand.getLocationCount(), pregenerated.getLocationCount());
+    } finally {
+      pregenerated.stopPregeneration();
+    }
+  }
+
+}
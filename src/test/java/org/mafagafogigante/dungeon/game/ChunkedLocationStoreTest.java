@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.stats.ExplorationStatistics;
+import org.mafagafogigante.dungeon.stats.WorldStatistics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChunkedLocationStoreTest {
+
+  @Test
+  public void getLocationShouldExpandWholeChunks() throws Exception {
+    World world = new World(new WorldStatistics());
+    final int side = LocationChunk.CHUNK_SIDE;
+    Location location = world.getLocation(new Point(-1, 1, 0));
+    Assert.assertEquals(new Point(-1, 1, 0), location.getPoint());
+    for (int x = -side; x < 0; x++) {
+      for (int y = 0; y < side; y++) {
+        Assert.assertTrue(world.alreadyHasLocationAt(new Point(x, y, 0)));
+      }
+    }
+    Assert.assertFalse(world.alreadyHasLocationAt(new Point(0, 0, 0)));
+    Assert.assertFalse(world.alreadyHasLocationAt(new Point(-side - 1, 0, 0)));
+    Assert.assertSame(location, world.getLocation(new Point(-1, 1, 0)));
+  }
+
+  @Test
+  public void storeShouldKeepEveryLocationAfterGrowing() throws Exception {
+    World world = new World(new WorldStatistics());
+    final int range = 60;
+    for (int x = -range; x <= range; x += LocationChunk.CHUNK_SIDE) {
+      for (int y = -range; y <= range; y += LocationChunk.CHUNK_SIDE) {
+        world.getLocation(new Point(x, y, 0));
+      }
+    }
+    for (int x = -range; x <= range; x++) {
+      for (int y = -range; y <= range; y++) {
+        Point point = new Point(x, y, 0);
+        Assert.assertEquals(point, world.getLocation(point).getPoint());
+      }
+    }
+    Assert.assertTrue(world.getChunkCount() > 0);
+    Assert.assertTrue(world.getLocationCount() >= world.getChunkCount());
+    Assert.assertTrue(world.getLocationStoreFootprint() > 0);
+  }
+
+  @Test
+  public void evictedChunksShouldBeFaultedBackInUnchanged() throws Exception {
+    final long seed = 42L;
+    final int range = 50;
+    World paged = new World(new WorldStatistics(), seed);
+    paged.setChunkBudget(0); // Uses the minimum budget.
+    paged.pinChunksAround(new Point(0, 0, 0));
+    World resident = new World(new WorldStatistics(), seed);
+    try {
+      paged.generateRegion(-range, -range, range, range);
+      resident.generateRegion(-range, -range, range, range);
+      Assert.assertTrue(paged.getEvictedChunkCount() > 0);
+      Assert.assertEquals(paged.getChunkBudget(), paged.getResidentChunkCount());
+      for (int x = -range; x <= range; x++) {
+        for (int y = -range; y <= range; y++) {
+          Point point = new Point(x, y, 0);
+          Location location = paged.getLocation(point);
+          Assert.assertSame(paged, location.getWorld());
+          Assert.assertEquals(resident.getLocation(point).getId(), location.getId());
+          Assert.assertEquals(resident.getLocation(point).getItemList().size(), location.getItemList().size());
+        }
+      }
+      Assert.assertTrue(paged.getPagingStatistics().getFaultCount() > 0);
+      Assert.assertEquals(resident.getChunkCount(), paged.getChunkCount());
+      Assert.assertEquals(resident.getLocationCount(), paged.getLocationCount());
+    } finally {
+      paged.dispose();
+    }
+  }
+
+  private static long[] getLastChanges(Location location) {
+    long[] lastChanges = new long[location.getSpawners().size()];
+    for (int i = 0; i < lastChanges.length; i++) {
+      lastChanges[i] = location.getSpawners().get(i).getLastChange();
+    }
+    return lastChanges;
+  }
+
+  @Test
+  public void spawnerTimestampsAndExplorationStatisticsShouldSurviveEvictions() throws Exception {
+    GameState state = new GameState(new SeededRandom(5L));
+    Game.setGameState(state); // Spawned creatures are counted by the statistics of the game.
+    try {
+      World world = state.getWorld();
+      world.setChunkBudget(0); // Uses the minimum budget.
+      world.rollDate(7 * 24 * 3600);
+      // Far enough from the Hero for its chunk not to be pinned.
+      Point point = new Point(40, 0, 0);
+      while (world.getLocation(point).getSpawners().isEmpty()) {
+        point = new Point(point.getX() + 1, 0, 0);
+      }
+      Location location = world.getLocation(point);
+      location.refreshSpawners();
+      ExplorationStatistics exploration = state.getStatistics().getExplorationStatistics();
+      exploration.addVisit(point, location.getId());
+      exploration.addKill(point);
+      final long[] lastChanges = getLastChanges(location);
+      final int creatureCount = location.getCreatureCount();
+      final int visitedLocations = exploration.getVisitedLocations(location.getId());
+      final int killCount = exploration.getKillCount(location.getId());
+      world.generateRegion(-100, -100, 100, 100);
+      Assert.assertTrue(world.getPagingStatistics().getEvictionCount() > 0);
+      Location faulted = world.getLocation(point);
+      Assert.assertNotSame(location, faulted);
+      Assert.assertArrayEquals(lastChanges, getLastChanges(faulted));
+      Assert.assertEquals(creatureCount, faulted.getCreatureCount());
+      // No spawn is due, so refreshing the spawners read back does not change them.
+      faulted.refreshSpawners();
+      Assert.assertArrayEquals(lastChanges, getLastChanges(faulted));
+      Assert.assertEquals(creatureCount, faulted.getCreatureCount());
+      Assert.assertTrue(exploration.hasBeenSeen(point));
+      Assert.assertEquals(visitedLocations, exploration.getVisitedLocations(faulted.getId()));
+      Assert.assertEquals(killCount, exploration.getKillCount(faulted.getId()));
+    } finally {
+      Game.unsetGameState();
+    }
+  }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.commands.IssuedCommand;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CommandJournalTest {
+
+  private static final String[] COMMANDS = {"look", "go north", "go east", "rest", "go south", "look", "status"};
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @After
+  public void unsetGameState() {
+    Game.unsetGameState();
+  }
+
+  @Test
+  public void replayingAJournalShouldRebuildTheSameGame() throws IOException {
+    File file = folder.newFile("session" + CommandJournal.EXTENSION);
+    GameState recorded = new GameState(new SeededRandom(42));
+    recorded.setCommandJournal(CommandJournal.create(file, 42, recorded.getWorld().getSeed()));
+    Game.setGameState(recorded);
+    for (String command : COMMANDS) {
+      if (Game.processInput(new IssuedCommand(command))) {
+        Engine.endTurn();
+      }
+    }
+    Game.unsetGameState();
+    List<CommandJournal.Entry> entries = new ArrayList<CommandJournal.Entry>();
+    CommandJournal journal = CommandJournal.read(file, entries);
+    Assert.assertEquals(COMMANDS.length, entries.size());
+    CommandReplayer replayer = new CommandReplayer(entries);
+    GameState replayed = replayer.replay(journal);
+    Assert.assertEquals(-1, replayer.getFirstDivergence());
+    Assert.assertEquals(COMMANDS.length, replayer.getReplayedCount());
+    Assert.assertEquals(recorded.getWorld().getWorldDate().getTime(), replayed.getWorld().getWorldDate().getTime());
+    Assert.assertEquals(recorded.getHero().getLocation().getPoint(), replayed.getHero().getLocation().getPoint());
+    Assert.assertEquals(recorded.getHero().getHealth().getCurrent(), replayed.getHero().getHealth().getCurrent());
+  }
+
+  @Test
+  public void replayingAJournalOfALoadedGameShouldStartFromItsNewestSave() throws IOException {
+    File file = folder.newFile("session" + CommandJournal.EXTENSION);
+    File save = new File(folder.getRoot(), "save.dungeon");
+    GameState original = new GameState(new SeededRandom(42));
+    Game.setGameState(original);
+    for (int i = 0; i < 2; i++) {
+      Game.processInput(new IssuedCommand(COMMANDS[i]));
+      Engine.endTurn();
+    }
+    SaveJournal.save(original, save);
+    Game.unsetGameState();
+
+    GameState recorded = SaveJournal.load(save);
+    CommandJournal recording = CommandJournal.create(file, recorded);
+    recorded.setCommandJournal(recording);
+    Game.setGameState(recorded);
+    for (int i = 2; i < COMMANDS.length; i++) {
+      if (i == 4) {
+        // The replay starts from this save, so it only replays the commands that followed it.
+        SaveJournal.save(recorded, save);
+        recording.appendSave(recorded);
+      }
+      if (Game.processInput(new IssuedCommand(COMMANDS[i]))) {
+        Engine.endTurn();
+      }
+    }
+    long worldTime = recorded.getWorld().getWorldDate().getTime();
+    Point position = recorded.getHero().getLocation().getPoint();
+    int health = recorded.getHero().getHealth().getCurrent();
+    Game.unsetGameState();
+
+    List<CommandJournal.Entry> entries = new ArrayList<CommandJournal.Entry>();
+    CommandJournal journal = CommandJournal.read(file, entries);
+    Assert.assertEquals(save.getAbsoluteFile(), journal.getSave());
+    Assert.assertEquals(COMMANDS.length - 2, entries.size());
+    CommandReplayer replayer = new CommandReplayer(entries);
+    GameState replayed = replayer.replay(journal);
+    Assert.assertEquals(2, replayer.getFirstReplayed());
+    Assert.assertEquals(COMMANDS.length - 4, replayer.getReplayedCount());
+    Assert.assertEquals(-1, replayer.getFirstDivergence());
+    Assert.assertEquals(worldTime, replayed.getWorld().getWorldDate().getTime());
+    Assert.assertEquals(position, replayed.getHero().getLocation().getPoint());
+    Assert.assertEquals(health, replayed.getHero().getHealth().getCurrent());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void replayingAJournalOfAGameWhoseSaveWasReplacedShouldFail() throws IOException {
+    File file = folder.newFile("session" + CommandJournal.EXTENSION);
+    File save = new File(folder.getRoot(), "save.dungeon");
+    GameState original = new GameState(new SeededRandom(42));
+    SaveJournal.save(original, save);
+    original.getWorld().dispose();
+    GameState recorded = SaveJournal.load(save);
+    CommandJournal.create(file, recorded).close();
+    recorded.getWorld().dispose();
+    GameState other = new GameState(new SeededRandom(43));
+    SaveJournal.save(other, save);
+    other.getWorld().dispose();
+    CommandJournal journal = CommandJournal.read(file, new ArrayList<CommandJournal.Entry>());
+    new CommandReplayer(new ArrayList<CommandJournal.Entry>()).replay(journal);
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.entity.TagSet;
+import org.mafagafogigante.dungeon.entity.creatures.Creature;
+import org.mafagafogigante.dungeon.entity.creatures.CreaturePreset;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class CreatureCollectionTest {
+
+  private static Creature makeCreature(String id) {
+    CreaturePreset preset = new CreaturePreset();
+    preset.setId(new Id(id));
+    preset.setType(id);
+    preset.setName(NameFactory.newInstance(id));
+    preset.setHealth(10);
+    preset.setTagSet(TagSet.makeEmptyTagSet(Creature.Tag.class));
+    return new Creature(preset);
+  }
+
+  @Test
+  public void countsShouldFollowAdditionsAndRemovals() throws Exception {
+    CreatureCollection collection = new CreatureCollection();
+    Creature firstBat = makeCreature("BAT");
+    Creature secondBat = makeCreature("BAT");
+    Creature rat = makeCreature("RAT");
+    collection.add(firstBat);
+    collection.add(rat);
+    collection.add(secondBat);
+    collection.add(secondBat);
+    Assert.assertEquals(3, collection.size());
+    Assert.assertEquals(2, collection.count(new Id("BAT")));
+    Assert.assertEquals(1, collection.count(new Id("RAT")));
+    Assert.assertEquals(0, collection.count(new Id("SPIDER")));
+    Assert.assertTrue(collection.remove(firstBat));
+    Assert.assertFalse(collection.remove(firstBat));
+    Assert.assertEquals(1, collection.count(new Id("BAT")));
+    Assert.assertTrue(collection.remove(rat));
+    Assert.assertEquals(0, collection.count(new Id("RAT")));
+    Assert.assertEquals(1, collection.size());
+  }
+
+  @Test
+  public void toListShouldPreserveTheInsertionOrderAndBeASnapshot() throws Exception {
+    CreatureCollection collection = new CreatureCollection();
+    Creature bat = makeCreature("BAT");
+    Creature rat = makeCreature("RAT");
+    Creature spider = makeCreature("SPIDER");
+    collection.add(bat);
+    collection.add(rat);
+    collection.add(spider);
+    List<Creature> before = collection.toList();
+    Assert.assertEquals(Arrays.asList(bat, rat, spider), before);
+    collection.remove(rat);
+    Assert.assertEquals(Arrays.asList(bat, rat, spider), before);
+    Assert.assertEquals(Arrays.asList(bat, spider), collection.toList());
+  }
+
+}
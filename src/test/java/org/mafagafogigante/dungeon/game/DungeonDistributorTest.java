@@ -73,7 +73,7 @@ public class DungeonDistributorTest {
 
   @Test
   public void dungeonDistributorShouldThrowExceptionIfTheSameEntranceIsRegisteredTwice() throws Exception {
-    DungeonDistributor first = new DungeonDistributor();
+    DungeonDistributor first = new DungeonDistributor(0L, new RiverGenerator(0L));
     first.registerDungeonEntrance(new Point(0, 0, 0));
     try {
       first.registerDungeonEntrance(new Point(0, 0, 0));
@@ -85,9 +85,9 @@ public class DungeonDistributorTest {
 
   @Test
   public void dungeonDistributorsEntranceRegistriesShouldBeIndependent() throws Exception {
-    DungeonDistributor first = new DungeonDistributor();
+    DungeonDistributor first = new DungeonDistributor(0L, new RiverGenerator(0L));
     first.registerDungeonEntrance(new Point(0, 0, 0));
-    DungeonDistributor second = new DungeonDistributor();
+    DungeonDistributor second = new DungeonDistributor(0L, new RiverGenerator(0L));
     second.registerDungeonEntrance(new Point(0, 0, 0));
   }
 
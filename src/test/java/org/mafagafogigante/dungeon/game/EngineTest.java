@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.entity.creatures.Creature;
+import org.mafagafogigante.dungeon.entity.creatures.CreatureFactory;
+import org.mafagafogigante.dungeon.entity.creatures.Hero;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class EngineTest {
+
+  private static final String[] FOES = {"BAT", "FRUIT_BAT", "ORC", "WOLF"};
+
+  /**
+   * Plays a battle against a new creature that starts the specified number of turns before the next part of the day,
+   * returning everything about the battle that the battle mode must not change.
+   */
+  private static String playBattle(long seed, String foeId, int turnsBeforeNextPartOfDay, boolean fast) {
+    GameState state = new GameState(new SeededRandom(seed));
+    Game.setGameState(state);
+    try {
+      World world = state.getWorld();
+      PartOfDay next = PartOfDay.values()[(world.getPartOfDay().ordinal() + 1) % PartOfDay.values().length];
+      world.rollDate(PartOfDay.getSecondsToNext(world.getWorldDate(), next) - turnsBeforeNextPartOfDay * 30);
+      Hero hero = state.getHero();
+      Creature foe = CreatureFactory.makeCreature(new Id(foeId));
+      hero.getLocation().addCreature(foe);
+      Engine.battle(hero, foe, fast);
+      List<Object> outcome = new ArrayList<Object>();
+      outcome.add(hero.getHealth().getCurrent());
+      outcome.add(foe.getHealth().getCurrent());
+      outcome.add(hero.getCauseOfDeath());
+      outcome.add(foe.getCauseOfDeath());
+      outcome.add(world.getWorldDate().getTime());
+      outcome.add(hero.getLocation().getCreatureCount());
+      outcome.add(state.getStatistics().getBattleStatistics().getKillsByCauseOfDeath());
+      return outcome.toString();
+    } finally {
+      Game.unsetGameState();
+    }
+  }
+
+  @Test
+  public void fastBattlesShouldBeResolvedExactlyLikeTurnByTurnBattles() throws Exception {
+    for (long seed = 0; seed < 8; seed++) {
+      for (String foe : FOES) {
+        // Most of these battles cross the start of a part of the day, which changes the luminosity of the Location.
+        int turnsBeforeNextPartOfDay = 1 + (int) seed;
+        String turnByTurn = playBattle(seed, foe, turnsBeforeNextPartOfDay, false);
+        Assert.assertEquals(turnByTurn, playBattle(seed, foe, turnsBeforeNextPartOfDay, true));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EntranceIndexTest {
+
+  @Test
+  public void addShouldRejectDuplicates() throws Exception {
+    EntranceIndex index = new EntranceIndex(5, 5);
+    Assert.assertTrue(index.add(new Point(3, 4, 0)));
+    Assert.assertFalse(index.add(new Point(3, 4, 0)));
+    Assert.assertTrue(index.add(new Point(3, 4, 1)));
+    Assert.assertEquals(2, index.size());
+  }
+
+  @Test
+  public void containsAnyShouldWorkAcrossBucketBoundaries() throws Exception {
+    EntranceIndex index = new EntranceIndex(5, 5);
+    index.add(new Point(-1, -1, 0));
+    index.add(new Point(-5, 0, 0));
+    Assert.assertTrue(index.containsAny(-2, -2, 2, 2, 0));
+    Assert.assertTrue(index.containsAny(-5, 0, -5, 0, 0));
+    Assert.assertFalse(index.containsAny(0, 0, 4, 4, 0));
+    Assert.assertFalse(index.containsAny(-4, 0, 0, 4, 0));
+    Assert.assertFalse(index.containsAny(-2, -2, 2, 2, 1));
+  }
+
+  @Test
+  public void containsAnyShouldAgreeWithExhaustiveSearch() throws Exception {
+    EntranceIndex index = new EntranceIndex(3, 3);
+    for (int x = -20; x <= 20; x += 7) {
+      for (int y = -20; y <= 20; y += 5) {
+        index.add(new Point(x, y, 0));
+      }
+    }
+    for (int x = -22; x <= 22; x++) {
+      for (int y = -22; y <= 22; y++) {
+        boolean expected = false;
+        for (int i = x - 1; i <= x + 1; i++) {
+          for (int j = y - 1; j <= y + 1; j++) {
+            expected |= index.contains(new Point(i, j, 0));
+          }
+        }
+        Assert.assertEquals(expected, index.containsAny(x - 1, y - 1, x + 1, y + 1, 0));
+      }
+    }
+  }
+
+}
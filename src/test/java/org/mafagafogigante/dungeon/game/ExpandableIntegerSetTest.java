@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExpandableIntegerSetTest {
+
+  private static final int MINIMUM_DIFFERENCE = 4;
+  private static final int MAXIMUM_DIFFERENCE = 20;
+
+  @Test
+  public void expandShouldKeepTheSetSortedAndSpaced() throws Exception {
+    ExpandableIntegerSet set = new ExpandableIntegerSet(MINIMUM_DIFFERENCE, MAXIMUM_DIFFERENCE, 3L);
+    Assert.assertTrue(set.expand(1000) > 0);
+    Assert.assertTrue(set.expand(-1000) > 0);
+    Assert.assertTrue(set.first() < -1000);
+    Assert.assertTrue(set.last() > 1000);
+    for (int i = 1; i < set.size(); i++) {
+      int difference = set.get(i) - set.get(i - 1);
+      Assert.assertTrue(difference >= MINIMUM_DIFFERENCE && difference < MAXIMUM_DIFFERENCE);
+      Assert.assertTrue(set.contains(set.get(i)));
+      Assert.assertFalse(set.contains(set.get(i) - 1));
+    }
+    Assert.assertEquals(0, set.expand(0));
+  }
+
+  @Test
+  public void setsWithTheSameSeedShouldNotDependOnTheExpansionOrder() throws Exception {
+    ExpandableIntegerSet first = new ExpandableIntegerSet(MINIMUM_DIFFERENCE, MAXIMUM_DIFFERENCE, 5L);
+    ExpandableIntegerSet second = new ExpandableIntegerSet(MINIMUM_DIFFERENCE, MAXIMUM_DIFFERENCE, 5L);
+    for (int i = 0; i <= 500; i += 50) {
+      first.expand(i);
+      first.expand(-i);
+    }
+    second.expand(-500);
+    second.expand(500);
+    Assert.assertEquals(first.size(), second.size());
+    for (int i = 0; i < first.size(); i++) {
+      Assert.assertEquals(first.get(i), second.get(i));
+    }
+  }
+
+}
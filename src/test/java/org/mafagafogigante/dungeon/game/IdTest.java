@@ -20,6 +20,11 @@ package org.mafagafogigante.dungeon.game;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 public class IdTest {
 
   @Test
@@ -46,4 +51,16 @@ public class IdTest {
     new Id("ID_WITH_NUMBER_255");
   }
 
-}
\ No newline at end of file
+  @Test
+  public void deserializedIdsShouldBeCanonical() throws Exception {
+    Id canonical = new Id("CANONICAL_ID").intern();
+    Assert.assertSame(canonical, new Id("CANONICAL_ID").intern());
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(new Id("CANONICAL_ID"));
+    out.close();
+    ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    Assert.assertSame(canonical, in.readObject());
+  }
+
+}
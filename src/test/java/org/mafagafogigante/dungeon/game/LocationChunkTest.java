@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class LocationChunkTest {
+
+  @Test
+  public void toChunkCoordinateShouldRoundTowardsNegativeInfinity() throws Exception {
+    final int side = LocationChunk.CHUNK_SIDE;
+    Assert.assertEquals(0, LocationChunk.toChunkCoordinate(0));
+    Assert.assertEquals(0, LocationChunk.toChunkCoordinate(side - 1));
+    Assert.assertEquals(1, LocationChunk.toChunkCoordinate(side));
+    Assert.assertEquals(-1, LocationChunk.toChunkCoordinate(-1));
+    Assert.assertEquals(-1, LocationChunk.toChunkCoordinate(-side));
+    Assert.assertEquals(-2, LocationChunk.toChunkCoordinate(-side - 1));
+  }
+
+  @Test
+  public void makeKeyShouldNotCollideForNearbyChunks() throws Exception {
+    final int range = 8;
+    Set<Long> keys = new HashSet<Long>();
+    for (int x = -range; x <= range; x++) {
+      for (int y = -range; y <= range; y++) {
+        for (int z = -range; z <= range; z++) {
+          Assert.assertTrue(keys.add(LocationChunk.makeKey(x, y, z)));
+        }
+      }
+    }
+  }
+
+}
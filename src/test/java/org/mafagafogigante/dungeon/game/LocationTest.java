@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.entity.Luminosity;
+import org.mafagafogigante.dungeon.entity.TagSet;
+import org.mafagafogigante.dungeon.entity.creatures.Creature;
+import org.mafagafogigante.dungeon.entity.creatures.CreaturePreset;
+import org.mafagafogigante.dungeon.entity.items.Item;
+import org.mafagafogigante.dungeon.stats.WorldStatistics;
+import org.mafagafogigante.dungeon.util.Percentage;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class LocationTest {
+
+  @Test
+  public void locationsShouldStayDormantUntilTheirContentsAreNeeded() throws Exception {
+    World world = new World(new WorldStatistics(), 7L);
+    Location location = world.getLocation(new Point(1, 1, 0));
+    Assert.assertTrue(location.isDormant());
+    location.getName();
+    location.isBlocked(Direction.NORTH);
+    Assert.assertTrue(location.isDormant());
+    location.getItemList();
+    Assert.assertFalse(location.isDormant());
+  }
+
+  @Test
+  public void contentsShouldNotDependOnWhenTheyAreCreated() throws Exception {
+    final int range = 20;
+    World eager = new World(new WorldStatistics(), 7L);
+    World lazy = new World(new WorldStatistics(), 7L);
+    for (int x = -range; x <= range; x++) {
+      for (int y = -range; y <= range; y++) {
+        eager.getLocation(new Point(x, y, 0)).getItemList();
+        lazy.getLocation(new Point(x, y, 0));
+      }
+    }
+    lazy.rollDate(1000000);
+    int itemCount = 0;
+    for (int x = -range; x <= range; x++) {
+      for (int y = -range; y <= range; y++) {
+        List<Item> eagerItems = eager.getLocation(new Point(x, y, 0)).getItemList();
+        List<Item> lazyItems = lazy.getLocation(new Point(x, y, 0)).getItemList();
+        Assert.assertEquals(eagerItems.size(), lazyItems.size());
+        for (int i = 0; i < eagerItems.size(); i++) {
+          Assert.assertEquals(eagerItems.get(i).getId(), lazyItems.get(i).getId());
+        }
+        itemCount += eagerItems.size();
+      }
+    }
+    Assert.assertTrue(itemCount > 0);
+  }
+
+  @Test
+  public void luminosityShouldFollowTheLightSourcesInTheLocation() throws Exception {
+    World world = new World(new WorldStatistics(), 7L);
+    Location location = world.getLocation(new Point(1, 1, 0));
+    CreaturePreset preset = new CreaturePreset();
+    preset.setId(new Id("FIREFLY"));
+    preset.setType("Firefly");
+    preset.setName(NameFactory.newInstance("Firefly"));
+    preset.setHealth(1);
+    preset.setTagSet(TagSet.makeEmptyTagSet(Creature.Tag.class));
+    preset.setLuminosity(new Luminosity(new Percentage(0.1)));
+    Creature firefly = new Creature(preset);
+    double darkness = location.getLuminosity().toPercentage().toDouble();
+    double light = Math.min(darkness + 0.1, 1.0);
+    location.addCreature(firefly);
+    Assert.assertEquals(light, location.getLuminosity().toPercentage().toDouble(), 1e-9);
+    firefly.getLightSource().disable();
+    Assert.assertEquals(darkness, location.getLuminosity().toPercentage().toDouble(), 1e-9);
+    firefly.getLightSource().enable();
+    Assert.assertEquals(light, location.getLuminosity().toPercentage().toDouble(), 1e-9);
+    location.removeCreature(firefly);
+    Assert.assertEquals(darkness, location.getLuminosity().toPercentage().toDouble(), 1e-9);
+  }
+
+}
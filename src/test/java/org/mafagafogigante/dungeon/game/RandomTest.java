@@ -53,4 +53,41 @@ public class RandomTest {
     Assert.assertTrue(Random.select(integerList).equals(0));
   }
 
+  @Test
+  public void seededRandomsWithTheSameSeedShouldProduceTheSameValues() throws Exception {
+    RandomSource first = new SeededRandom(1234);
+    RandomSource second = new SeededRandom(1234);
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(first.nextLong(), second.nextLong());
+    }
+  }
+
+  @Test
+  public void splitShouldProduceADifferentStream() throws Exception {
+    RandomSource parent = new SeededRandom(1234);
+    RandomSource child = parent.split();
+    int equal = 0;
+    for (int i = 0; i < 100; i++) {
+      if (parent.nextLong() == child.nextLong()) {
+        equal++;
+      }
+    }
+    Assert.assertEquals(0, equal);
+  }
+
+  @Test
+  public void eachThreadShouldHaveItsOwnSource() throws Exception {
+    final RandomSource[] other = new RandomSource[1];
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        other[0] = Random.getSource();
+      }
+    });
+    thread.start();
+    thread.join();
+    Assert.assertSame(Random.getSource(), Random.getSource());
+    Assert.assertNotSame(Random.getSource(), other[0]);
+  }
+
 }
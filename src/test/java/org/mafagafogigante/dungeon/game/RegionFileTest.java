@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.stats.WorldStatistics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+public class RegionFileTest {
+
+  private static final int KEYS = 8;
+  private static final int LENGTH = 64 * 1024;
+
+  private static byte[] makeBytes(long key, int version) {
+    byte[] bytes = new byte[LENGTH];
+    Arrays.fill(bytes, (byte) (31 * key + version));
+    return bytes;
+  }
+
+  @Test
+  public void fileShouldBeCompactedWithoutInvalidatingOpenHandles() throws Exception {
+    RegionFile regionFile = new RegionFile(new World(new WorldStatistics()));
+    try {
+      for (int key = 0; key < KEYS; key++) {
+        regionFile.append(key, makeBytes(key, 0));
+      }
+      // A handle opened before the compaction, as a Capture opens one, and where the chunk it wants to read is.
+      RandomAccessFile handle = regionFile.openForReading();
+      final long offset = regionFile.getOffset(0);
+      final int length = regionFile.getLength(0);
+      int version = 1;
+      for (; version < 64; version++) {
+        for (int key = 0; key < KEYS; key++) {
+          regionFile.append(key, makeBytes(key, version));
+        }
+        long bound = Math.max(RegionFile.MINIMUM_COMPACTION_LENGTH, 2 * regionFile.getLiveByteCount()) + LENGTH;
+        Assert.assertTrue(regionFile.getFileLength() <= bound);
+      }
+      Assert.assertEquals(KEYS * (long) LENGTH, regionFile.getLiveByteCount());
+      for (int key = 0; key < KEYS; key++) {
+        Assert.assertArrayEquals(makeBytes(key, version - 1), regionFile.readBytes(key));
+      }
+      try {
+        byte[] bytes = new byte[length];
+        handle.seek(offset);
+        handle.readFully(bytes);
+        Assert.assertArrayEquals(makeBytes(0, 0), bytes);
+      } finally {
+        handle.close();
+      }
+    } finally {
+      regionFile.delete();
+    }
+  }
+
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.entity.creatures.Creature;
+import org.mafagafogigante.dungeon.entity.creatures.Hero;
+import org.mafagafogigante.dungeon.entity.items.Item;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public class SaveJournalTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static void moveHero(GameState state, Point destination) {
+    Hero hero = state.getHero();
+    hero.getLocation().removeCreature(hero);
+    state.getWorld().getLocation(destination).addCreature(hero);
+    state.setHeroPosition(destination);
+  }
+
+  private static void assertHeroIsAt(GameState state, Point point) {
+    Hero hero = state.getHero();
+    Assert.assertEquals(point, hero.getLocation().getPoint());
+    Assert.assertSame(hero.getLocation(), state.getWorld().getLocation(point));
+    Assert.assertTrue(hero.getLocation().getCreatures().contains(hero));
+    Assert.assertSame(state.getWorld(), hero.getLocation().getWorld());
+  }
+
+  private static void appendGarbage(File file) throws IOException {
+    FileOutputStream stream = new FileOutputStream(file, true);
+    try {
+      stream.write(new byte[] {1, 2, 3});
+    } finally {
+      stream.close();
+    }
+  }
+
+  private static byte[] readBytes(File file) throws IOException {
+    RandomAccessFile stream = new RandomAccessFile(file, "r");
+    try {
+      byte[] bytes = new byte[(int) stream.length()];
+      stream.readFully(bytes);
+      return bytes;
+    } finally {
+      stream.close();
+    }
+  }
+
+  @Test
+  public void savesShouldOnlyAppendWhatChangedAndLoadBackTheSameGame() throws Exception {
+    File snapshot = new File(folder.getRoot(), "test.dungeon");
+    File journal = SaveJournal.getJournalFile(snapshot);
+    GameState state = new GameState();
+    GameState loaded = null;
+    try {
+      state.getWorld().setChunkBudget(0); // Uses the minimum budget, so that some chunks are saved from the disk.
+      state.getWorld().generateRegion(-60, -60, 60, 60);
+      Assert.assertTrue(state.getWorld().getEvictedChunkCount() > 0);
+      int chunkCount = state.getWorld().getChunkCount();
+      int locationCount = state.getWorld().getLocationCount();
+      long fullSave = SaveJournal.save(state, snapshot);
+      Assert.assertEquals(snapshot.length(), fullSave);
+      Assert.assertFalse(journal.exists());
+
+      Point destination = new Point(1, 0, 0);
+      moveHero(state, destination);
+      long deltaSave = SaveJournal.save(state, snapshot);
+      Assert.assertTrue(journal.exists());
+      Assert.assertTrue(deltaSave < fullSave);
+      Assert.assertEquals(fullSave, snapshot.length());
+
+      // An interrupted save leaves records that are not committed.
+      appendGarbage(journal);
+      loaded = SaveJournal.load(snapshot);
+      assertHeroIsAt(loaded, destination);
+      Assert.assertFalse(loaded.getWorld().getLocation(new Point(0, 0, 0)).getCreatures().contains(loaded.getHero()));
+      Assert.assertEquals(chunkCount, loaded.getWorld().getChunkCount());
+      Assert.assertEquals(locationCount, loaded.getWorld().getLocationCount());
+      // Only the chunks around the Hero are read when the game is loaded.
+      int savedChunkCount = loaded.getWorld().getSavedChunkCount();
+      Assert.assertTrue(savedChunkCount > 0);
+      Assert.assertTrue(savedChunkCount < chunkCount);
+      Assert.assertNotNull(loaded.getWorld().getLocation(new Point(60, 60, 0)));
+      Assert.assertTrue(loaded.getWorld().getSavedChunkCount() < savedChunkCount);
+      Assert.assertEquals(chunkCount, loaded.getWorld().getChunkCount());
+
+      // Saving the loaded game extends the journal, discarding what was not committed.
+      Point next = new Point(2, 0, 0);
+      moveHero(loaded, next);
+      SaveJournal.save(loaded, snapshot);
+      // The snapshot is not compacted while a game reads its chunks from it.
+      SaveJournal.compact(snapshot);
+      Assert.assertTrue(journal.exists());
+      loaded.getWorld().dispose();
+      SaveJournal.compact(snapshot);
+      Assert.assertFalse(journal.exists());
+      loaded = SaveJournal.load(snapshot);
+      assertHeroIsAt(loaded, next);
+      Assert.assertEquals(chunkCount, loaded.getWorld().getChunkCount());
+    } finally {
+      state.getWorld().dispose();
+      if (loaded != null) {
+        loaded.getWorld().dispose();
+      }
+    }
+  }
+
+  @Test
+  public void capturesShouldNotSeeWhatChangesBeforeTheyAreWritten() throws Exception {
+    File snapshot = new File(folder.getRoot(), "test.dungeon");
+    GameState state = new GameState();
+    GameState loaded = null;
+    try {
+      SaveJournal.save(state, snapshot);
+      moveHero(state, new Point(1, 0, 0));
+      state.setSaved(false);
+      SaveJournal.Capture capture = SaveJournal.capture(state, snapshot);
+      moveHero(state, new Point(2, 0, 0));
+      state.setSaved(false);
+      SaveJournal.write(capture);
+      state.setSavedAsOf(capture.getModificationCount());
+      Assert.assertFalse(state.isSaved());
+      loaded = SaveJournal.load(snapshot);
+      assertHeroIsAt(loaded, new Point(1, 0, 0));
+    } finally {
+      state.getWorld().dispose();
+      if (loaded != null) {
+        loaded.getWorld().dispose();
+      }
+    }
+  }
+
+  @Test
+  public void savesWrittenWithEitherCodecShouldBeReadableAndExtensibleWithTheOther() throws Exception {
+    File fast = new File(folder.getRoot(), "fast.dungeon");
+    File dense = new File(folder.getRoot(), "dense.dungeon");
+    GameState state = new GameState();
+    GameState loaded = null;
+    try {
+      state.getWorld().generateRegion(-30, -30, 30, 30);
+      SaveJournal.save(state, fast, SaveJournal.Codec.FAST);
+      SaveJournal.save(state, dense, SaveJournal.Codec.DENSE);
+      Assert.assertTrue(dense.length() <= fast.length());
+      SaveJournal.Compression compression = SaveJournal.readSummary(fast).getCompression();
+      Assert.assertEquals(SaveJournal.Codec.FAST, compression.getCodec());
+      Assert.assertTrue(compression.getCompressedByteCount() < fast.length());
+      Assert.assertTrue(compression.getUncompressedByteCount() > compression.getCompressedByteCount());
+
+      long before = SaveJournal.readSummary(dense).getCompression().getUncompressedByteCount();
+      moveHero(state, new Point(1, 0, 0));
+      SaveJournal.save(state, dense, SaveJournal.Codec.FAST);
+      Assert.assertTrue(SaveJournal.readSummary(dense).getCompression().getUncompressedByteCount() > before);
+      SaveJournal.compact(dense);
+      Assert.assertEquals(SaveJournal.Codec.DENSE, SaveJournal.readSummary(dense).getCompression().getCodec());
+      loaded = SaveJournal.load(dense);
+      assertHeroIsAt(loaded, new Point(1, 0, 0));
+      Assert.assertEquals(state.getWorld().getLocationCount(), loaded.getWorld().getLocationCount());
+    } finally {
+      state.getWorld().dispose();
+      if (loaded != null) {
+        loaded.getWorld().dispose();
+      }
+    }
+  }
+
+  @Test
+  public void journalsOfReplacedSnapshotsShouldBeIgnored() throws Exception {
+    File snapshot = new File(folder.getRoot(), "test.dungeon");
+    GameState first = new GameState();
+    GameState second = new GameState();
+    GameState loaded = null;
+    try {
+      SaveJournal.save(first, snapshot);
+      moveHero(first, new Point(1, 0, 0));
+      SaveJournal.save(first, snapshot);
+      Assert.assertTrue(SaveJournal.getJournalFile(snapshot).exists());
+      // The second game has never been saved to the file, so it replaces the snapshot and its journal.
+      SaveJournal.save(second, snapshot);
+      Assert.assertFalse(SaveJournal.getJournalFile(snapshot).exists());
+      loaded = SaveJournal.load(snapshot);
+      assertHeroIsAt(loaded, new Point(0, 0, 0));
+      Assert.assertEquals(second.getWorld().getSeed(), loaded.getWorld().getSeed());
+    } finally {
+      first.getWorld().dispose();
+      second.getWorld().dispose();
+      if (loaded != null) {
+        loaded.getWorld().dispose();
+      }
+    }
+  }
+
+  @Test
+  public void loadedGamesShouldShareTheDataOfThePresets() throws Exception {
+    File snapshot = new File(folder.getRoot(), "presets.dungeon");
+    GameState state = new GameState();
+    GameState loaded = null;
+    try {
+      state.getWorld().generateRegion(-10, -10, 10, 10);
+      SaveJournal.save(state, snapshot);
+      loaded = SaveJournal.load(snapshot);
+      LocationPresetStore store = LocationPresetStore.getLocationPresetStore();
+      int entityCount = 0;
+      for (int x = -10; x <= 10; x++) {
+        for (int y = -10; y <= 10; y++) {
+          Location location = loaded.getWorld().getLocation(new Point(x, y, 0));
+          LocationPreset preset = store.getLocationPreset(location.getId());
+          Assert.assertSame(preset.getId(), location.getId());
+          Assert.assertSame(preset.getName(), location.getName());
+          Assert.assertSame(preset.getDescription(), location.getDescription());
+          Assert.assertSame(preset.getLightPermittivity(), location.getLightPermittivity());
+          Location original = state.getWorld().getLocation(new Point(x, y, 0));
+          for (int i = 0; i < location.getItemList().size(); i++) {
+            Item item = location.getItemList().get(i);
+            Assert.assertSame(original.getItemList().get(i).getId(), item.getId());
+            Assert.assertSame(original.getItemList().get(i).getName(), item.getName());
+            entityCount++;
+          }
+          for (int i = 0; i < location.getCreatureCount(); i++) {
+            Creature creature = location.getCreatures().get(i);
+            Assert.assertSame(original.getCreatures().get(i).getId(), creature.getId());
+            Assert.assertSame(original.getCreatures().get(i).getName(), creature.getName());
+            entityCount++;
+          }
+        }
+      }
+      Assert.assertTrue(entityCount > 0);
+    } finally {
+      state.getWorld().dispose();
+      if (loaded != null) {
+        loaded.getWorld().dispose();
+      }
+    }
+  }
+
+  @Test
+  public void locationsAddedToChunksThatAlreadyExistShouldBeSaved() throws Exception {
+    File snapshot = new File(folder.getRoot(), "adjacent.dungeon");
+    GameState state = new GameState(new SeededRandom(1L));
+    GameState loaded = null;
+    try {
+      state.getWorld().generateRegion(-60, -20, 60, 20);
+      SaveJournal.save(state, snapshot);
+      // Dungeons are wider than one Location, so the dungeons of these chunks reach into chunks that were saved.
+      state.getWorld().generateRegion(61, -20, 120, 20);
+      state.getWorld().generateRegion(-60, 21, 120, 60);
+      SaveJournal.save(state, snapshot);
+      loaded = SaveJournal.load(snapshot);
+      int locationCount = 0;
+      for (int x = -70; x <= 130; x++) {
+        for (int y = -30; y <= 70; y++) {
+          for (int z = -2; z <= 0; z++) {
+            Point point = new Point(x, y, z);
+            boolean saved = state.getWorld().alreadyHasLocationAt(point);
+            Assert.assertEquals(point.toString(), saved, loaded.getWorld().alreadyHasLocationAt(point));
+            if (saved) {
+              locationCount++;
+            }
+          }
+        }
+      }
+      Assert.assertEquals(state.getWorld().getLocationCount(), locationCount);
+    } finally {
+      state.getWorld().dispose();
+      if (loaded != null) {
+        loaded.getWorld().dispose();
+      }
+    }
+  }
+
+  @Test
+  public void deltaSavesShouldNotModifyTheSnapshot() throws Exception {
+    File snapshot = new File(folder.getRoot(), "test.dungeon");
+    File journal = SaveJournal.getJournalFile(snapshot);
+    GameState state = new GameState();
+    GameState loaded = null;
+    try {
+      state.getWorld().generateRegion(-60, -60, 60, 60);
+      SaveJournal.save(state, snapshot);
+      byte[] snapshotBytes = readBytes(snapshot);
+      int firstLocationCount = state.getWorld().getLocationCount();
+      moveHero(state, new Point(1, 0, 0));
+      state.getWorld().generateRegion(61, -10, 80, 10);
+      SaveJournal.save(state, snapshot);
+      long committedLength = journal.length();
+      int secondLocationCount = state.getWorld().getLocationCount();
+      Assert.assertTrue(secondLocationCount > firstLocationCount);
+      Assert.assertArrayEquals(snapshotBytes, readBytes(snapshot));
+      Assert.assertEquals(secondLocationCount, SaveJournal.readSummary(snapshot).getMetadata().getLocationCount());
+
+      moveHero(state, new Point(2, 0, 0));
+      state.getWorld().generateRegion(81, -10, 100, 10);
+      SaveJournal.save(state, snapshot);
+      // Otherwise, loading the game would merge the journal into the snapshot.
+      Assert.assertFalse(SaveJournal.shouldCompact(snapshot));
+      Assert.assertArrayEquals(snapshotBytes, readBytes(snapshot));
+      Assert.assertEquals(state.getWorld().getLocationCount(),
+          SaveJournal.readSummary(snapshot).getMetadata().getLocationCount());
+
+      // A save torn inside its commit, where the Metadata is, is ignored together with its records.
+      RandomAccessFile file = new RandomAccessFile(journal, "rw");
+      try {
+        file.setLength(journal.length() - 20);
+      } finally {
+        file.close();
+      }
+      Assert.assertEquals(secondLocationCount, SaveJournal.readSummary(snapshot).getMetadata().getLocationCount());
+      loaded = SaveJournal.load(snapshot);
+      assertHeroIsAt(loaded, new Point(1, 0, 0));
+      Assert.assertEquals(secondLocationCount, loaded.getWorld().getLocationCount());
+      loaded.getWorld().dispose();
+
+      // So is a commit whose Metadata was corrupted.
+      file = new RandomAccessFile(journal, "rw");
+      try {
+        file.setLength(committedLength);
+        file.seek(committedLength - 8 - 20);
+        file.write(0xFF);
+      } finally {
+        file.close();
+      }
+      Assert.assertEquals(firstLocationCount, SaveJournal.readSummary(snapshot).getMetadata().getLocationCount());
+      loaded = SaveJournal.load(snapshot);
+      assertHeroIsAt(loaded, new Point(0, 0, 0));
+      Assert.assertArrayEquals(snapshotBytes, readBytes(snapshot));
+    } finally {
+      state.getWorld().dispose();
+      if (loaded != null) {
+        loaded.getWorld().dispose();
+      }
+    }
+  }
+
+}
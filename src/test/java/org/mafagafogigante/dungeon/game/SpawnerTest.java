@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.entity.creatures.Creature;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SpawnerTest {
+
+  private static final Id DUMMY = new Id("DUMMY");
+  private static final int POPULATION = 4;
+  private static final long DELAY = 3600 * 1000L;
+
+  /**
+   * The loop that Spawner.refresh used to run once per elapsed spawn delay.
+   */
+  private static class LoopingSpawner {
+
+    private long lastChange;
+    private int population;
+
+    LoopingSpawner(long lastChange) {
+      this.lastChange = lastChange;
+    }
+
+    void refresh(long worldTime) {
+      while (worldTime - lastChange >= DELAY && population < POPULATION) {
+        population++;
+        lastChange += DELAY;
+      }
+    }
+
+    void notifyKill(long worldTime) {
+      if (population == POPULATION) {
+        lastChange = worldTime;
+      }
+      population--;
+    }
+
+  }
+
+  @Test
+  public void refreshShouldBehaveExactlyLikeTheLoopItReplaced() throws Exception {
+    GameState state = new GameState(new SeededRandom(7L));
+    Game.setGameState(state); // Spawned creatures are counted by the statistics of the game.
+    try {
+      World world = state.getWorld();
+      Location location = world.getLocation(new Point(0, 0, 0));
+      Assert.assertEquals(0, location.getCreatureCount(DUMMY));
+      Spawner spawner = new Spawner(new SpawnerPreset(DUMMY.toString(), POPULATION, 1), location);
+      LoopingSpawner loop = new LoopingSpawner(spawner.getLastChange());
+      RandomSource random = new SeededRandom(11L);
+      // Elapsed times from a few seconds to a few days, with kills in between.
+      for (int step = 0; step < 500; step++) {
+        world.rollDate(1 + random.nextInteger(random.nextBoolean() ? 7200 : 4 * 24 * 3600));
+        long worldTime = world.getWorldDate().getTime();
+        spawner.refresh();
+        loop.refresh(worldTime);
+        Assert.assertEquals(loop.lastChange, spawner.getLastChange());
+        Assert.assertEquals(loop.population, location.getCreatureCount(DUMMY));
+        int kills = random.nextInteger(location.getCreatureCount(DUMMY) + 1);
+        for (int i = 0; i < kills; i++) {
+          Creature creature = findDummy(location);
+          spawner.notifyKill(creature);
+          location.removeCreature(creature);
+          loop.notifyKill(worldTime);
+        }
+        Assert.assertEquals(loop.lastChange, spawner.getLastChange());
+      }
+    } finally {
+      Game.unsetGameState();
+    }
+  }
+
+  private static Creature findDummy(Location location) {
+    for (Creature creature : location.getCreatures()) {
+      if (creature.getId().equals(DUMMY)) {
+        return creature;
+      }
+    }
+    throw new IllegalStateException("there is no dummy in " + location + ".");
+  }
+
+}
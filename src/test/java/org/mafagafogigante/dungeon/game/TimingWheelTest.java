@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TimingWheelTest {
+
+  private static final long START = 1000000L;
+
+  private static List<Integer> advance(TimingWheel wheel, long millis) {
+    List<Point> due = new ArrayList<Point>();
+    wheel.advance(millis, due);
+    List<Integer> identifiers = new ArrayList<Integer>();
+    for (Point point : due) {
+      identifiers.add(point.getX());
+    }
+    Collections.sort(identifiers);
+    return identifiers;
+  }
+
+  @Test
+  public void eventsShouldBeDueExactlyWhenTheirTimeComes() throws Exception {
+    TimingWheel wheel = new TimingWheel(START);
+    wheel.schedule(START + 1500, new Point(1, 0, 0));
+    wheel.schedule(START + 2000, new Point(2, 0, 0));
+    wheel.schedule(START - 5000, new Point(3, 0, 0));
+    Assert.assertEquals(Collections.singletonList(3), advance(wheel, START));
+    Assert.assertEquals(Collections.<Integer>emptyList(), advance(wheel, START + 1999));
+    Assert.assertEquals(2, wheel.size());
+    Assert.assertEquals(Arrays.asList(1, 2), advance(wheel, START + 2000));
+    Assert.assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void eventsBeyondTheWheelShouldBeDueWhenTheirTimeComes() throws Exception {
+    TimingWheel wheel = new TimingWheel(START);
+    long farAway = START + 40L * 365 * 24 * 60 * 60 * 1000;
+    wheel.schedule(farAway, new Point(1, 0, 0));
+    wheel.schedule(START + 60000, new Point(2, 0, 0));
+    Assert.assertEquals(Collections.singletonList(2), advance(wheel, farAway - 1000));
+    Assert.assertEquals(Collections.singletonList(1), advance(wheel, farAway));
+  }
+
+  @Test
+  public void wheelShouldAgreeWithAnExhaustiveSearch() throws Exception {
+    SeededRandom random = new SeededRandom(42L);
+    TimingWheel wheel = new TimingWheel(START);
+    List<Long> times = new ArrayList<Long>();
+    List<Integer> pending = new ArrayList<Integer>();
+    long now = START;
+    for (int step = 0; step < 2000; step++) {
+      for (int i = random.nextInteger(4); i > 0; i--) {
+        // The world date only moves in whole seconds. Spread the events over the levels of the wheel.
+        long delay = 1000L * random.nextInteger(1 << (2 + random.nextInteger(20)));
+        times.add(now + delay);
+        pending.add(times.size() - 1);
+        wheel.schedule(now + delay, new Point(times.size() - 1, 0, 0));
+      }
+      now += 1000L * random.nextInteger(1 << (1 + random.nextInteger(16)));
+      List<Integer> expected = new ArrayList<Integer>();
+      for (Integer identifier : new ArrayList<Integer>(pending)) {
+        if (times.get(identifier) <= now) {
+          expected.add(identifier);
+          pending.remove(identifier);
+        }
+      }
+      Collections.sort(expected);
+      Assert.assertEquals(expected, advance(wheel, now));
+      Assert.assertEquals(pending.size(), wheel.size());
+    }
+  }
+
+  @Test
+  public void serializationShouldPreserveThePendingEvents() throws Exception {
+    TimingWheel wheel = new TimingWheel(START);
+    for (int i = 0; i < 100; i++) {
+      wheel.schedule(START + i * 7919L * 1000, new Point(i, -i, i % 3));
+    }
+    advance(wheel, START + 50 * 7919L * 1000);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream output = new ObjectOutputStream(bytes);
+    output.writeObject(wheel);
+    output.close();
+    ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    TimingWheel copy = (TimingWheel) input.readObject();
+    Assert.assertEquals(49, copy.size());
+    List<Point> due = new ArrayList<Point>();
+    copy.advance(START + 99 * 7919L * 1000, due);
+    Assert.assertEquals(49, due.size());
+    Assert.assertTrue(due.contains(new Point(99, -99, 0)));
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.game;
+
+import org.mafagafogigante.dungeon.entity.items.Item;
+import org.mafagafogigante.dungeon.stats.WorldStatistics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WorldGeneratorTest {
+
+  private static final long SEED = 20151031L;
+  private static final int RANGE = 30;
+
+  private static String describe(World world, Point point) {
+    if (!world.alreadyHasLocationAt(point)) {
+      return "nothing";
+    }
+    Location location = world.getLocation(point);
+    StringBuilder builder = new StringBuilder(location.getId().toString());
+    for (Item item : location.getItemList()) {
+      builder.append(' ').append(item.getId().toString());
+    }
+    return builder.toString();
+  }
+
+  @Test
+  public void worldsWithTheSameSeedShouldBeEqualRegardlessOfTheGenerationOrder() throws Exception {
+    World forwards = new World(new WorldStatistics(), SEED);
+    for (int x = -RANGE; x <= RANGE; x += LocationChunk.CHUNK_SIDE) {
+      for (int y = -RANGE; y <= RANGE; y += LocationChunk.CHUNK_SIDE) {
+        forwards.getLocation(new Point(x, y, 0));
+      }
+    }
+    World backwards = new World(new WorldStatistics(), SEED);
+    for (int x = RANGE; x >= -RANGE; x -= LocationChunk.CHUNK_SIDE) {
+      for (int y = RANGE; y >= -RANGE; y -= LocationChunk.CHUNK_SIDE) {
+        backwards.getLocation(new Point(x, y, 0));
+      }
+    }
+    for (int x = -RANGE; x <= RANGE; x++) {
+      for (int y = -RANGE; y <= RANGE; y++) {
+        for (int z = 0; z >= -2; z--) {
+          Point point = new Point(x, y, z);
+          Assert.assertEquals(describe(forwards, point), describe(backwards, point));
+        }
+      }
+    }
+    Assert.assertEquals(forwards.getLocationCount(), backwards.getLocationCount());
+  }
+
+  @Test
+  public void generateRegionShouldGenerateTheSameChunksAsGetLocation() throws Exception {
+    World region = new World(new WorldStatistics(), SEED);
+    region.generateRegion(-RANGE, -RANGE, RANGE, RANGE);
+    int regionLocationCount = region.getLocationCount();
+    World onDemand = new World(new WorldStatistics(), SEED);
+    for (int x = -RANGE; x <= RANGE; x++) {
+      for (int y = -RANGE; y <= RANGE; y++) {
+        onDemand.getLocation(new Point(x, y, 0));
+      }
+    }
+    for (int x = -RANGE; x <= RANGE; x++) {
+      for (int y = -RANGE; y <= RANGE; y++) {
+        for (int z = 0; z >= -2; z--) {
+          Point point = new Point(x, y, z);
+          Assert.assertEquals(describe(onDemand, point), describe(region, point));
+        }
+      }
+    }
+    Assert.assertEquals(onDemand.getLocationCount(), regionLocationCount);
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.io;
+
+import org.mafagafogigante.dungeon.game.Game;
+import org.mafagafogigante.dungeon.game.GameState;
+import org.mafagafogigante.dungeon.game.SaveJournal;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+public class SavesIndexTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void indexShouldFollowTheSavesInTheFolder() throws Exception {
+    SavesIndex index = new SavesIndex(folder.getRoot(), DungeonFilenameFilters.getExtensionFilter());
+    Assert.assertTrue(index.getEntries().isEmpty());
+    GameState state = new GameState();
+    Game.setGameState(state); // So that its World is disposed of by unsetGameState.
+    try {
+      File first = new File(folder.getRoot(), "first.dungeon");
+      File second = new File(folder.getRoot(), "second.dungeon");
+      SaveJournal.save(state, first);
+      SaveJournal.save(state, second);
+      Assert.assertTrue(new File(folder.getRoot(), "notes.txt").createNewFile());
+      List<SavesIndex.Entry> entries = index.getEntries();
+      Assert.assertEquals(2, entries.size());
+      for (SavesIndex.Entry entry : entries) {
+        SaveJournal.Metadata metadata = entry.getMetadata();
+        Assert.assertNotNull(metadata);
+        Assert.assertEquals(state.getHero().getName().getSingular(), metadata.getHeroName());
+        Assert.assertEquals(state.getWorld().getWorldDate().toString(), metadata.getWorldDate());
+        Assert.assertEquals(state.getWorld().getLocationCount(), metadata.getLocationCount());
+        Assert.assertEquals(entry.getFile().length(), entry.getLength());
+      }
+
+      // Extending a save does not change the folder, so the index must be told about it.
+      state.getWorld().generateRegion(-20, -20, 20, 20);
+      SaveJournal.save(state, first);
+      index.notifyWritten(first);
+      SavesIndex.Entry extended = null;
+      for (SavesIndex.Entry entry : index.getEntries()) {
+        if (entry.getFile().equals(first)) {
+          extended = entry;
+        }
+      }
+      Assert.assertNotNull(extended);
+      Assert.assertEquals(first.length() + SaveJournal.getJournalFile(first).length(), extended.getLength());
+      Assert.assertEquals(state.getWorld().getLocationCount(), extended.getMetadata().getLocationCount());
+
+      Assert.assertTrue(second.delete());
+      entries = index.getEntries();
+      Assert.assertEquals(1, entries.size());
+      Assert.assertEquals(first, entries.get(0).getFile());
+    } finally {
+      Game.unsetGameState();
+    }
+  }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 Bernardo Sulzbach
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mafagafogigante.dungeon.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LongHashMapTest {
+
+  @Test
+  public void mapShouldKeepEveryMappingAfterGrowing() throws Exception {
+    LongHashMap<String> map = new LongHashMap<String>();
+    for (int i = -1000; i <= 1000; i += 7) {
+      map.put(i, String.valueOf(i));
+    }
+    for (int i = -1000; i <= 1000; i++) {
+      if ((i + 1000) % 7 == 0) {
+        Assert.assertEquals(String.valueOf(i), map.get(i));
+      } else {
+        Assert.assertFalse(map.containsKey(i));
+        Assert.assertNull(map.get(i));
+      }
+    }
+    Assert.assertEquals(map.values().size(), map.size());
+  }
+
+  @Test
+  public void putShouldReplaceExistingValues() throws Exception {
+    LongHashMap<String> map = new LongHashMap<String>();
+    map.put(3, "a");
+    map.put(3, "b");
+    Assert.assertEquals("b", map.get(3));
+    Assert.assertEquals(1, map.size());
+  }
+
+  @Test
+  public void keysThatOnlyDifferInTheirHighBitsShouldBeDistinct() throws Exception {
+    LongHashMap<String> map = new LongHashMap<String>();
+    for (long i = 0; i < 100; i++) {
+      map.put(i << 40, String.valueOf(i));
+    }
+    for (long i = 0; i < 100; i++) {
+      Assert.assertEquals(String.valueOf(i), map.get(i << 40));
+      Assert.assertFalse(map.containsKey((i << 40) + 1));
+    }
+    Assert.assertEquals(100, map.size());
+  }
+
+}